@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.benchmarks;
+
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Simple event fired by the benchmarks.
+ */
+public class BenchmarkEvent extends GenericEvent {
+
+  private final long value;
+  private final Blackhole blackhole;
+
+  public BenchmarkEvent(long value) {
+    this(value, null);
+  }
+
+  /**
+   * Creates an event whose value is passed to the given blackhole by each
+   * {@link Handler} that receives it.
+   */
+  public BenchmarkEvent(long value, Blackhole blackhole) {
+    this.value = value;
+    this.blackhole = blackhole;
+  }
+
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   * Handler that does a trivial amount of work with each event so that the
+   * benchmarks measure the cost of dispatching. It keeps no state of its own,
+   * so that handlers called from many threads at once don't contend on a
+   * shared field; instead the value is consumed by the blackhole of the thread
+   * that fired the event, if it has one.
+   */
+  public static class Handler implements GenericEventHandler {
+    @Override
+    public void handleEvent(GenericEvent event) {
+      BenchmarkEvent benchmarkEvent = (BenchmarkEvent) event;
+      if (benchmarkEvent.blackhole != null) {
+        benchmarkEvent.blackhole.consume(benchmarkEvent.value);
+      }
+    }
+  }
+}
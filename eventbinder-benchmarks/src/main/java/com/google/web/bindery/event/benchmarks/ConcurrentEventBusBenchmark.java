@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.benchmarks;
+
+import com.google.web.bindery.event.server.binder.ConcurrentEventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures contention when firing events and adding handlers from many threads
+ * at once, comparing {@link ConcurrentEventBus} to a {@link SimpleEventBus}
+ * guarded by a lock. Run {@link #main} to repeat the benchmark with 1 to 64
+ * threads, or pass {@code -t} to the benchmarks jar to choose a single thread
+ * count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentEventBusBenchmark {
+
+  private static final GenericEventType TYPE = GenericEventType.getTypeOf(BenchmarkEvent.class);
+
+  @Param({"1", "10", "100"})
+  public int handlerCount;
+
+  private ConcurrentEventBus concurrentEventBus;
+  private SimpleEventBus simpleEventBus;
+
+  @Setup
+  public void setUp() {
+    concurrentEventBus = new ConcurrentEventBus();
+    simpleEventBus = new SimpleEventBus();
+    for (int i = 0; i < handlerCount; i++) {
+      concurrentEventBus.addHandler(TYPE, new BenchmarkEvent.Handler());
+      simpleEventBus.addHandler(TYPE, new BenchmarkEvent.Handler());
+    }
+  }
+
+  @Benchmark
+  public void fireConcurrentEventBus(Blackhole blackhole) {
+    concurrentEventBus.fireEvent(new BenchmarkEvent(1, blackhole));
+  }
+
+  @Benchmark
+  public void fireLockedSimpleEventBus(Blackhole blackhole) {
+    synchronized (simpleEventBus) {
+      simpleEventBus.fireEvent(new BenchmarkEvent(1, blackhole));
+    }
+  }
+
+  @Benchmark
+  public void addAndRemoveConcurrentEventBus() {
+    concurrentEventBus.addHandler(TYPE, new BenchmarkEvent.Handler()).removeHandler();
+  }
+
+  @Benchmark
+  public void addAndRemoveLockedSimpleEventBus() {
+    synchronized (simpleEventBus) {
+      simpleEventBus.addHandler(TYPE, new BenchmarkEvent.Handler()).removeHandler();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads = 1; threads <= 64; threads *= 2) {
+      new Runner(new OptionsBuilder()
+          .include(ConcurrentEventBusBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build()).run();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.benchmarks;
+
+import com.google.web.bindery.event.server.binder.EventBridge;
+import com.google.web.bindery.event.server.binder.EventCodec;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the codec generated for a {@link Bridgeable} event to Java
+ * serialization of the same event, and measures sending batches of events
+ * through an {@link EventBridge}. {@link #main} also prints the encoded size of
+ * the event in each format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+  private final QuoteEvent event =
+      new QuoteEvent("GOOG", 123456, 1500, Arrays.asList("nasdaq", "tech"));
+  private final EventCodec<QuoteEvent> codec = EventCodec.of(QuoteEvent.class);
+
+  private byte[] encodedEvent;
+  private byte[] serializedEvent;
+  private SimpleEventBus eventBus;
+
+  @Setup
+  public void setUp() throws IOException {
+    encodedEvent = encode(codec, event);
+    serializedEvent = serialize(event);
+    eventBus = new SimpleEventBus();
+    new EventBridge(eventBus, new EventBridge.Transport() {
+      @Override
+      public void send(byte[] batch) {}
+    }, 100).bridge(QuoteEvent.class);
+  }
+
+  @Benchmark
+  public byte[] encodeCodec() throws IOException {
+    return encode(codec, event);
+  }
+
+  @Benchmark
+  public byte[] encodeJavaSerialization() throws IOException {
+    return serialize(event);
+  }
+
+  @Benchmark
+  public QuoteEvent decodeCodec() throws IOException {
+    return codec.decode(new DataInputStream(new ByteArrayInputStream(encodedEvent)));
+  }
+
+  @Benchmark
+  public Object decodeJavaSerialization() throws IOException, ClassNotFoundException {
+    return new ObjectInputStream(new ByteArrayInputStream(serializedEvent)).readObject();
+  }
+
+  /**
+   * Fires an event on an event bus whose bridge sends batches of 100 events
+   * to a transport that discards them.
+   */
+  @Benchmark
+  public void fireBridged() {
+    eventBus.fireEvent(event);
+  }
+
+  private static byte[] encode(EventCodec<QuoteEvent> codec, QuoteEvent event)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    codec.encode(event, new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  private static byte[] serialize(Object object) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(object);
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Event representative of those relayed between servers: a few scalars and
+   * a short list.
+   */
+  @Bridgeable
+  public static class QuoteEvent extends GenericEvent implements Serializable {
+    private final String symbol;
+    private final long priceMicros;
+    private final int volume;
+    private final List<String> tags;
+
+    public QuoteEvent(String symbol, long priceMicros, int volume, List<String> tags) {
+      this.symbol = symbol;
+      this.priceMicros = priceMicros;
+      this.volume = volume;
+      this.tags = tags;
+    }
+
+    public String getSymbol() {
+      return symbol;
+    }
+
+    public long getPriceMicros() {
+      return priceMicros;
+    }
+
+    public int getVolume() {
+      return volume;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+  }
+
+  public static void main(String[] args) throws IOException, RunnerException {
+    EventCodecBenchmark benchmark = new EventCodecBenchmark();
+    benchmark.setUp();
+    System.out.println("Generated codec: " + benchmark.encodedEvent.length + " bytes");
+    System.out.println("Java serialization: " + benchmark.serializedEvent.length + " bytes");
+    new Runner(new OptionsBuilder()
+        .include(EventCodecBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.benchmarks;
+
+import com.google.web.bindery.event.server.binder.ConcurrentEventBus;
+import com.google.web.bindery.event.server.binder.ParallelDispatcher;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.ParallelSafe;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to deliver one event to all of its handlers with a
+ * {@link ParallelDispatcher} on a {@link ForkJoinPool}, compared to invoking
+ * them one after another on the firing thread. Each handler burns
+ * {@code handlerWork} tokens of CPU time, as measured by
+ * {@link Blackhole#consumeCPU}. Parallel dispatch pays a fixed cost for
+ * handing chunks to other threads and waiting for them, so it only wins once
+ * the handlers of an event do enough work in total; comparing the two
+ * benchmarks across the parameters shows where that crossover lies on the
+ * machine running them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelDispatcherBenchmark {
+
+  private static final GenericEventType TYPE =
+      GenericEventType.getTypeOf(ParallelBenchmarkEvent.class);
+
+  @Param({"16", "64", "256", "1024"})
+  public int handlerCount;
+
+  @Param({"0", "100", "1000"})
+  public int handlerWork;
+
+  @Param({"16"})
+  public int chunkSize;
+
+  private ForkJoinPool pool;
+  private ConcurrentEventBus sequentialEventBus;
+  private ConcurrentEventBus parallelEventBus;
+
+  @Setup
+  public void setUp() {
+    pool = new ForkJoinPool();
+    sequentialEventBus = new ConcurrentEventBus();
+    parallelEventBus = new ConcurrentEventBus(
+        new ParallelDispatcher(pool, chunkSize, pool.getParallelism() + 1));
+    for (int i = 0; i < handlerCount; i++) {
+      sequentialEventBus.addHandler(TYPE, new WorkingHandler(handlerWork));
+      parallelEventBus.addHandler(TYPE, new WorkingHandler(handlerWork));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public void fireSequentially() {
+    sequentialEventBus.fireEvent(new ParallelBenchmarkEvent());
+  }
+
+  @Benchmark
+  public void fireInParallel() {
+    parallelEventBus.fireEvent(new ParallelBenchmarkEvent());
+  }
+
+  /**
+   * Event whose handlers may be invoked in parallel.
+   */
+  @ParallelSafe
+  public static class ParallelBenchmarkEvent extends GenericEvent {}
+
+  static class WorkingHandler implements GenericEventHandler {
+    private final int work;
+
+    WorkingHandler(int work) {
+      this.work = work;
+    }
+
+    @Override
+    public void handleEvent(GenericEvent event) {
+      Blackhole.consumeCPU(work);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.benchmarks;
+
+import com.google.web.bindery.event.server.binder.ConcurrentEventBus;
+import com.google.web.bindery.event.server.binder.RingBufferEventBus;
+import com.google.web.bindery.event.server.binder.RingBufferEventBus.WaitStrategy;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single producer firing events through a {@link RingBufferEventBus}
+ * with each of its wait strategies, compared to dispatching synchronously on a
+ * {@link ConcurrentEventBus}. The throughput benchmarks only wait for the
+ * producer, while the sample-time benchmarks wait for every handler to receive
+ * each event and so report end-to-end latency percentiles.
+ */
+@State(Scope.Benchmark)
+@Threads(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferEventBusBenchmark {
+
+  private static final GenericEventType TYPE = GenericEventType.getTypeOf(BenchmarkEvent.class);
+
+  @Param({"busySpin", "yielding", "sleeping", "blocking"})
+  public String waitStrategy;
+
+  @Param({"4"})
+  public int handlerCount;
+
+  @Param({"2"})
+  public int consumerCount;
+
+  private RingBufferEventBus ringBufferEventBus;
+  private EventBus concurrentEventBus;
+  private LatestValueHandler[] ringBufferHandlers;
+  private long nextValue;
+
+  @Setup
+  public void setUp() {
+    ringBufferEventBus = new RingBufferEventBus(64 * 1024, consumerCount, createWaitStrategy());
+    concurrentEventBus = new ConcurrentEventBus();
+    ringBufferHandlers = new LatestValueHandler[handlerCount];
+    for (int i = 0; i < handlerCount; i++) {
+      ringBufferHandlers[i] = new LatestValueHandler();
+      ringBufferEventBus.addHandler(TYPE, ringBufferHandlers[i]);
+      concurrentEventBus.addHandler(TYPE, new LatestValueHandler());
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws InterruptedException {
+    ringBufferEventBus.shutdown();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void fireRingBuffer() {
+    ringBufferEventBus.fireEvent(new BenchmarkEvent(++nextValue));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void fireSynchronously() {
+    concurrentEventBus.fireEvent(new BenchmarkEvent(++nextValue));
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void fireRingBufferAndAwaitHandlers() {
+    long value = ++nextValue;
+    ringBufferEventBus.fireEvent(new BenchmarkEvent(value));
+    for (LatestValueHandler handler : ringBufferHandlers) {
+      while (handler.latestValue < value) {
+        // Spin until the handler has seen the event
+      }
+    }
+  }
+
+  private WaitStrategy createWaitStrategy() {
+    if (waitStrategy.equals("busySpin")) {
+      return WaitStrategy.busySpin();
+    } else if (waitStrategy.equals("yielding")) {
+      return WaitStrategy.yielding();
+    } else if (waitStrategy.equals("sleeping")) {
+      return WaitStrategy.sleeping();
+    } else {
+      return WaitStrategy.blocking();
+    }
+  }
+
+  static class LatestValueHandler implements GenericEventHandler {
+    volatile long latestValue;
+
+    @Override
+    public void handleEvent(GenericEvent event) {
+      latestValue = ((BenchmarkEvent) event).getValue();
+    }
+  }
+}
@@ -18,10 +18,12 @@ package sample.client;
 import com.google.gwt.core.client.EntryPoint;
 import com.google.gwt.dom.client.Style;
 import com.google.gwt.dom.client.Style.Unit;
-import com.google.gwt.event.shared.SimpleEventBus;
 import com.google.gwt.user.client.ui.Button;
 import com.google.gwt.user.client.ui.RootPanel;
 import com.google.gwt.user.client.ui.VerticalPanel;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.CountingEventBus;
 
 /**
  * Initializes the application. Nothing to see here: everything interesting
@@ -32,7 +34,8 @@ public class SampleEntryPoint implements EntryPoint {
   @Override
   public void onModuleLoad() {
     // Create the object graph - a real application would use Gin
-    SimpleEventBus eventBus = new SimpleEventBus();
+    // Counting handlers lets the server proxy skip events that nobody handles
+    EventBus eventBus = new CountingEventBus(new SimpleEventBus());
 
     SidebarPresenter sidebarPresenter = new SidebarPresenter(eventBus);
     Button sidebarView = new Button("Contacts");
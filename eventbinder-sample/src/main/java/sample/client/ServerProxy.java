@@ -18,9 +18,11 @@ package sample.client;
 import com.google.gwt.core.client.GWT;
 import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.core.client.Scheduler.RepeatingCommand;
-import com.google.gwt.event.shared.EventBus;
+import com.google.web.bindery.event.shared.EventBus;
 import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventFactory;
 import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvents;
 
 import java.util.LinkedList;
 
@@ -47,10 +49,17 @@ class ServerProxy {
     Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
       @Override
       public boolean execute() {
-        LinkedList<String> results = new LinkedList<String>();
-        results.add("John Doe");
-        results.add("Jane Doe");
-        eventBus.fireEvent(new ContactsLoadedEvent(results));
+        // Only build the results if some presenter is listening for them
+        GenericEvents.fireIfHandled(eventBus, ContactsLoadedEvent.class,
+            new EventFactory<ContactsLoadedEvent>() {
+              @Override
+              public ContactsLoadedEvent create() {
+                LinkedList<String> results = new LinkedList<String>();
+                results.add("John Doe");
+                results.add("Jane Doe");
+                return new ContactsLoadedEvent(results);
+              }
+            });
         return false;
       }
     }, 1000);
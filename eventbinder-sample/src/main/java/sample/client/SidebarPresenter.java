@@ -19,8 +19,10 @@ import com.google.gwt.core.client.GWT;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
 import com.google.gwt.event.dom.client.HasClickHandlers;
-import com.google.gwt.event.shared.EventBus;
+import com.google.web.bindery.event.shared.EventBus;
 import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventFactory;
+import com.google.web.bindery.event.shared.binder.GenericEvents;
 
 /**
  * Presenter for the application's sidebar, which just shows a button that the
@@ -31,6 +33,14 @@ class SidebarPresenter {
   interface MyEventBinder extends EventBinder<SidebarPresenter> {}
   private static final MyEventBinder eventBinder = GWT.create(MyEventBinder.class);
 
+  private static final EventFactory<ContactScreenOpenedEvent> CONTACT_SCREEN_OPENED =
+      new EventFactory<ContactScreenOpenedEvent>() {
+        @Override
+        public ContactScreenOpenedEvent create() {
+          return new ContactScreenOpenedEvent();
+        }
+      };
+
   private final EventBus eventBus;
 
   SidebarPresenter(EventBus eventBus) {
@@ -42,7 +52,8 @@ class SidebarPresenter {
     view.addClickHandler(new ClickHandler() {
       @Override
       public void onClick(ClickEvent arg0) {
-        eventBus.fireEvent(new ContactScreenOpenedEvent());
+        GenericEvents.fireShared(
+            eventBus, ContactScreenOpenedEvent.class, CONTACT_SCREEN_OPENED);
       }
     });
   }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package sample.client.stress;
+
+import com.google.gwt.core.client.EntryPoint;
+import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.ClickHandler;
+import com.google.gwt.user.client.Window;
+import com.google.gwt.user.client.ui.Button;
+import com.google.gwt.user.client.ui.Label;
+import com.google.gwt.user.client.ui.RootPanel;
+
+/**
+ * Runs the {@link StressScenario} in the browser each time a button is
+ * clicked and shows the timings. The number of presenters can be set with the
+ * {@code presenters} URL parameter.
+ */
+public class StressEntryPoint implements EntryPoint {
+
+  private static final int DEFAULT_PRESENTER_COUNT = 5000;
+
+  @Override
+  public void onModuleLoad() {
+    final int presenterCount = getPresenterCount();
+    Button runButton = new Button("Run with " + presenterCount + " presenters");
+    runButton.addClickHandler(new ClickHandler() {
+      @Override
+      public void onClick(ClickEvent event) {
+        StressScenario.Result result = new StressScenario(presenterCount).run();
+        RootPanel.get().add(new Label(result.toString()));
+      }
+    });
+    RootPanel.get().add(runButton);
+  }
+
+  private int getPresenterCount() {
+    String parameter = Window.Location.getParameter("presenters");
+    try {
+      return parameter != null ? Integer.parseInt(parameter) : DEFAULT_PRESENTER_COUNT;
+    } catch (NumberFormatException e) {
+      return DEFAULT_PRESENTER_COUNT;
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package sample.client.stress;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.GWT;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds thousands of presenters to an event bus across several event types
+ * and measures how long binding, dispatching and unbinding take. This is run
+ * in a browser by {@link StressEntryPoint} and in HtmlUnit by StressScenarioTest,
+ * so that changes to the generated binders can be checked against compiled
+ * JavaScript rather than only on the JVM.
+ */
+public class StressScenario {
+
+  /**
+   * Timings from a single run of the scenario.
+   */
+  public static class Result {
+    private final int presenterCount;
+    private final int handlerCalls;
+    private final int staleHandlerCalls;
+    private final double bindMillis;
+    private final double fireMillis;
+    private final double unbindMillis;
+
+    Result(int presenterCount, int handlerCalls, int staleHandlerCalls,
+        double bindMillis, double fireMillis, double unbindMillis) {
+      this.presenterCount = presenterCount;
+      this.handlerCalls = handlerCalls;
+      this.staleHandlerCalls = staleHandlerCalls;
+      this.bindMillis = bindMillis;
+      this.fireMillis = fireMillis;
+      this.unbindMillis = unbindMillis;
+    }
+
+    public int getPresenterCount() {
+      return presenterCount;
+    }
+
+    /** Returns the number of handler invocations seen while firing every event type once. */
+    public int getHandlerCalls() {
+      return handlerCalls;
+    }
+
+    /**
+     * Returns the number of handler invocations seen while firing every event
+     * type again after the presenters were unbound.
+     */
+    public int getStaleHandlerCalls() {
+      return staleHandlerCalls;
+    }
+
+    /** Returns the time taken to bind every presenter. */
+    public double getBindMillis() {
+      return bindMillis;
+    }
+
+    /**
+     * Returns the average time from firing an event until its last handler was
+     * invoked.
+     */
+    public double getFireMillis() {
+      return fireMillis;
+    }
+
+    /** Returns the time taken to unbind every presenter. */
+    public double getUnbindMillis() {
+      return unbindMillis;
+    }
+
+    @Override
+    public String toString() {
+      return presenterCount + " presenters, " + handlerCalls + " handler calls: bind "
+          + bindMillis + " ms, fire to last handler " + fireMillis + " ms, unbind "
+          + unbindMillis + " ms";
+    }
+  }
+
+  private final int presenterCount;
+  private int handlerCalls;
+  private double lastHandledMillis;
+
+  public StressScenario(int presenterCount) {
+    this.presenterCount = presenterCount;
+  }
+
+  /**
+   * Binds the presenters to a new event bus, fires one event of each type and
+   * unbinds the presenters again.
+   */
+  public Result run() {
+    return run(new SimpleEventBus());
+  }
+
+  /**
+   * Binds the presenters to the given event bus, fires one event of each type
+   * and unbinds the presenters again. Every event type is then fired once more
+   * to count handlers that were left behind on the bus.
+   */
+  public Result run(EventBus eventBus) {
+    List<Presenter> presenters = new ArrayList<Presenter>();
+    for (int i = 0; i < presenterCount; i++) {
+      switch (i % 4) {
+        case 0: presenters.add(new OddPresenter(this)); break;
+        case 1: presenters.add(new EvenPresenter(this)); break;
+        case 2: presenters.add(new LowPresenter(this)); break;
+        default: presenters.add(new HighPresenter(this)); break;
+      }
+    }
+    GenericEvent[] events = {new Event1(), new Event2(), new Event3(), new Event4(),
+        new Event5(), new Event6(), new Event7(), new Event8()};
+    handlerCalls = 0;
+
+    double start = Duration.currentTimeMillis();
+    List<HandlerRegistration> registrations = new ArrayList<HandlerRegistration>();
+    for (Presenter presenter : presenters) {
+      registrations.add(presenter.bind(eventBus));
+    }
+    double bindMillis = Duration.currentTimeMillis() - start;
+
+    double totalFireMillis = 0;
+    for (GenericEvent event : events) {
+      double fired = Duration.currentTimeMillis();
+      eventBus.fireEvent(event);
+      totalFireMillis += lastHandledMillis - fired;
+    }
+
+    start = Duration.currentTimeMillis();
+    for (HandlerRegistration registration : registrations) {
+      registration.removeHandler();
+    }
+    double unbindMillis = Duration.currentTimeMillis() - start;
+
+    int boundHandlerCalls = handlerCalls;
+    for (GenericEvent event : events) {
+      eventBus.fireEvent(event);
+    }
+
+    return new Result(presenterCount, boundHandlerCalls, handlerCalls - boundHandlerCalls,
+        bindMillis, totalFireMillis / events.length, unbindMillis);
+  }
+
+  void handled() {
+    handlerCalls++;
+    lastHandledMillis = Duration.currentTimeMillis();
+  }
+
+  abstract static class Presenter {
+    final StressScenario scenario;
+
+    Presenter(StressScenario scenario) {
+      this.scenario = scenario;
+    }
+
+    abstract HandlerRegistration bind(EventBus eventBus);
+  }
+
+  static class OddPresenter extends Presenter {
+    interface MyEventBinder extends EventBinder<OddPresenter> {}
+    private static final MyEventBinder eventBinder = GWT.create(MyEventBinder.class);
+
+    OddPresenter(StressScenario scenario) {
+      super(scenario);
+    }
+
+    @Override
+    HandlerRegistration bind(EventBus eventBus) {
+      return eventBinder.bindEventHandlers(this, eventBus);
+    }
+
+    @EventHandler
+    void onEvent1(Event1 event) {
+      scenario.handled();
+    }
+
+    @EventHandler
+    void onEvent3(Event3 event) {
+      scenario.handled();
+    }
+
+    @EventHandler
+    void onEvent5(Event5 event) {
+      scenario.handled();
+    }
+
+    @EventHandler
+    void onEvent7(Event7 event) {
+      scenario.handled();
+    }
+  }
+
+  static class EvenPresenter extends Presenter {
+    interface MyEventBinder extends EventBinder<EvenPresenter> {}
+    private static final MyEventBinder eventBinder = GWT.create(MyEventBinder.class);
+
+    EvenPresenter(StressScenario scenario) {
+      super(scenario);
+    }
+
+    @Override
+    HandlerRegistration bind(EventBus eventBus) {
+      return eventBinder.bindEventHandlers(this, eventBus);
+    }
+
+    @EventHandler(handles = {Event2.class, Event4.class, Event6.class, Event8.class})
+    void onEvenEvent() {
+      scenario.handled();
+    }
+  }
+
+  static class LowPresenter extends Presenter {
+    interface MyEventBinder extends EventBinder<LowPresenter> {}
+    private static final MyEventBinder eventBinder = GWT.create(MyEventBinder.class);
+
+    LowPresenter(StressScenario scenario) {
+      super(scenario);
+    }
+
+    @Override
+    HandlerRegistration bind(EventBus eventBus) {
+      return eventBinder.bindEventHandlers(this, eventBus);
+    }
+
+    @EventHandler(handles = {Event1.class, Event2.class, Event3.class, Event4.class})
+    void onLowEvent(GenericEvent event) {
+      scenario.handled();
+    }
+  }
+
+  static class HighPresenter extends Presenter {
+    interface MyEventBinder extends EventBinder<HighPresenter> {}
+    private static final MyEventBinder eventBinder = GWT.create(MyEventBinder.class);
+
+    HighPresenter(StressScenario scenario) {
+      super(scenario);
+    }
+
+    @Override
+    HandlerRegistration bind(EventBus eventBus) {
+      return eventBinder.bindEventHandlers(this, eventBus);
+    }
+
+    @EventHandler(handles = {Event5.class, Event6.class, Event7.class, Event8.class})
+    void onHighEvent(GenericEvent event) {
+      scenario.handled();
+    }
+  }
+
+  static class Event1 extends GenericEvent {}
+  static class Event2 extends GenericEvent {}
+  static class Event3 extends GenericEvent {}
+  static class Event4 extends GenericEvent {}
+  static class Event5 extends GenericEvent {}
+  static class Event6 extends GenericEvent {}
+  static class Event7 extends GenericEvent {}
+  static class Event8 extends GenericEvent {}
+}
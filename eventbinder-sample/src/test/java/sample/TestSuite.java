@@ -0,0 +1,11 @@
+package sample;
+
+import sample.client.stress.StressScenarioTest;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({
+    StressScenarioTest.class})
+public class TestSuite {}
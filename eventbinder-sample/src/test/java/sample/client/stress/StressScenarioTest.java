@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package sample.client.stress;
+
+import com.google.gwt.junit.client.GWTTestCase;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+
+/**
+ * Runs the {@link StressScenario} in HtmlUnit and checks that every handler
+ * was called. The sample runs these tests against compiled JavaScript; pass
+ * {@code -Dgwt.test.devMode=true} to run them in development mode instead.
+ */
+public class StressScenarioTest extends GWTTestCase {
+
+  private static final int PRESENTER_COUNT = 4000;
+
+  @Override
+  public String getModuleName() {
+    return "sample.EventBinderStressTest";
+  }
+
+  public void testStressScenario() {
+    StressScenario.Result result = new StressScenario(PRESENTER_COUNT).run();
+
+    // Each presenter handles four of the eight event types
+    assertEquals(result.toString(), PRESENTER_COUNT, result.getPresenterCount());
+    assertEquals(result.toString(), PRESENTER_COUNT * 4, result.getHandlerCalls());
+    assertEquals(result.toString(), 0, result.getStaleHandlerCalls());
+  }
+
+  public void testStressScenario_repeated() {
+    // Binding again after unbinding must not leave stale handlers behind on the bus
+    EventBus eventBus = new SimpleEventBus();
+    StressScenario scenario = new StressScenario(100);
+    for (int i = 0; i < 3; i++) {
+      StressScenario.Result result = scenario.run(eventBus);
+      assertEquals(400, result.getHandlerCalls());
+      assertEquals(0, result.getStaleHandlerCalls());
+    }
+  }
+}
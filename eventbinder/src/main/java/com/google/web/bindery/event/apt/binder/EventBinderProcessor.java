@@ -0,0 +1,303 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.apt.binder;
+
+import com.google.web.bindery.event.gwt.rebind.binder.HandlerMethods;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenerateEventBinder;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.LazyEventBinder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypesException;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor that generates implementations of {@link EventBinder}
+ * subinterfaces annotated with {@link GenerateEventBinder} at javac time. The
+ * generated classes are the same as those written by the GWT generator, so a
+ * GWT compile that finds them on its source path uses them instead of
+ * generating its own. Each generated class depends only on the interface it
+ * implements and the types reachable from it, so the processor is an isolating
+ * processor for incremental compilation.
+ */
+public class EventBinderProcessor extends AbstractProcessor {
+
+  /**
+   * Processor option that, when true, stops handlers for abstract event types
+   * from being bound, like the {@code eventbinder.skipUnfireableHandlers}
+   * configuration property does for the GWT generator. Handlers for concrete
+   * event types are always bound.
+   */
+  static final String SKIP_UNFIREABLE_HANDLERS_OPTION = "eventbinder.skipUnfireableHandlers";
+
+  @Override
+  public Set<String> getSupportedOptions() {
+    return Collections.singleton(SKIP_UNFIREABLE_HANDLERS_OPTION);
+  }
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(GenerateEventBinder.class.getCanonicalName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(GenerateEventBinder.class)) {
+      if (element.getKind() != ElementKind.INTERFACE) {
+        error(element, "@GenerateEventBinder can only be applied to interfaces");
+        continue;
+      }
+      TypeElement binderType = (TypeElement) element;
+      TypeElement targetType = getTargetType(binderType);
+      if (targetType == null) {
+        error(binderType, binderType + " must extend EventBinder with a type parameter");
+        continue;
+      }
+      boolean lazy = binderType.getAnnotation(LazyEventBinder.class) != null;
+      List<String> body = new ArrayList<String>();
+      if (lazy ? writeLazyDoBindEventHandlers(binderType, targetType, body)
+          : writeDoBindEventHandlers(targetType, body)) {
+        writeBinder(binderType, targetType, body, lazy);
+      }
+    }
+    return true;
+  }
+
+  private TypeElement getTargetType(TypeElement binderType) {
+    List<? extends TypeMirror> superTypes = binderType.getInterfaces();
+    if (superTypes.size() != 1) {
+      return null;
+    }
+    DeclaredType superType = (DeclaredType) superTypes.get(0);
+    if (!((TypeElement) superType.asElement()).getQualifiedName()
+            .contentEquals(EventBinder.class.getCanonicalName())
+        || superType.getTypeArguments().size() != 1
+        || superType.getTypeArguments().get(0).getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+    return (TypeElement) ((DeclaredType) superType.getTypeArguments().get(0)).asElement();
+  }
+
+  /**
+   * Adds the statements of the doBindEventHandlers method for the given target
+   * to the body, returning false if any handler method was invalid.
+   */
+  private boolean writeDoBindEventHandlers(TypeElement target, List<String> body) {
+    boolean valid = true;
+    for (ExecutableElement method : ElementFilter.methodsIn(
+        processingEnv.getElementUtils().getAllMembers(target))) {
+      EventHandler annotation = method.getAnnotation(EventHandler.class);
+      if (annotation != null && !method.getModifiers().contains(Modifier.PRIVATE)) {
+        valid &= writeHandlerForBindMethod(
+            annotation, method, body, "eventBus, registrations, ", null);
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * Adds the statements of the doBindEventHandlers method for a
+   * {@link LazyEventBinder}, in the same form as the GWT generator, returning
+   * false if any handler method was invalid.
+   */
+  private boolean writeLazyDoBindEventHandlers(
+      TypeElement binderType, TypeElement target, List<String> body) {
+    boolean valid = true;
+    List<String> handlers = new ArrayList<String>();
+    Set<String> eventTypes = new LinkedHashSet<String>();
+    for (ExecutableElement method : ElementFilter.methodsIn(
+        processingEnv.getElementUtils().getAllMembers(target))) {
+      EventHandler annotation = method.getAnnotation(EventHandler.class);
+      if (annotation != null && !method.getModifiers().contains(Modifier.PRIVATE)) {
+        valid &= writeHandlerForBindMethod(annotation, method, handlers, "", eventTypes);
+      }
+    }
+
+    StringBuilder stubTypes = new StringBuilder();
+    for (String eventType : eventTypes) {
+      stubTypes.append(", ").append(eventType).append(".class");
+    }
+    body.add("new LazyBinding(eventBus, registrations" + stubTypes + ") {");
+    body.add("  protected void load() {");
+    body.add("    GWT.runAsync(" + binderType.getQualifiedName() + ".class, this);");
+    body.add("  }");
+    body.add("  protected void bindHandlers() {");
+    for (String line : handlers) {
+      body.add("    " + line);
+    }
+    body.add("  }");
+    body.add("};");
+    return valid;
+  }
+
+  private boolean writeHandlerForBindMethod(EventHandler annotation,
+      final ExecutableElement method, List<String> body, String bindArguments,
+      Set<String> boundEventTypes) {
+    TypeMirror eventParameter = null;
+    if (method.getParameters().size() == 1
+        && method.getParameters().get(0).asType().getKind() == TypeKind.DECLARED) {
+      eventParameter = method.getParameters().get(0).asType();
+    }
+    HandlerMethods<TypeMirror> handlerMethods = new HandlerMethods<TypeMirror>(
+        processingEnv.getElementUtils().getTypeElement(GenericEvent.class.getCanonicalName())
+            .asType(),
+        Boolean.parseBoolean(processingEnv.getOptions().get(SKIP_UNFIREABLE_HANDLERS_OPTION))) {
+      @Override
+      protected boolean isAbstract(TypeMirror type) {
+        return ((DeclaredType) type).asElement().getModifiers().contains(Modifier.ABSTRACT);
+      }
+
+      @Override
+      protected boolean isAssignable(TypeMirror from, TypeMirror to) {
+        return processingEnv.getTypeUtils().isAssignable(from, to);
+      }
+
+      @Override
+      protected String getName(TypeMirror type) {
+        return getQualifiedName(type);
+      }
+
+      @Override
+      protected void warn(String message) {
+        processingEnv.getMessager().printMessage(Kind.WARNING, message, method);
+      }
+    };
+
+    List<String> eventTypes = new ArrayList<String>();
+    try {
+      for (TypeMirror eventType : handlerMethods.getEventTypes(method.getSimpleName().toString(),
+          annotation, getHandles(annotation), method.getParameters().size(), eventParameter)) {
+        eventTypes.add(getQualifiedName(eventType));
+      }
+    } catch (IllegalArgumentException e) {
+      error(method, e.getMessage());
+      return false;
+    }
+    if (boundEventTypes != null) {
+      boundEventTypes.addAll(eventTypes);
+    }
+    HandlerMethods.writeBindStatements(body, bindArguments, method.getSimpleName().toString(),
+        annotation, eventParameter != null, eventTypes);
+    return true;
+  }
+
+  /**
+   * Returns the event classes listed in {@link EventHandler#handles}, which
+   * can't be read as Class objects during annotation processing.
+   */
+  private List<? extends TypeMirror> getHandles(EventHandler annotation) {
+    try {
+      annotation.handles();
+    } catch (MirroredTypesException e) {
+      return e.getTypeMirrors();
+    }
+    throw new IllegalStateException("EventHandler.handles was available as classes");
+  }
+
+  private void writeBinder(
+      TypeElement binderType, TypeElement targetType, List<String> body, boolean lazy) {
+    PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(binderType);
+    String packageName = packageElement.getQualifiedName().toString();
+    String simpleName = getSimpleGeneratedClassName(binderType, packageName);
+    String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    try {
+      PrintWriter writer = new PrintWriter(processingEnv.getFiler()
+          .createSourceFile(qualifiedName, binderType).openWriter());
+      try {
+        if (!packageName.isEmpty()) {
+          writer.println("package " + packageName + ";");
+          writer.println();
+        }
+        if (lazy) {
+          writer.println("import com.google.gwt.core.client.GWT;");
+        }
+        writer.println("import com.google.web.bindery.event.shared.EventBus;");
+        writer.println("import com.google.web.bindery.event.shared.HandlerRegistration;");
+        writer.println("import com.google.web.bindery.event.shared.binder.EventBinder;");
+        writer.println("import com.google.web.bindery.event.shared.binder.GenericEvent;");
+        writer.println("import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;");
+        if (lazy) {
+          writer.println("import com.google.web.bindery.event.shared.binder.impl.LazyBinding;");
+        }
+        writer.println("import java.util.List;");
+        writer.println();
+        writer.println("public class " + simpleName + " extends "
+            + "com.google.web.bindery.event.shared.binder.impl.AbstractEventBinder<"
+            + targetType.getQualifiedName() + "> implements "
+            + binderType.getQualifiedName() + " {");
+        writer.println("  protected void doBindEventHandlers(final " + targetType.getQualifiedName()
+            + " target, EventBus eventBus, List<HandlerRegistration> registrations) {");
+        for (String line : body) {
+          writer.println("    " + line);
+        }
+        writer.println("  }");
+        writer.println("}");
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      error(binderType, "Error generating " + qualifiedName + ": " + e);
+    }
+  }
+
+  /**
+   * Returns the name that the GWT generator uses for the implementation of the
+   * given interface: its name relative to the package, with dots replaced by
+   * underscores, followed by "Impl".
+   */
+  private String getSimpleGeneratedClassName(TypeElement binderType, String packageName) {
+    String name = binderType.getQualifiedName().toString();
+    if (!packageName.isEmpty()) {
+      name = name.substring(packageName.length() + 1);
+    }
+    return name.replace('.', '_') + "Impl";
+  }
+
+  private String getQualifiedName(TypeMirror type) {
+    return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+  }
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.apt.binder;
+
+import com.google.web.bindery.event.server.binder.EventCodec;
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Annotation processor that generates an
+ * {@link com.google.web.bindery.event.server.binder.EventCodec} for each
+ * {@link GenericEvent} subclass annotated with {@link Bridgeable}. The codec
+ * writes the event's fields in declaration order with no names or type tags,
+ * and reads them back by calling the constructor that takes all of them.
+ * Codecs use {@code java.io}, so they are written to a package under
+ * {@link EventCodec#GENERATED_PACKAGE} rather than the event's own package,
+ * which is usually part of a GWT module's source path. Each generated class
+ * depends only on the event class and the types of its fields, so the
+ * processor is an isolating processor for incremental compilation.
+ */
+public class EventCodecProcessor extends AbstractProcessor {
+
+  private static final String STRING = "java.lang.String";
+  private static final String LIST = "java.util.List";
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(Bridgeable.class.getCanonicalName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    for (Element element : roundEnv.getElementsAnnotatedWith(Bridgeable.class)) {
+      TypeElement eventType = (TypeElement) element;
+      if (!isConcreteEvent(eventType)) {
+        error(eventType, "@Bridgeable can only be applied to public, non-abstract, "
+            + "non-generic top-level or static nested subclasses of GenericEvent");
+        continue;
+      }
+      List<VariableElement> fields = getFields(eventType);
+      if (fields != null && hasConstructorFor(eventType, fields)) {
+        writeCodec(eventType, fields);
+      }
+    }
+    return true;
+  }
+
+  private boolean isConcreteEvent(TypeElement eventType) {
+    TypeMirror genericEventType = processingEnv.getElementUtils()
+        .getTypeElement(GenericEvent.class.getCanonicalName()).asType();
+    Set<Modifier> modifiers = eventType.getModifiers();
+    return eventType.getKind() == ElementKind.CLASS
+        && !modifiers.contains(Modifier.ABSTRACT)
+        && isPublic(eventType)
+        && (eventType.getNestingKind() == NestingKind.TOP_LEVEL
+            || modifiers.contains(Modifier.STATIC))
+        && eventType.getTypeParameters().isEmpty()
+        && processingEnv.getTypeUtils().isAssignable(eventType.asType(), genericEventType);
+  }
+
+  /**
+   * Returns whether the given class and all classes enclosing it are public,
+   * so that the codec can refer to it from its own package.
+   */
+  private boolean isPublic(TypeElement type) {
+    for (Element element = type; element.getKind() != ElementKind.PACKAGE;
+        element = element.getEnclosingElement()) {
+      if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the instance fields of the given event and its superclasses below
+   * GenericEvent, starting with those of the topmost superclass, or null if any
+   * of them can't be encoded.
+   */
+  private List<VariableElement> getFields(TypeElement eventType) {
+    List<TypeElement> classes = new ArrayList<TypeElement>();
+    for (TypeElement type = eventType;
+        !type.getQualifiedName().contentEquals(GenericEvent.class.getCanonicalName());
+        type = (TypeElement) ((DeclaredType) type.getSuperclass()).asElement()) {
+      classes.add(0, type);
+    }
+
+    List<VariableElement> fields = new ArrayList<VariableElement>();
+    boolean valid = true;
+    for (TypeElement type : classes) {
+      for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+        if (field.getModifiers().contains(Modifier.STATIC)) {
+          continue;
+        }
+        if (!field.getModifiers().contains(Modifier.FINAL)) {
+          error(field, "Field " + field.getSimpleName() + " of " + type.getSimpleName()
+              + " must be final to be bridged");
+          valid = false;
+        } else if (!isSupported(field.asType())) {
+          error(field, "Field " + field.getSimpleName() + " of " + type.getSimpleName()
+              + " has type " + field.asType() + ", which can't be bridged");
+          valid = false;
+        } else if (getAccessor(eventType, field) == null) {
+          error(field, "Field " + field.getSimpleName() + " of " + type.getSimpleName()
+              + " must be public or readable through a public get or is method");
+          valid = false;
+        }
+        fields.add(field);
+      }
+    }
+    return valid ? fields : null;
+  }
+
+  private boolean hasConstructorFor(TypeElement eventType, List<VariableElement> fields) {
+    for (ExecutableElement constructor
+        : ElementFilter.constructorsIn(eventType.getEnclosedElements())) {
+      if (!constructor.getModifiers().contains(Modifier.PUBLIC)
+          || constructor.getParameters().size() != fields.size()) {
+        continue;
+      }
+      boolean matches = true;
+      for (int i = 0; i < fields.size(); i++) {
+        matches &= processingEnv.getTypeUtils().isSameType(
+            constructor.getParameters().get(i).asType(), fields.get(i).asType());
+      }
+      if (matches) {
+        return true;
+      }
+    }
+    error(eventType, eventType.getSimpleName()
+        + " must have a public constructor taking all of its fields in declaration order");
+    return false;
+  }
+
+  /**
+   * Returns the expression reading the given field from a variable named
+   * {@code event}, or null if the field can't be read from the codec's
+   * package.
+   */
+  private String getAccessor(TypeElement eventType, VariableElement field) {
+    if (field.getModifiers().contains(Modifier.PUBLIC)) {
+      return "event." + field.getSimpleName();
+    }
+    String name = field.getSimpleName().toString();
+    String capitalizedName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    for (ExecutableElement method : ElementFilter.methodsIn(
+        processingEnv.getElementUtils().getAllMembers(eventType))) {
+      String methodName = method.getSimpleName().toString();
+      if ((methodName.equals("get" + capitalizedName) || methodName.equals("is" + capitalizedName))
+          && method.getParameters().isEmpty()
+          && !method.getModifiers().contains(Modifier.STATIC)
+          && method.getModifiers().contains(Modifier.PUBLIC)
+          && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+        return "event." + methodName + "()";
+      }
+    }
+    return null;
+  }
+
+  private boolean isSupported(TypeMirror type) {
+    if (type.getKind().isPrimitive() || isScalar(type)) {
+      return true;
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    DeclaredType declaredType = (DeclaredType) type;
+    return getQualifiedName(type).equals(LIST)
+        && declaredType.getTypeArguments().size() == 1
+        && isScalar(declaredType.getTypeArguments().get(0));
+  }
+
+  /**
+   * Returns whether the given type is a nullable type that can be written
+   * directly: a primitive wrapper, a string or an enum.
+   */
+  private boolean isScalar(TypeMirror type) {
+    if (type.getKind() != TypeKind.DECLARED) {
+      return false;
+    }
+    return getQualifiedName(type).equals(STRING) || isBoxed(type)
+        || ((DeclaredType) type).asElement().getKind() == ElementKind.ENUM;
+  }
+
+  private boolean isBoxed(TypeMirror type) {
+    try {
+      processingEnv.getTypeUtils().unboxedType(type);
+      return true;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private void writeCodec(TypeElement eventType, List<VariableElement> fields) {
+    String eventName = eventType.getQualifiedName().toString();
+    List<String> encodeBody = new ArrayList<String>();
+    List<String> decodeBody = new ArrayList<String>();
+    StringBuilder arguments = new StringBuilder();
+    for (int i = 0; i < fields.size(); i++) {
+      VariableElement field = fields.get(i);
+      String variable = "f" + i;
+      encodeBody.add(String.format("%s %s = %s;",
+          field.asType(), variable, getAccessor(eventType, field)));
+      writeEncode(field.asType(), variable, "", encodeBody);
+      writeDecode(field.asType(), variable, decodeBody);
+      arguments.append(i == 0 ? "" : ", ").append(variable);
+    }
+    decodeBody.add(String.format("return new %s(%s);", eventName, arguments));
+
+    String eventPackageName = getPackage(eventType).getQualifiedName().toString();
+    String simpleName = getSimpleGeneratedClassName(eventType, eventPackageName);
+    String packageName = eventPackageName.isEmpty()
+        ? EventCodec.GENERATED_PACKAGE
+        : EventCodec.GENERATED_PACKAGE + "." + eventPackageName;
+    String qualifiedName = packageName + "." + simpleName;
+    try {
+      PrintWriter writer = new PrintWriter(processingEnv.getFiler()
+          .createSourceFile(qualifiedName, eventType).openWriter());
+      try {
+        writer.println("package " + packageName + ";");
+        writer.println();
+        writer.println("import " + EventCodec.class.getCanonicalName() + ";");
+        writer.println("import java.io.DataInput;");
+        writer.println("import java.io.DataOutput;");
+        writer.println("import java.io.IOException;");
+        writer.println();
+        writer.println("public class " + simpleName + " extends EventCodec<" + eventName + "> {");
+        writer.println("  public void encode(" + eventName
+            + " event, DataOutput out) throws IOException {");
+        for (String line : encodeBody) {
+          writer.println("    " + line);
+        }
+        writer.println("  }");
+        writer.println("  public " + eventName + " decode(DataInput in) throws IOException {");
+        for (String line : decodeBody) {
+          writer.println("    " + line);
+        }
+        writer.println("  }");
+        writer.println("}");
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      error(eventType, "Error generating " + qualifiedName + ": " + e);
+    }
+  }
+
+  /**
+   * Adds the statements writing the given variable to {@code out}.
+   */
+  private void writeEncode(TypeMirror type, String variable, String indent, List<String> body) {
+    if (type.getKind().isPrimitive()) {
+      body.add(indent + getPrimitiveWrite(type.getKind(), variable) + ";");
+    } else if (getQualifiedName(type).equals(STRING)) {
+      body.add(indent + "writeString(out, " + variable + ");");
+    } else if (isBoxed(type)) {
+      body.add(String.format("%sif (writeNotNull(out, %s)) { %s; }", indent, variable,
+          getPrimitiveWrite(processingEnv.getTypeUtils().unboxedType(type).getKind(), variable)));
+    } else if (!getQualifiedName(type).equals(LIST)) {
+      body.add(indent + "writeEnum(out, " + variable + ");");
+    } else {
+      TypeMirror elementType = ((DeclaredType) type).getTypeArguments().get(0);
+      body.add(String.format("%sif (writeNotNull(out, %s)) {", indent, variable));
+      body.add(String.format("%s  writeVarInt(out, %s.size());", indent, variable));
+      body.add(String.format("%s  for (%s e : %s) {", indent, elementType, variable));
+      writeEncode(elementType, "e", indent + "    ", body);
+      body.add(indent + "  }");
+      body.add(indent + "}");
+    }
+  }
+
+  /**
+   * Adds the statements reading the given variable from {@code in}.
+   */
+  private void writeDecode(TypeMirror type, String variable, List<String> body) {
+    if (!type.getKind().isPrimitive() && getQualifiedName(type).equals(LIST)) {
+      TypeMirror elementType = ((DeclaredType) type).getTypeArguments().get(0);
+      body.add(String.format("%s %s = null;", type, variable));
+      body.add("if (in.readBoolean()) {");
+      body.add(String.format("  int %sSize = readSize(in);", variable));
+      body.add(String.format("  %s = new java.util.ArrayList<%s>(%sSize);",
+          variable, elementType, variable));
+      body.add(String.format("  for (int i = 0; i < %sSize; i++) {", variable));
+      body.add(String.format("    %s.add(%s);",
+          variable, getDecodeExpression(elementType)));
+      body.add("  }");
+      body.add("}");
+    } else {
+      body.add(String.format("%s %s = %s;",
+          type, variable, getDecodeExpression(type)));
+    }
+  }
+
+  private String getDecodeExpression(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return getPrimitiveRead(type.getKind());
+    } else if (getQualifiedName(type).equals(STRING)) {
+      return "readString(in)";
+    } else if (isBoxed(type)) {
+      return String.format("in.readBoolean() ? %s.valueOf(%s) : null", getQualifiedName(type),
+          getPrimitiveRead(processingEnv.getTypeUtils().unboxedType(type).getKind()));
+    } else {
+      return "readEnum(in, " + getQualifiedName(type) + ".class)";
+    }
+  }
+
+  private String getPrimitiveWrite(TypeKind kind, String variable) {
+    switch (kind) {
+      case BOOLEAN: return "out.writeBoolean(" + variable + ")";
+      case BYTE: return "out.writeByte(" + variable + ")";
+      case SHORT: return "out.writeShort(" + variable + ")";
+      case CHAR: return "out.writeChar(" + variable + ")";
+      case INT: return "writeVarInt(out, " + variable + ")";
+      case LONG: return "writeVarLong(out, " + variable + ")";
+      case FLOAT: return "out.writeFloat(" + variable + ")";
+      case DOUBLE: return "out.writeDouble(" + variable + ")";
+      default: throw new IllegalArgumentException("Not a primitive: " + kind);
+    }
+  }
+
+  private String getPrimitiveRead(TypeKind kind) {
+    switch (kind) {
+      case BOOLEAN: return "in.readBoolean()";
+      case BYTE: return "in.readByte()";
+      case SHORT: return "in.readShort()";
+      case CHAR: return "in.readChar()";
+      case INT: return "readVarInt(in)";
+      case LONG: return "readVarLong(in)";
+      case FLOAT: return "in.readFloat()";
+      case DOUBLE: return "in.readDouble()";
+      default: throw new IllegalArgumentException("Not a primitive: " + kind);
+    }
+  }
+
+  /**
+   * Returns the name of the codec for the given event class: its name relative
+   * to the package, with dots replaced by underscores, followed by "Codec".
+   */
+  private String getSimpleGeneratedClassName(TypeElement eventType, String packageName) {
+    String name = eventType.getQualifiedName().toString();
+    if (!packageName.isEmpty()) {
+      name = name.substring(packageName.length() + 1);
+    }
+    return name.replace('.', '_') + "Codec";
+  }
+
+  private PackageElement getPackage(Element element) {
+    return processingEnv.getElementUtils().getPackageOf(element);
+  }
+
+  private String getQualifiedName(TypeMirror type) {
+    return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+  }
+
+  private void error(Element element, String message) {
+    processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+  }
+}
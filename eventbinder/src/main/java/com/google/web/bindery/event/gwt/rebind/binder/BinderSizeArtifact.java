@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.gwt.rebind.binder;
+
+import com.google.gwt.core.ext.linker.Artifact;
+import com.google.gwt.core.ext.linker.Transferable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records the size of a single generated
+ * {@link com.google.web.bindery.event.shared.binder.EventBinder} so that
+ * {@link EventBinderReportLinker} can summarize all of the binders in a compile.
+ * This class is used by the GWT compiler and should not be referenced directly
+ * by users.
+ */
+@Transferable
+public class BinderSizeArtifact extends Artifact<BinderSizeArtifact> {
+
+  private final String binderName;
+  private final String targetName;
+  private final int handlerCount;
+  private final int inheritedHandlerCount;
+  private final List<String> eventTypes;
+  private final int sourceSize;
+
+  BinderSizeArtifact(String binderName, String targetName, int handlerCount,
+      int inheritedHandlerCount, Collection<String> eventTypes, int sourceSize) {
+    super(EventBinderReportLinker.class);
+    this.binderName = binderName;
+    this.targetName = targetName;
+    this.handlerCount = handlerCount;
+    this.inheritedHandlerCount = inheritedHandlerCount;
+    this.eventTypes = new ArrayList<String>(eventTypes);
+    this.sourceSize = sourceSize;
+  }
+
+  /** Returns the qualified name of the binder interface. */
+  public String getBinderName() {
+    return binderName;
+  }
+
+  /** Returns the qualified name of the type whose handlers the binder binds. */
+  public String getTargetName() {
+    return targetName;
+  }
+
+  /** Returns the number of {@code @EventHandler} methods bound by the binder. */
+  public int getHandlerCount() {
+    return handlerCount;
+  }
+
+  /** Returns how many of the bound handlers are declared by superclasses of the target. */
+  public int getInheritedHandlerCount() {
+    return inheritedHandlerCount;
+  }
+
+  /** Returns the qualified names of the event types the binder binds handlers for. */
+  public List<String> getEventTypes() {
+    return eventTypes;
+  }
+
+  /** Returns the approximate size of the generated binding code, in characters. */
+  public int getSourceSize() {
+    return sourceSize;
+  }
+
+  @Override
+  public int hashCode() {
+    return binderName.hashCode();
+  }
+
+  @Override
+  protected int compareToComparableArtifact(BinderSizeArtifact o) {
+    return binderName.compareTo(o.binderName);
+  }
+
+  @Override
+  protected Class<BinderSizeArtifact> getComparableArtifactType() {
+    return BinderSizeArtifact.class;
+  }
+}
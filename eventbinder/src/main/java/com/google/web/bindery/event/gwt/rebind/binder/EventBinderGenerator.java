@@ -15,25 +15,34 @@
  */
 package com.google.web.bindery.event.gwt.rebind.binder;
 
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.ext.BadPropertyValueException;
+import com.google.gwt.core.ext.ConfigurationProperty;
 import com.google.gwt.core.ext.Generator;
 import com.google.gwt.core.ext.GeneratorContext;
 import com.google.gwt.core.ext.TreeLogger;
 import com.google.gwt.core.ext.TreeLogger.Type;
 import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
 import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.NotFoundException;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.gwt.user.rebind.ClassSourceFileComposerFactory;
 import com.google.gwt.user.rebind.SourceWriter;
+import com.google.gwt.user.rebind.StringSourceWriter;
 import com.google.web.bindery.event.shared.EventBus;
 import com.google.web.bindery.event.shared.HandlerRegistration;
 import com.google.web.bindery.event.shared.binder.EventBinder;
 import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.LazyEventBinder;
 import com.google.web.bindery.event.shared.binder.impl.AbstractEventBinder;
-import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.LazyBinding;
 
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.util.LinkedList;
+import java.io.UnsupportedEncodingException;
 import java.util.List;
 
 /**
@@ -45,6 +54,17 @@ import java.util.List;
  */
 public class EventBinderGenerator extends Generator {
 
+  /**
+   * Configuration property that, when true, stops handlers for abstract event
+   * types from being bound, since such events can never be fired. This only
+   * looks at the types each handler names; handlers for concrete events that
+   * the program never fires are still bound.
+   */
+  static final String SKIP_UNFIREABLE_HANDLERS_PROPERTY = "eventbinder.skipUnfireableHandlers";
+
+  /** Path of the private artifact listing the handlers of every event type. */
+  static final String EVENT_GRAPH_PATH = "eventbinder/event-graph.txt";
+
   @Override
   public String generate(TreeLogger logger, GeneratorContext context,
       String typeName) throws UnableToCompleteException {
@@ -52,12 +72,33 @@ public class EventBinderGenerator extends Generator {
       JClassType eventBinderType = context.getTypeOracle().getType(typeName);
       JClassType targetType = getTargetType(eventBinderType, context.getTypeOracle());
       SourceWriter writer = createSourceWriter(logger, context, eventBinderType, targetType);
+      JClassType genericEventType =
+          context.getTypeOracle().getType(GenericEvent.class.getCanonicalName());
+      writeEventGraph(logger, context, genericEventType);
       if (writer != null) { // Otherwise the class was already created
-        new EventBinderWriter(
+        EventBinderWriter eventBinderWriter = new EventBinderWriter(
             logger,
-            context.getTypeOracle().getType(GenericEvent.class.getCanonicalName()))
-                .writeDoBindEventHandlers(targetType, writer, context.getTypeOracle());
+            genericEventType,
+            getBooleanProperty(context, SKIP_UNFIREABLE_HANDLERS_PROPERTY));
+        // Write into a buffer first so that the size of the code can be reported
+        StringSourceWriter bindMethodWriter = new StringSourceWriter();
+        if (eventBinderType.isAnnotationPresent(LazyEventBinder.class)) {
+          eventBinderWriter.writeLazyDoBindEventHandlers(targetType,
+              eventBinderType.getQualifiedSourceName(), bindMethodWriter, context.getTypeOracle());
+        } else {
+          eventBinderWriter.writeDoBindEventHandlers(
+              targetType, bindMethodWriter, context.getTypeOracle());
+        }
+        String bindMethod = bindMethodWriter.toString();
+        EventBinderWriter.copyLines(bindMethod, writer);
         writer.commit(logger);
+        context.commitArtifact(logger, new BinderSizeArtifact(
+            eventBinderType.getQualifiedSourceName(),
+            targetType.getQualifiedSourceName(),
+            eventBinderWriter.getHandlerCount(),
+            eventBinderWriter.getInheritedHandlerCount(),
+            eventBinderWriter.getEventTypes(),
+            bindMethod.length()));
       }
       return getFullyQualifiedGeneratedClassName(eventBinderType);
     } catch (NotFoundException e) {
@@ -66,6 +107,49 @@ public class EventBinderGenerator extends Generator {
     }
   }
 
+  /**
+   * Writes the {@link EventGraph} for the whole program to a private artifact
+   * and logs the events that are never handled. Many event types are only
+   * handled outside of EventBinder, so these are logged at INFO with the types
+   * themselves at DEBUG rather than as warnings. Only the first binder
+   * generated in each compile does this, since the graph is the same for all of
+   * them.
+   */
+  private void writeEventGraph(
+      TreeLogger logger, GeneratorContext context, JClassType genericEventType)
+      throws UnableToCompleteException {
+    OutputStream outputStream = context.tryCreateResource(logger, EVENT_GRAPH_PATH);
+    if (outputStream == null) {
+      return;
+    }
+    EventGraph graph = new EventGraph(context.getTypeOracle(), genericEventType);
+    List<String> unhandledEvents = graph.getEventTypes(EventGraph.UNHANDLED);
+    if (!unhandledEvents.isEmpty()) {
+      TreeLogger branch = logger.branch(Type.INFO, unhandledEvents.size()
+          + " event types are not handled by any @EventHandler (see " + EVENT_GRAPH_PATH + ")");
+      if (branch.isLoggable(Type.DEBUG)) {
+        for (String eventType : unhandledEvents) {
+          branch.log(Type.DEBUG, eventType);
+        }
+      }
+    }
+    try {
+      graph.write(new PrintWriter(new OutputStreamWriter(outputStream, "UTF-8")));
+    } catch (UnsupportedEncodingException e) {
+      throw new RuntimeException(e);
+    }
+    context.commitResource(logger, outputStream).setVisibility(Visibility.Private);
+  }
+
+  private boolean getBooleanProperty(GeneratorContext context, String name) {
+    try {
+      ConfigurationProperty property = context.getPropertyOracle().getConfigurationProperty(name);
+      return Boolean.parseBoolean(property.getValues().get(0));
+    } catch (BadPropertyValueException e) {
+      return false;
+    }
+  }
+
   private JClassType getTargetType(JClassType interfaceType, TypeOracle typeOracle) {
     JClassType[] superTypes = interfaceType.getImplementedInterfaces();
     JClassType eventBinderType = typeOracle.findType(EventBinder.class.getCanonicalName());
@@ -95,10 +179,13 @@ public class EventBinderGenerator extends Generator {
     composer.addImport(EventBinder.class.getCanonicalName());
     composer.addImport(EventBus.class.getCanonicalName());
     composer.addImport(GenericEvent.class.getCanonicalName());
-    composer.addImport(GenericEventHandler.class.getCanonicalName());
+    composer.addImport(BoundEventHandler.class.getCanonicalName());
     composer.addImport(HandlerRegistration.class.getCanonicalName());
-    composer.addImport(LinkedList.class.getCanonicalName());
     composer.addImport(List.class.getCanonicalName());
+    if (eventBinderType.isAnnotationPresent(LazyEventBinder.class)) {
+      composer.addImport(GWT.class.getCanonicalName());
+      composer.addImport(LazyBinding.class.getCanonicalName());
+    }
 
     PrintWriter printWriter = context.tryCreate(logger, packageName, simpleName);
     return (printWriter != null) ? composer.createSourceWriter(context, printWriter) : null;
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.gwt.rebind.binder;
+
+import com.google.gwt.core.ext.LinkerContext;
+import com.google.gwt.core.ext.TreeLogger;
+import com.google.gwt.core.ext.UnableToCompleteException;
+import com.google.gwt.core.ext.linker.AbstractLinker;
+import com.google.gwt.core.ext.linker.ArtifactSet;
+import com.google.gwt.core.ext.linker.EmittedArtifact.Visibility;
+import com.google.gwt.core.ext.linker.LinkerOrder;
+import com.google.gwt.core.ext.linker.LinkerOrder.Order;
+import com.google.gwt.core.ext.linker.Shardable;
+import com.google.gwt.core.ext.linker.SyntheticArtifact;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Writes a report of the code generated for every
+ * {@link com.google.web.bindery.event.shared.binder.EventBinder} in the program
+ * to a private artifact, listing the binders with the most generated code
+ * first. Each binder is described by a {@link BinderSizeArtifact} committed by
+ * {@link EventBinderGenerator}. This class is used by the GWT compiler and
+ * should not be referenced directly by users.
+ */
+@LinkerOrder(Order.POST)
+@Shardable
+public class EventBinderReportLinker extends AbstractLinker {
+
+  /** Path of the private artifact containing the report. */
+  static final String REPORT_PATH = "eventbinder/binder-sizes.txt";
+
+  @Override
+  public String getDescription() {
+    return "EventBinder code size report";
+  }
+
+  @Override
+  public ArtifactSet link(TreeLogger logger, LinkerContext context, ArtifactSet artifacts,
+      boolean onePermutation) throws UnableToCompleteException {
+    if (onePermutation) {
+      return artifacts;
+    }
+    Collection<BinderSizeArtifact> binders = artifacts.find(BinderSizeArtifact.class);
+    if (binders.isEmpty()) {
+      return artifacts;
+    }
+    StringWriter report = new StringWriter();
+    writeReport(binders, new PrintWriter(report));
+    SyntheticArtifact reportArtifact = emitString(logger, report.toString(), REPORT_PATH);
+    reportArtifact.setVisibility(Visibility.Private);
+    ArtifactSet result = new ArtifactSet(artifacts);
+    result.add(reportArtifact);
+    return result;
+  }
+
+  /**
+   * Writes a summary of the given binders followed by one section per binder,
+   * largest first.
+   */
+  static void writeReport(Collection<BinderSizeArtifact> binders, PrintWriter writer) {
+    List<BinderSizeArtifact> sorted = new ArrayList<BinderSizeArtifact>(binders);
+    Collections.sort(sorted, new Comparator<BinderSizeArtifact>() {
+      @Override
+      public int compare(BinderSizeArtifact a, BinderSizeArtifact b) {
+        if (a.getSourceSize() != b.getSourceSize()) {
+          return a.getSourceSize() > b.getSourceSize() ? -1 : 1;
+        }
+        return a.getBinderName().compareTo(b.getBinderName());
+      }
+    });
+
+    int handlerCount = 0;
+    int inheritedHandlerCount = 0;
+    int sourceSize = 0;
+    for (BinderSizeArtifact binder : sorted) {
+      handlerCount += binder.getHandlerCount();
+      inheritedHandlerCount += binder.getInheritedHandlerCount();
+      sourceSize += binder.getSourceSize();
+    }
+    writer.println("Summary:");
+    writer.println("  binders: " + sorted.size());
+    writer.println("  handlers: " + handlerCount + " (" + inheritedHandlerCount + " inherited)");
+    writer.println("  generated source: " + sourceSize + " chars");
+
+    for (BinderSizeArtifact binder : sorted) {
+      writer.println();
+      writer.println(binder.getBinderName() + ":");
+      writer.println("  target: " + binder.getTargetName());
+      writer.println("  handlers: " + binder.getHandlerCount()
+          + " (" + binder.getInheritedHandlerCount() + " inherited)");
+      writer.println("  generated source: " + binder.getSourceSize() + " chars ("
+          + percentOf(binder.getSourceSize(), sourceSize) + "% of total)");
+      writer.println("  event types:");
+      for (String eventType : binder.getEventTypes()) {
+        writer.println("    " + eventType);
+      }
+    }
+    writer.flush();
+  }
+
+  private static long percentOf(int value, int total) {
+    return total == 0 ? 0 : Math.round(100.0 * value / total);
+  }
+}
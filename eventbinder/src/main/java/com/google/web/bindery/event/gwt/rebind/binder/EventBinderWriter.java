@@ -22,11 +22,14 @@ import com.google.gwt.core.ext.typeinfo.JClassType;
 import com.google.gwt.core.ext.typeinfo.JMethod;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.gwt.user.rebind.SourceWriter;
+import com.google.gwt.user.rebind.StringSourceWriter;
 import com.google.web.bindery.event.shared.binder.EventHandler;
 import com.google.web.bindery.event.shared.binder.GenericEvent;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Writes implementations of
@@ -40,87 +43,182 @@ import java.util.List;
 class EventBinderWriter {
 
   private final TreeLogger logger;
-  private final JClassType genericEventType;
+  private final HandlerMethods<JClassType> handlerMethods;
+  private final Set<String> eventTypes = new LinkedHashSet<String>();
+  private int handlerCount;
+  private int inheritedHandlerCount;
 
-  EventBinderWriter(TreeLogger logger, JClassType genericEventType) {
+  EventBinderWriter(
+      final TreeLogger logger, JClassType genericEventType, boolean skipUnfireableHandlers) {
     this.logger = logger;
-    this.genericEventType = genericEventType;
+    this.handlerMethods = new HandlerMethods<JClassType>(genericEventType, skipUnfireableHandlers) {
+      @Override
+      protected boolean isAbstract(JClassType type) {
+        return type.isAbstract();
+      }
+
+      @Override
+      protected boolean isAssignable(JClassType from, JClassType to) {
+        return from.isAssignableTo(to);
+      }
+
+      @Override
+      protected String getName(JClassType type) {
+        return type.getQualifiedSourceName();
+      }
+
+      @Override
+      protected void warn(String message) {
+        logger.log(Type.WARN, message);
+      }
+    };
   }
 
   void writeDoBindEventHandlers(JClassType target, SourceWriter writer, TypeOracle typeOracle)
       throws UnableToCompleteException {
+    resetCounts();
     writeBindMethodHeader(writer, target.getQualifiedSourceName());
     for (JMethod method : target.getInheritableMethods()) {
       EventHandler annotation = method.getAnnotation(EventHandler.class);
       if (annotation != null) {
-        writeHandlerForBindMethod(annotation, writer, method, typeOracle);
+        countHandler(target, method);
+        writeHandlerForBindMethod(
+            annotation, writer, method, typeOracle, "eventBus, registrations, ");
+      }
+    }
+    writeBindMethodFooter(writer);
+  }
+
+  /**
+   * Writes a doBindEventHandlers method for a
+   * {@link com.google.web.bindery.event.shared.binder.LazyEventBinder}, which
+   * binds stubs for each event type and binds the real handlers inside a
+   * {@code GWT.runAsync} split point with the given name.
+   */
+  void writeLazyDoBindEventHandlers(JClassType target, String splitPointName,
+      SourceWriter writer, TypeOracle typeOracle) throws UnableToCompleteException {
+    resetCounts();
+    StringSourceWriter handlerWriter = new StringSourceWriter();
+    for (JMethod method : target.getInheritableMethods()) {
+      EventHandler annotation = method.getAnnotation(EventHandler.class);
+      if (annotation != null) {
+        countHandler(target, method);
+        writeHandlerForBindMethod(annotation, handlerWriter, method, typeOracle, "");
       }
     }
+
+    writeBindMethodHeader(writer, target.getQualifiedSourceName());
+    StringBuilder stubTypes = new StringBuilder();
+    for (String eventType : eventTypes) {
+      stubTypes.append(", ").append(eventType).append(".class");
+    }
+    writer.println("new LazyBinding(eventBus, registrations%s) {", stubTypes);
+    writer.indent();
+    writer.println("protected void load() {");
+    writer.indentln("GWT.runAsync(%s.class, this);", splitPointName);
+    writer.println("}");
+    writer.println("protected void bindHandlers() {");
+    writer.indent();
+    copyLines(handlerWriter.toString(), writer);
+    writer.outdent();
+    writer.println("}");
+    writer.outdent();
+    writer.println("};");
     writeBindMethodFooter(writer);
   }
 
+  /**
+   * Prints each non-empty line of the given source to the given writer at its
+   * current indentation.
+   */
+  static void copyLines(String source, SourceWriter writer) {
+    for (String line : source.split("\n")) {
+      if (!line.isEmpty()) {
+        writer.println(line);
+      }
+    }
+  }
+
+  /** Returns the number of handler methods bound by the last binder written. */
+  int getHandlerCount() {
+    return handlerCount;
+  }
+
+  /**
+   * Returns the number of handler methods bound by the last binder written that
+   * were declared by a superclass of the target.
+   */
+  int getInheritedHandlerCount() {
+    return inheritedHandlerCount;
+  }
+
+  /** Returns the event types bound by the last binder written. */
+  Set<String> getEventTypes() {
+    return eventTypes;
+  }
+
+  private void resetCounts() {
+    eventTypes.clear();
+    handlerCount = 0;
+    inheritedHandlerCount = 0;
+  }
+
+  private void countHandler(JClassType target, JMethod method) {
+    handlerCount++;
+    if (method.getEnclosingType() != target) {
+      inheritedHandlerCount++;
+    }
+  }
+
   private void writeBindMethodHeader(SourceWriter writer, String targetName) {
-    writer.println("protected List<HandlerRegistration> doBindEventHandlers("
-        + "final %s target, EventBus eventBus) {",
+    writer.println("protected void doBindEventHandlers("
+        + "final %s target, EventBus eventBus, List<HandlerRegistration> registrations) {",
         targetName);
     writer.indent();
-    writer.println(
-        "List<HandlerRegistration> registrations = new LinkedList<HandlerRegistration>();");
   }
 
+  /**
+   * Writes a call to bind() for each event type handled by the given method, passing the given
+   * arguments before the event class, and records the event types as bound.
+   */
   private void writeHandlerForBindMethod(EventHandler annotation, SourceWriter writer,
-      JMethod method, TypeOracle typeOracle) throws UnableToCompleteException {
+      JMethod method, TypeOracle typeOracle, String bindArguments)
+      throws UnableToCompleteException {
     JClassType eventParameter = null;
     if (method.getParameterTypes().length == 1) {
       eventParameter = method.getParameterTypes()[0].isClassOrInterface();
     }
-    if (annotation.handles().length == 0 && !isAConcreteGenericEvent(eventParameter)) {
-      logger.log(Type.ERROR, "Method " + method.getName()
-          + " annotated with @EventHandler without event classes must have exactly "
-          + "one argument of a concrete type assignable to GenericEvent");
-      throw new UnableToCompleteException();
-    }
-
-    List<String> eventTypes = new ArrayList<String>();
-    if (annotation.handles().length != 0) {
-      for (Class<? extends GenericEvent> event : annotation.handles()) {
-        String eventTypeName = event.getCanonicalName();
-        JClassType eventClassType = typeOracle.findType(eventTypeName);
-        if (eventClassType == null) {
-          logger.log(Type.ERROR, "Can't resolve " + eventTypeName);
-          throw new UnableToCompleteException();
-        }
-        if (eventParameter != null && !eventClassType.isAssignableTo(eventParameter)) {
-          logger.log(Type.ERROR, "Event " + eventTypeName + " isn't assignable to "
-              + eventParameter.getName() + " in method: " + method.getName());
-          throw new UnableToCompleteException();
-        }
-        eventTypes.add(eventClassType.getQualifiedSourceName());
+    List<JClassType> handles = new ArrayList<JClassType>();
+    for (Class<? extends GenericEvent> event : annotation.handles()) {
+      JClassType eventClassType = typeOracle.findType(event.getCanonicalName());
+      if (eventClassType == null) {
+        logger.log(Type.ERROR, "Can't resolve " + event.getCanonicalName());
+        throw new UnableToCompleteException();
       }
-    } else {
-      eventTypes.add(eventParameter.getQualifiedSourceName());
+      handles.add(eventClassType);
     }
 
-    for (String eventType : eventTypes) {
-      writer.println("bind(eventBus, registrations, %s.class, new GenericEventHandler() {",
-          eventType);
-      if (eventParameter != null) {
-        writer.indentln("public void handleEvent(GenericEvent event) { target.%s((%s) event); }",
-            method.getName(), eventType);
-      } else {
-        writer.indentln("public void handleEvent(GenericEvent event) { target.%s(); }", 
-            method.getName());
+    List<String> handledTypes = new ArrayList<String>();
+    try {
+      for (JClassType eventType : handlerMethods.getEventTypes(method.getName(), annotation,
+          handles, method.getParameterTypes().length, eventParameter)) {
+        handledTypes.add(eventType.getQualifiedSourceName());
       }
-      writer.println("});");
+    } catch (IllegalArgumentException e) {
+      logger.log(Type.ERROR, e.getMessage());
+      throw new UnableToCompleteException();
     }
-  }
+    eventTypes.addAll(handledTypes);
 
-  private boolean isAConcreteGenericEvent(JClassType param) {
-    return param != null && !param.isAbstract() && param.isAssignableTo(genericEventType);
+    List<String> statements = new ArrayList<String>();
+    HandlerMethods.writeBindStatements(statements, bindArguments, method.getName(), annotation,
+        eventParameter != null, handledTypes);
+    for (String statement : statements) {
+      writer.println(statement);
+    }
   }
 
   private void writeBindMethodFooter(SourceWriter writer) {
-    writer.println("return registrations;");
     writer.outdent();
     writer.println("}");
   }
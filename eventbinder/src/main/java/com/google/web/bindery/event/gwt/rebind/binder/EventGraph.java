@@ -0,0 +1,134 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.gwt.rebind.binder;
+
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.TypeOracle;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Whole-program view of which {@link GenericEvent} types are handled by which
+ * {@link EventHandler} methods, built from every type known to the
+ * {@link TypeOracle}. Since the TypeOracle doesn't include method bodies, the
+ * graph can't tell where events are constructed or fired. Instead it reports
+ * concrete event types that no method handles, and abstract event types that
+ * are handled but can never be fired because events are dispatched by their
+ * exact class.
+ */
+class EventGraph {
+
+  /** Status of an event type that has handlers and can be fired. */
+  static final String HANDLED = "handled";
+
+  /** Status of a concrete event type that has no handlers. */
+  static final String UNHANDLED = "unhandled";
+
+  /** Status of an abstract event type that has handlers. */
+  static final String UNFIREABLE = "unfireable";
+
+  /** Map from the name of each event type to the handler methods for it. */
+  private final Map<String, List<String>> handlers = new TreeMap<String, List<String>>();
+
+  /** Map from the name of each event type to its status. */
+  private final Map<String, String> statuses = new TreeMap<String, String>();
+
+  EventGraph(TypeOracle typeOracle, JClassType genericEventType) {
+    for (JClassType eventType : genericEventType.getSubtypes()) {
+      handlers.put(eventType.getQualifiedSourceName(), new ArrayList<String>());
+    }
+    for (JClassType type : typeOracle.getTypes()) {
+      for (JMethod method : type.getMethods()) {
+        EventHandler annotation = method.getAnnotation(EventHandler.class);
+        if (annotation != null) {
+          addHandler(type, method, annotation, typeOracle);
+        }
+      }
+    }
+    for (Map.Entry<String, List<String>> entry : handlers.entrySet()) {
+      JClassType eventType = typeOracle.findType(entry.getKey());
+      String status;
+      if (eventType != null && eventType.isAbstract()) {
+        status = entry.getValue().isEmpty() ? null : UNFIREABLE;
+      } else {
+        status = entry.getValue().isEmpty() ? UNHANDLED : HANDLED;
+      }
+      if (status != null) {
+        statuses.put(entry.getKey(), status);
+      }
+    }
+  }
+
+  /**
+   * Returns the names of the event types with the given status, in
+   * alphabetical order.
+   */
+  List<String> getEventTypes(String status) {
+    List<String> eventTypes = new ArrayList<String>();
+    for (Map.Entry<String, String> entry : statuses.entrySet()) {
+      if (entry.getValue().equals(status)) {
+        eventTypes.add(entry.getKey());
+      }
+    }
+    return eventTypes;
+  }
+
+  /**
+   * Writes the graph as text, one line for each event type with its status and
+   * name, followed by an indented line for each of its handlers.
+   */
+  void write(PrintWriter writer) {
+    writer.println("# Status and handlers of every GenericEvent type, generated by EventBinder");
+    for (Map.Entry<String, String> entry : statuses.entrySet()) {
+      writer.println(entry.getValue() + " " + entry.getKey());
+      for (String handler : handlers.get(entry.getKey())) {
+        writer.println("  " + handler);
+      }
+    }
+    writer.flush();
+  }
+
+  private void addHandler(
+      JClassType type, JMethod method, EventHandler annotation, TypeOracle typeOracle) {
+    String handlerName = type.getQualifiedSourceName() + "." + method.getName();
+    if (annotation.handles().length != 0) {
+      for (Class<? extends GenericEvent> event : annotation.handles()) {
+        addHandler(event.getCanonicalName(), handlerName);
+      }
+    } else if (method.getParameterTypes().length == 1
+        && method.getParameterTypes()[0].isClassOrInterface() != null) {
+      addHandler(
+          method.getParameterTypes()[0].isClassOrInterface().getQualifiedSourceName(),
+          handlerName);
+    }
+  }
+
+  private void addHandler(String eventTypeName, String handlerName) {
+    List<String> eventHandlers = handlers.get(eventTypeName);
+    if (eventHandlers == null) {
+      eventHandlers = new ArrayList<String>();
+      handlers.put(eventTypeName, eventHandlers);
+    }
+    eventHandlers.add(handlerName);
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.gwt.rebind.binder;
+
+import com.google.web.bindery.event.shared.binder.EventHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Validates {@link EventHandler} methods and writes the statements that bind
+ * them. This is shared by {@link EventBinderGenerator}, the annotation
+ * processor and {@code ReflectiveEventBinder}, which see types through GWT's
+ * type oracle, {@code javax.lang.model} and reflection respectively, so that
+ * they accept the same methods and generate the same code. Subclasses adapt it
+ * to their type model.
+ *
+ * @param <T> the representation of a type
+ */
+public abstract class HandlerMethods<T> {
+
+  private final T genericEventType;
+  private final boolean skipUnfireableHandlers;
+
+  /**
+   * Creates a helper for a type model.
+   *
+   * @param genericEventType the type of
+   *     {@link com.google.web.bindery.event.shared.binder.GenericEvent}
+   * @param skipUnfireableHandlers whether handlers for abstract event types
+   *     should be left out, since such events can never be fired
+   */
+  protected HandlerMethods(T genericEventType, boolean skipUnfireableHandlers) {
+    this.genericEventType = genericEventType;
+    this.skipUnfireableHandlers = skipUnfireableHandlers;
+  }
+
+  /** Returns whether the given type is abstract. */
+  protected abstract boolean isAbstract(T type);
+
+  /** Returns whether a value of the first type can be assigned to the second. */
+  protected abstract boolean isAssignable(T from, T to);
+
+  /** Returns the qualified source name of the given type. */
+  protected abstract String getName(T type);
+
+  /** Reports a problem that doesn't stop the method from being bound. Does nothing by default. */
+  protected void warn(String message) {}
+
+  /**
+   * Returns the event types that a handler method should be bound to, after
+   * checking that the method is valid.
+   *
+   * @param methodName name of the method
+   * @param annotation the method's annotation
+   * @param handles the event types listed in {@link EventHandler#handles}
+   * @param parameterCount number of parameters of the method
+   * @param eventParameter type of the method's parameter if it has exactly one
+   *     parameter of class or interface type, or null
+   * @throws IllegalArgumentException if the method is invalid
+   */
+  public List<T> getEventTypes(String methodName, EventHandler annotation,
+      List<? extends T> handles, int parameterCount, T eventParameter) {
+    if (handles.isEmpty() && !isAConcreteGenericEvent(eventParameter)) {
+      throw new IllegalArgumentException("Method " + methodName
+          + " annotated with @EventHandler without event classes must have exactly "
+          + "one argument of a concrete type assignable to GenericEvent");
+    }
+    if (parameterCount > 1) {
+      throw new IllegalArgumentException("Method " + methodName
+          + " annotated with @EventHandler must have at most one argument");
+    }
+    if (annotation.throttleMillis() < 0 || annotation.debounceMillis() < 0
+        || (annotation.throttleMillis() > 0 && annotation.debounceMillis() > 0)) {
+      throw new IllegalArgumentException("Method " + methodName
+          + " annotated with @EventHandler may specify a positive throttleMillis or "
+          + "debounceMillis, but not both");
+    }
+
+    List<T> eventTypes = new ArrayList<T>();
+    if (handles.isEmpty()) {
+      eventTypes.add(eventParameter);
+      return eventTypes;
+    }
+    for (T event : handles) {
+      if (parameterCount == 1
+          && (eventParameter == null || !isAssignable(event, eventParameter))) {
+        throw new IllegalArgumentException("Event " + getName(event) + " isn't assignable to "
+            + (eventParameter != null ? getName(eventParameter) : "its parameter")
+            + " in method: " + methodName);
+      }
+      if (isAbstract(event)) {
+        // Events are dispatched by their exact class, so a handler for an
+        // abstract class is bound but can never be called
+        warn("Method " + methodName + " handles abstract event " + getName(event)
+            + ", which can never be fired" + (skipUnfireableHandlers ? "; not binding it" : ""));
+        if (skipUnfireableHandlers) {
+          continue;
+        }
+      }
+      eventTypes.add(event);
+    }
+    return eventTypes;
+  }
+
+  /**
+   * Adds the statements that bind a handler method to each of the given event
+   * types to the body. The statements call bind() with the given arguments
+   * before the event class, and the lines are indented relative to each other
+   * by two spaces.
+   *
+   * @param passEvent whether the method takes the event as its parameter
+   */
+  public static void writeBindStatements(List<String> body, String bindArguments,
+      String methodName, EventHandler annotation, boolean passEvent, List<String> eventTypes) {
+    String wrapperPrefix = "";
+    String wrapperSuffix = "";
+    if (annotation.throttleMillis() > 0) {
+      wrapperPrefix = "throttle(" + annotation.throttleMillis() + ", ";
+      wrapperSuffix = ")";
+    } else if (annotation.debounceMillis() > 0) {
+      wrapperPrefix = "debounce(" + annotation.debounceMillis() + ", ";
+      wrapperSuffix = ")";
+    }
+    String orderArgument = (annotation.order() != 0) ? ", " + annotation.order() : "";
+
+    for (String eventType : eventTypes) {
+      body.add(String.format("bind(%s%s.class, %snew BoundEventHandler(target, \"%s\"%s) {",
+          bindArguments, eventType, wrapperPrefix, methodName, orderArgument));
+      if (passEvent) {
+        body.add(String.format(
+            "  public void handleEvent(GenericEvent event) { target.%s((%s) event); }",
+            methodName, eventType));
+      } else {
+        body.add(String.format("  public void handleEvent(GenericEvent event) { target.%s(); }",
+            methodName));
+      }
+      body.add(String.format("})%s;", wrapperSuffix));
+    }
+  }
+
+  private boolean isAConcreteGenericEvent(T param) {
+    return param != null && !isAbstract(param) && isAssignable(param, genericEventType);
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.HandlerCounter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe {@link EventBus} for use on the JVM, for example when events and
+ * presenters from the {@code shared} package are used in a server. Handlers can
+ * be added, removed and fired from any number of threads at the same time.
+ * <p>
+ * Handlers for each event type are kept in copy-on-write arrays, so firing an
+ * event never takes a lock: it reads a snapshot of the handlers registered at
+ * that moment and passes it to the bus's {@link Dispatcher}. As with
+ * {@link com.google.web.bindery.event.shared.SimpleEventBus}, handlers added or
+ * removed while an event is being dispatched won't affect that dispatch. By
+ * default handlers are invoked on the firing thread, and exceptions thrown by
+ * handlers are collected and rethrown in an {@link UmbrellaException} after
+ * every handler has run.
+ * <p>
+ * Events themselves are not thread-safe, so a single event instance should not
+ * be fired from more than one thread at a time.
+ */
+public class ConcurrentEventBus extends EventBus implements HandlerCounter {
+
+  private static final Object[] NO_HANDLERS = new Object[0];
+
+  /**
+   * Map from event types, or from {@link SourceKey}s for handlers registered to
+   * a specific source, to the handlers registered for them.
+   */
+  private final ConcurrentMap<Object, HandlerList> handlerLists =
+      new ConcurrentHashMap<Object, HandlerList>();
+
+  private final Dispatcher dispatcher;
+
+  /**
+   * Creates an event bus that invokes handlers on the firing thread.
+   */
+  public ConcurrentEventBus() {
+    this(Dispatcher.synchronous());
+  }
+
+  /**
+   * Creates an event bus that delivers events to handlers using the given
+   * dispatcher.
+   */
+  public ConcurrentEventBus(Dispatcher dispatcher) {
+    if (dispatcher == null) {
+      throw new NullPointerException("Cannot create an event bus with a null dispatcher");
+    }
+    this.dispatcher = dispatcher;
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Event.Type<H> type, H handler) {
+    if (type == null) {
+      throw new NullPointerException("Cannot add a handler with a null type");
+    }
+    return doAdd(type, handler);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Event.Type<H> type, Object source, H handler) {
+    if (type == null) {
+      throw new NullPointerException("Cannot add a handler with a null type");
+    }
+    if (source == null) {
+      throw new NullPointerException("Cannot add a handler with a null source");
+    }
+    return doAdd(new SourceKey(type, source), handler);
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    doFire(event, null);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    if (source == null) {
+      throw new NullPointerException("Cannot fire from a null source");
+    }
+    doFire(event, source);
+  }
+
+  @Override
+  public int getHandlerCount(Event.Type<?> type) {
+    return getHandlers(type).length;
+  }
+
+  /**
+   * Returns a snapshot of the handlers registered for the given key, which is
+   * either an event type or a {@link SourceKey}.
+   */
+  Object[] getHandlers(Object key) {
+    HandlerList handlerList = handlerLists.get(key);
+    return (handlerList != null) ? handlerList.handlers : NO_HANDLERS;
+  }
+
+  private HandlerRegistration doAdd(final Object key, final Object handler) {
+    if (handler == null) {
+      throw new NullPointerException("Cannot add a null handler");
+    }
+    while (true) {
+      HandlerList handlerList = handlerLists.get(key);
+      if (handlerList == null) {
+        HandlerList newHandlerList = new HandlerList();
+        handlerList = handlerLists.putIfAbsent(key, newHandlerList);
+        if (handlerList == null) {
+          handlerList = newHandlerList;
+        }
+      }
+      if (handlerList.add(handler)) {
+        break;
+      }
+      // The list was emptied and is being pruned concurrently, so help remove
+      // it and try again with a new one.
+      handlerLists.remove(key, handlerList);
+    }
+    return new HandlerRegistration() {
+      @Override
+      public void removeHandler() {
+        doRemove(key, handler);
+      }
+    };
+  }
+
+  private void doRemove(Object key, Object handler) {
+    HandlerList handlerList = handlerLists.get(key);
+    if (handlerList != null && handlerList.remove(handler)) {
+      handlerLists.remove(key, handlerList);
+    }
+  }
+
+  private void doFire(Event<?> event, Object source) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+    Event.Type<?> type = event.getAssociatedType();
+    Object[] handlers = getHandlers(type);
+    if (source != null) {
+      setSourceOfEvent(event, source);
+      Object[] sourceHandlers = getHandlers(new SourceKey(type, source));
+      if (sourceHandlers.length > 0) {
+        // Handlers for the source are called before handlers for the type
+        Object[] allHandlers = new Object[sourceHandlers.length + handlers.length];
+        System.arraycopy(sourceHandlers, 0, allHandlers, 0, sourceHandlers.length);
+        System.arraycopy(handlers, 0, allHandlers, sourceHandlers.length, handlers.length);
+        handlers = allHandlers;
+      }
+    }
+    if (handlers.length > 0) {
+      dispatcher.dispatch(event, handlers);
+    }
+  }
+
+  /**
+   * Invokes a single handler on behalf of a {@link Dispatcher}.
+   */
+  @SuppressWarnings("unchecked")
+  static <H> void invoke(Event<H> event, Object handler) {
+    dispatchEvent(event, (H) handler);
+  }
+
+  /**
+   * Copy-on-write list of the handlers for a single key. Once the last handler
+   * is removed the list is marked as pruned and can no longer be added to, so
+   * that it can safely be removed from the map.
+   */
+  private static final class HandlerList {
+    volatile Object[] handlers = NO_HANDLERS;
+    private boolean pruned;
+
+    synchronized boolean add(Object handler) {
+      if (pruned) {
+        return false;
+      }
+      Object[] newHandlers = new Object[handlers.length + 1];
+      System.arraycopy(handlers, 0, newHandlers, 0, handlers.length);
+      newHandlers[handlers.length] = handler;
+      handlers = newHandlers;
+      return true;
+    }
+
+    /**
+     * Removes the first occurrence of the given handler, returning true if the
+     * list is now empty and should be pruned.
+     */
+    synchronized boolean remove(Object handler) {
+      for (int i = 0; i < handlers.length; i++) {
+        if (handlers[i].equals(handler)) {
+          Object[] newHandlers = new Object[handlers.length - 1];
+          System.arraycopy(handlers, 0, newHandlers, 0, i);
+          System.arraycopy(handlers, i + 1, newHandlers, i, newHandlers.length - i);
+          handlers = newHandlers;
+          break;
+        }
+      }
+      pruned = (handlers.length == 0);
+      return pruned;
+    }
+  }
+
+  /**
+   * Key for handlers registered to events from a specific source.
+   */
+  static final class SourceKey {
+    private final Event.Type<?> type;
+    private final Object source;
+
+    SourceKey(Event.Type<?> type, Object source) {
+      this.type = type;
+      this.source = source;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SourceKey)) {
+        return false;
+      }
+      SourceKey other = (SourceKey) o;
+      return type == other.type && source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + source.hashCode();
+    }
+  }
+}
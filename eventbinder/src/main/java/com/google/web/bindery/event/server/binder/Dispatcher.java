@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Strategy used by a {@link ConcurrentEventBus} to deliver a fired event to the
+ * handlers registered for it. The default {@link #synchronous()} dispatcher
+ * invokes every handler on the firing thread; other implementations may hand
+ * the invocations off to other threads.
+ */
+public abstract class Dispatcher {
+
+  private static final Dispatcher SYNCHRONOUS = new Dispatcher() {
+    @Override
+    public void dispatch(Event<?> event, Object[] handlers) {
+      Set<Throwable> causes = null;
+      for (Object handler : handlers) {
+        try {
+          invoke(event, handler);
+        } catch (Throwable e) {
+          if (causes == null) {
+            causes = new HashSet<Throwable>();
+          }
+          causes.add(e);
+        }
+      }
+      if (causes != null) {
+        throw new UmbrellaException(causes);
+      }
+    }
+  };
+
+  /**
+   * Returns a dispatcher that invokes each handler in turn on the firing
+   * thread. Exceptions thrown by handlers are collected and rethrown in an
+   * {@link UmbrellaException} after every handler has run.
+   */
+  public static Dispatcher synchronous() {
+    return SYNCHRONOUS;
+  }
+
+  /**
+   * Delivers the given event to each of the given handlers. The array is a
+   * snapshot owned by the event bus and must not be modified.
+   */
+  public abstract void dispatch(Event<?> event, Object[] handlers);
+
+  /**
+   * Throws an {@link IllegalArgumentException} if the given event is a
+   * {@link PooledEvent}. Implementations of {@link #dispatch} that deliver
+   * events after it returns must call this first, since the pool reuses the
+   * event as soon as it has been fired.
+   */
+  protected static void checkNotPooled(Event<?> event) {
+    if (event instanceof PooledEvent) {
+      throw new IllegalArgumentException("Cannot dispatch pooled event "
+          + event.getClass().getName() + " asynchronously, since its pool reuses it once fired");
+    }
+  }
+
+  /**
+   * Invokes a single handler with the given event. Intended for use by
+   * implementations of {@link #dispatch}.
+   */
+  protected static void invoke(Event<?> event, Object handler) {
+    ConcurrentEventBus.invoke(event, handler);
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Relays selected events between an event bus and other processes. Events of
+ * each {@link #bridge bridged} class fired on the local event bus are encoded
+ * with an {@link EventCodec} and collected into batches, which are handed to a
+ * {@link Transport} once they hold {@code maxBatchSize} events or when
+ * {@link #flush} is called. Batches received from other processes are passed
+ * to {@link #receive}, which decodes their events and fires them on the local
+ * event bus with the bridge as their source, so that they aren't sent back:
+ *
+ * <pre>
+ * EventBridge bridge = new EventBridge(eventBus, transport, 100);
+ * bridge.bridge(ContactsLoadedEvent.class); // Annotated with {@literal @}Bridgeable
+ * </pre>
+ *
+ * A batch names each class of event it contains once, so both sides only need
+ * to have bridged the same classes. Callers wanting a bound on latency should
+ * call {@link #flush} periodically, for example from a
+ * {@code ScheduledExecutorService}. Bridges are safe to use from multiple
+ * threads; batches are sent one at a time, in the order their events were
+ * fired.
+ */
+public class EventBridge {
+
+  /**
+   * Carries batches of encoded events to other processes.
+   */
+  public interface Transport {
+    /**
+     * Sends the given batch, which should be passed to {@link #receive} on the
+     * bridges of the receiving processes. The array is not reused.
+     */
+    void send(byte[] batch) throws IOException;
+  }
+
+  private final EventBus eventBus;
+  private final Transport transport;
+  private final int maxBatchSize;
+
+  /** Codecs for each bridged class, keyed by class name. */
+  private final ConcurrentMap<String, EventCodec<?>> codecs =
+      new ConcurrentHashMap<String, EventCodec<?>>();
+
+  // Guarded by this
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private final DataOutputStream out = new DataOutputStream(buffer);
+  private final Map<Class<?>, Integer> batchClassIndexes = new HashMap<Class<?>, Integer>();
+  private int batchSize;
+
+  public EventBridge(EventBus eventBus, Transport transport, int maxBatchSize) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+    }
+    this.eventBus = eventBus;
+    this.transport = transport;
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  /**
+   * Starts relaying events of the given class, which must be annotated with
+   * {@link Bridgeable}, in both directions.
+   *
+   * @return a registration that stops sending events of the class
+   */
+  public <T extends GenericEvent> HandlerRegistration bridge(Class<T> eventClass) {
+    return bridge(eventClass, EventCodec.of(eventClass));
+  }
+
+  /**
+   * Starts relaying events of the given class in both directions, encoding
+   * them with the given codec.
+   *
+   * @return a registration that stops sending events of the class
+   */
+  public <T extends GenericEvent> HandlerRegistration bridge(
+      final Class<T> eventClass, final EventCodec<T> codec) {
+    codecs.put(eventClass.getName(), codec);
+    return eventBus.addHandler(GenericEventType.getTypeOf(eventClass), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        if (event.getSource() != EventBridge.this) {
+          try {
+            send(eventClass.cast(event), codec);
+          } catch (IOException e) {
+            throw new IllegalStateException("Failed to send " + eventClass.getName(), e);
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Sends the events collected so far, if any.
+   */
+  public synchronized void flush() throws IOException {
+    if (batchSize == 0) {
+      return;
+    }
+    out.flush();
+    byte[] batch = buffer.toByteArray();
+    buffer.reset();
+    batchClassIndexes.clear();
+    batchSize = 0;
+    transport.send(batch);
+  }
+
+  /**
+   * Returns the number of events waiting to be sent.
+   */
+  public synchronized int getPendingCount() {
+    return batchSize;
+  }
+
+  /**
+   * Decodes the events in a batch sent by another bridge and fires them on
+   * the local event bus. No events are fired if the batch can't be decoded.
+   *
+   * @throws IOException if the batch is malformed or contains events of a
+   *     class that isn't bridged
+   */
+  public void receive(byte[] batch) throws IOException {
+    BatchInputStream batchIn = new BatchInputStream(batch);
+    DataInputStream in = new DataInputStream(batchIn);
+    List<EventCodec<?>> batchCodecs = new ArrayList<EventCodec<?>>();
+    List<GenericEvent> events = new ArrayList<GenericEvent>();
+    while (batchIn.getPosition() < batch.length) {
+      int classIndex = EventCodec.readSize(in);
+      if (classIndex == batchCodecs.size()) {
+        String className = EventCodec.readString(in);
+        EventCodec<?> codec = codecs.get(className);
+        if (codec == null) {
+          throw new IOException("Received event of class " + className + ", which isn't bridged");
+        }
+        batchCodecs.add(codec);
+      } else if (classIndex > batchCodecs.size()) {
+        throw new IOException("Invalid class index: " + classIndex);
+      }
+      events.add(batchCodecs.get(classIndex).decode(in));
+    }
+    for (GenericEvent event : events) {
+      eventBus.fireEventFromSource(event, this);
+    }
+  }
+
+  private synchronized <T extends GenericEvent> void send(T event, EventCodec<T> codec)
+      throws IOException {
+    Integer classIndex = batchClassIndexes.get(event.getClass());
+    if (classIndex == null) {
+      EventCodec.writeVarInt(out, batchClassIndexes.size());
+      EventCodec.writeString(out, event.getClass().getName());
+      batchClassIndexes.put(event.getClass(), batchClassIndexes.size());
+    } else {
+      EventCodec.writeVarInt(out, classIndex);
+    }
+    codec.encode(event, out);
+    if (++batchSize >= maxBatchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Stream over a batch that reports how much of it has been read, so that
+   * events are decoded until the end of the batch's bytes.
+   */
+  private static class BatchInputStream extends ByteArrayInputStream {
+    BatchInputStream(byte[] batch) {
+      super(batch);
+    }
+
+    int getPosition() {
+      return pos;
+    }
+  }
+}
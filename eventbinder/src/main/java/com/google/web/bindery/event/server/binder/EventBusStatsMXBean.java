@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link StatsEventBus}, through which its statistics
+ * are exported over JMX. Maps are keyed by event class name or by binder name,
+ * and appear as tables in JMX clients.
+ */
+public interface EventBusStatsMXBean {
+
+  /**
+   * Returns the number of handlers currently added through the event bus for
+   * each event type. A count that keeps growing usually means that handlers
+   * are being bound without ever being unbound.
+   */
+  Map<String, Long> getHandlerCounts();
+
+  /**
+   * Returns the total number of handlers currently added through the event bus.
+   */
+  long getTotalHandlerCount();
+
+  /**
+   * Returns the number of events of each type fired since the bus was created.
+   */
+  Map<String, Long> getFireCounts();
+
+  /**
+   * Returns the number of events of each type fired per second during the last
+   * complete rate interval. This is empty until the first interval has passed.
+   */
+  Map<String, Double> getFireRates();
+
+  /**
+   * Returns the average number of handlers that each event of each type was
+   * delivered to. Only handlers for {@link
+   * com.google.web.bindery.event.shared.binder.GenericEvent}s are counted.
+   */
+  Map<String, Double> getDispatchesPerFire();
+
+  /**
+   * Returns the number of times each binder has bound a target on the bus
+   * since it was created.
+   */
+  Map<String, Long> getBindCounts();
+
+  /**
+   * Returns the number of times each binder's handlers have been unbound since
+   * the bus was created.
+   */
+  Map<String, Long> getUnbindCounts();
+
+  /**
+   * Returns the number of binds per second for each binder during the last
+   * complete rate interval.
+   */
+  Map<String, Double> getBindRates();
+
+  /**
+   * Returns the number of unbinds per second for each binder during the last
+   * complete rate interval.
+   */
+  Map<String, Double> getUnbindRates();
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Writes events of a single class to a binary stream and reads them back.
+ * Codecs for classes annotated with {@link Bridgeable} are generated by the
+ * EventBinder annotation processor and can be looked up with {@link #of};
+ * codecs for other classes can be written by hand by extending this class.
+ * Generated codecs are placed in a package under {@value #GENERATED_PACKAGE}
+ * named after the event's package, so that they stay out of the source paths
+ * of GWT modules.
+ * <p>
+ * The static helpers below are used by generated codecs. Integers are written
+ * as zig-zag variable-length quantities, so small values of either sign take a
+ * single byte, strings are written as their length followed by their UTF-8
+ * bytes, and enums are written as the names of their constants.
+ *
+ * @param <T> class of event handled by this codec
+ */
+public abstract class EventCodec<T extends GenericEvent> {
+
+  /** Package under which generated codecs are placed. */
+  public static final String GENERATED_PACKAGE = "com.google.web.bindery.event.server.binder.codecs";
+
+  private static final ConcurrentMap<Class<?>, EventCodec<?>> codecs =
+      new ConcurrentHashMap<Class<?>, EventCodec<?>>();
+
+  /**
+   * Returns the generated codec for the given event class, which must be
+   * annotated with {@link Bridgeable}.
+   *
+   * @throws IllegalArgumentException if no codec was generated for the class
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends GenericEvent> EventCodec<T> of(Class<T> eventClass) {
+    EventCodec<?> codec = codecs.get(eventClass);
+    if (codec == null) {
+      codec = createGeneratedCodec(eventClass);
+      EventCodec<?> existingCodec = codecs.putIfAbsent(eventClass, codec);
+      if (existingCodec != null) {
+        codec = existingCodec;
+      }
+    }
+    return (EventCodec<T>) codec;
+  }
+
+  private static EventCodec<?> createGeneratedCodec(Class<?> eventClass) {
+    String packageName = eventClass.getPackage() == null ? "" : eventClass.getPackage().getName();
+    String name = eventClass.getName().substring(packageName.length()).replace('$', '_');
+    String codecName = GENERATED_PACKAGE + "." + packageName + name + "Codec";
+    try {
+      return (EventCodec<?>) Class.forName(codecName, true, eventClass.getClassLoader())
+          .newInstance();
+    } catch (ClassNotFoundException e) {
+      throw new IllegalArgumentException("No codec was generated for " + eventClass.getName()
+          + "; it must be annotated with @Bridgeable and compiled with javac", e);
+    } catch (InstantiationException e) {
+      throw new IllegalArgumentException("Can't instantiate codec for " + eventClass.getName(), e);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Can't instantiate codec for " + eventClass.getName(), e);
+    }
+  }
+
+  /**
+   * Writes the given event to the given output.
+   */
+  public abstract void encode(T event, DataOutput out) throws IOException;
+
+  /**
+   * Reads an event written by {@link #encode} from the given input.
+   */
+  public abstract T decode(DataInput in) throws IOException;
+
+  /**
+   * Writes whether the given value is non-null, returning true if it is.
+   */
+  protected static boolean writeNotNull(DataOutput out, Object value) throws IOException {
+    out.writeBoolean(value != null);
+    return value != null;
+  }
+
+  protected static void writeVarInt(DataOutput out, int value) throws IOException {
+    writeUnsignedVarLong(out, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+  }
+
+  protected static int readVarInt(DataInput in) throws IOException {
+    int value = (int) readUnsignedVarLong(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  protected static void writeVarLong(DataOutput out, long value) throws IOException {
+    writeUnsignedVarLong(out, (value << 1) ^ (value >> 63));
+  }
+
+  protected static long readVarLong(DataInput in) throws IOException {
+    long value = readUnsignedVarLong(in);
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Writes the given string, which may be null.
+   */
+  protected static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      writeUnsignedVarLong(out, 0);
+      return;
+    }
+    byte[] bytes = value.getBytes("UTF-8");
+    writeUnsignedVarLong(out, bytes.length + 1L);
+    out.write(bytes);
+  }
+
+  protected static String readString(DataInput in) throws IOException {
+    long length = readUnsignedVarLong(in);
+    if (length == 0) {
+      return null;
+    }
+    byte[] bytes = new byte[checkLength(length - 1)];
+    in.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  /**
+   * Writes the name of the given enum constant, which may be null. Names are
+   * written rather than ordinals so that constants can be added or reordered
+   * without breaking processes running an older version of the enum.
+   */
+  protected static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+    writeString(out, (value != null) ? value.name() : null);
+  }
+
+  protected static <E extends Enum<E>> E readEnum(DataInput in, Class<E> enumClass)
+      throws IOException {
+    String name = readString(in);
+    if (name == null) {
+      return null;
+    }
+    try {
+      return Enum.valueOf(enumClass, name);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown constant " + name + " of " + enumClass.getName(), e);
+    }
+  }
+
+  /**
+   * Reads the size of a collection written with {@link #writeVarInt}, checking
+   * that it is valid.
+   */
+  protected static int readSize(DataInput in) throws IOException {
+    return checkLength(readVarInt(in));
+  }
+
+  private static int checkLength(long length) throws IOException {
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      throw new IOException("Invalid length: " + length);
+    }
+    return (int) length;
+  }
+
+  private static void writeUnsignedVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) (value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readUnsignedVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed variable-length integer");
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Append-only log of events, written to a memory-mapped file of fixed size.
+ * Each event is stored with the time it was appended, in nanoseconds since the
+ * journal was created, and encoded with the {@link EventCodec} registered for
+ * its class. Journals are usually filled by a {@link JournalingEventBus} and
+ * read back by an {@link EventReplay}.
+ * <p>
+ * Appending never blocks on I/O and never fails: once the file is full,
+ * further events are dropped and counted. The file starts with a header
+ * holding the wall-clock time at which the journal was created, and each
+ * record names its event class the first time the class appears.
+ */
+public class EventJournal {
+
+  static final int MAGIC = 0x45564a31; // "EVJ1"
+  static final int HEADER_SIZE = 12;
+
+  private final MappedByteBuffer buffer;
+  private final long startNanos = System.nanoTime();
+  private final ConcurrentMap<Class<?>, EventCodec<?>> codecs =
+      new ConcurrentHashMap<Class<?>, EventCodec<?>>();
+
+  // Guarded by this
+  private final Map<Class<?>, Integer> classIndexes = new HashMap<Class<?>, Integer>();
+  private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+  private final DataOutputStream recordOut = new DataOutputStream(record);
+  private int eventCount;
+  private int droppedCount;
+  private boolean full;
+
+  private EventJournal(MappedByteBuffer buffer) {
+    this.buffer = buffer;
+  }
+
+  /**
+   * Creates a journal that writes to the given file, replacing its contents.
+   * The file is extended to the given capacity up front.
+   */
+  public static EventJournal create(File file, int capacity) throws IOException {
+    if (capacity <= HEADER_SIZE) {
+      throw new IllegalArgumentException("capacity must be larger than " + HEADER_SIZE);
+    }
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+    try {
+      randomAccessFile.setLength(0);
+      randomAccessFile.setLength(capacity);
+      MappedByteBuffer buffer = randomAccessFile.getChannel().map(MapMode.READ_WRITE, 0, capacity);
+      buffer.putInt(MAGIC);
+      buffer.putLong(System.currentTimeMillis());
+      return new EventJournal(buffer);
+    } finally {
+      randomAccessFile.close(); // The mapping remains valid
+    }
+  }
+
+  /**
+   * Starts recording events of the given class, which must be annotated with
+   * {@link Bridgeable}.
+   */
+  public <T extends GenericEvent> void register(Class<T> eventClass) {
+    register(eventClass, EventCodec.of(eventClass));
+  }
+
+  /**
+   * Starts recording events of the given class, encoding them with the given
+   * codec.
+   */
+  public <T extends GenericEvent> void register(Class<T> eventClass, EventCodec<T> codec) {
+    codecs.put(eventClass, codec);
+  }
+
+  /**
+   * Returns whether events of the given class are recorded.
+   */
+  public boolean isRegistered(Class<?> eventClass) {
+    return codecs.containsKey(eventClass);
+  }
+
+  /**
+   * Appends the given event if its class is registered.
+   *
+   * @return whether the event was recorded, which is false if its class isn't
+   *     registered or the journal is full
+   */
+  public boolean append(GenericEvent event) {
+    @SuppressWarnings("unchecked")
+    EventCodec<GenericEvent> codec = (EventCodec<GenericEvent>) codecs.get(event.getClass());
+    if (codec == null) {
+      return false;
+    }
+    long nanos = System.nanoTime() - startNanos;
+    synchronized (this) {
+      if (full) {
+        droppedCount++;
+        return false;
+      }
+      record.reset();
+      Integer classIndex = classIndexes.get(event.getClass());
+      try {
+        EventCodec.writeVarLong(recordOut, nanos);
+        if (classIndex == null) {
+          EventCodec.writeVarInt(recordOut, classIndexes.size());
+          EventCodec.writeString(recordOut, event.getClass().getName());
+        } else {
+          EventCodec.writeVarInt(recordOut, classIndex);
+        }
+        codec.encode(event, recordOut);
+        recordOut.flush();
+      } catch (IOException e) {
+        throw new IllegalStateException("Can't encode " + event.getClass().getName(), e);
+      }
+      if (buffer.remaining() < 4 + record.size()) {
+        full = true;
+        droppedCount++;
+        return false;
+      }
+      if (classIndex == null) {
+        classIndexes.put(event.getClass(), classIndexes.size());
+      }
+      buffer.putInt(record.size());
+      buffer.put(record.toByteArray());
+      eventCount++;
+      return true;
+    }
+  }
+
+  /**
+   * Returns the number of events recorded so far.
+   */
+  public synchronized int getEventCount() {
+    return eventCount;
+  }
+
+  /**
+   * Returns the number of events of registered classes that were dropped
+   * because the journal was full.
+   */
+  public synchronized int getDroppedCount() {
+    return droppedCount;
+  }
+
+  /**
+   * Writes the events recorded so far to the file. The operating system
+   * writes them eventually even if this is never called.
+   */
+  public synchronized void flush() {
+    buffer.force();
+  }
+}
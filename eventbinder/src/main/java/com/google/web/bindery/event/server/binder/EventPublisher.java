@@ -0,0 +1,280 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.GenericEvents;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reactive Streams {@link Publisher} of the {@link GenericEvent}s of a single
+ * type fired on an {@link EventBus}. This lets consumers on the JVM process
+ * events as a stream, at their own pace, instead of having them pushed to a
+ * handler as soon as they are fired:
+ *
+ * <pre>
+ * Publisher&lt;ContactsLoadedEvent&gt; publisher = new EventPublisher&lt;ContactsLoadedEvent&gt;(
+ *     eventBus, ContactsLoadedEvent.class, 256, EventPublisher.Overflow.DROP_OLDEST);
+ * </pre>
+ *
+ * On Java 9 and later, {@code org.reactivestreams.FlowAdapters.toFlowPublisher}
+ * turns this into a {@code java.util.concurrent.Flow.Publisher}.
+ * <p>
+ * Each subscriber gets its own handler on the event bus, which is added when it
+ * subscribes and removed when it cancels its subscription. Events are only
+ * delivered to a subscriber as it requests them. Events fired while a
+ * subscriber has no outstanding demand are buffered, up to the configured
+ * buffer size per subscriber, after which the {@link Overflow} policy decides
+ * what happens. Like any other handler, a subscription's handler lets
+ * {@link com.google.web.bindery.event.shared.binder.GenericEvents#fireIfHandled}
+ * fire its events on buses that count their handlers.
+ * <p>
+ * Events are delivered on whichever thread fired them or requested more of
+ * them, but never to the same subscriber from two threads at once. The event
+ * bus must be safe to add handlers to from the thread that subscribes.
+ *
+ * @param <T> type of event published
+ */
+public class EventPublisher<T extends GenericEvent> implements Publisher<T> {
+
+  /**
+   * What to do with an event fired while a subscriber's buffer is full.
+   */
+  public enum Overflow {
+    /** Discards the event that was just fired. */
+    DROP_LATEST,
+    /** Discards the oldest buffered event to make room for the new one. */
+    DROP_OLDEST,
+    /**
+     * Cancels the subscription and signals an {@link IllegalStateException} to
+     * the subscriber, discarding any buffered events.
+     */
+    ERROR
+  }
+
+  private final EventBus eventBus;
+  private final Class<T> eventClass;
+  private final int bufferSize;
+  private final Overflow overflow;
+
+  /**
+   * Creates a publisher for events of the given class fired on the given event
+   * bus.
+   *
+   * @param bufferSize maximum number of events buffered for each subscriber
+   *     while it has no outstanding demand
+   * @param overflow what to do when a subscriber's buffer is full
+   * @throws IllegalArgumentException if the event class is a
+   *     {@link PooledEvent}, since buffered events would be reused by their
+   *     pool before being delivered
+   */
+  public EventPublisher(
+      EventBus eventBus, Class<T> eventClass, int bufferSize, Overflow overflow) {
+    if (eventBus == null || eventClass == null || overflow == null) {
+      throw new NullPointerException("Cannot create a publisher with null arguments");
+    }
+    if (bufferSize < 0) {
+      throw new IllegalArgumentException("bufferSize must not be negative, was " + bufferSize);
+    }
+    if (PooledEvent.class.isAssignableFrom(eventClass)) {
+      throw new IllegalArgumentException("Cannot publish pooled events of " + eventClass.getName());
+    }
+    this.eventBus = eventBus;
+    this.eventClass = eventClass;
+    this.bufferSize = bufferSize;
+    this.overflow = overflow;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("Cannot subscribe a null subscriber");
+    }
+    EventSubscription subscription = new EventSubscription(subscriber);
+    // onSubscribe must be signalled before onNext or onError, so events are only
+    // received once it has returned
+    subscriber.onSubscribe(subscription);
+    subscription.addHandler();
+  }
+
+  /**
+   * Subscription for a single subscriber, which is also the handler that
+   * receives its events from the event bus. Calls to the subscriber are made by
+   * whichever thread wins the work-in-progress counter, so they never overlap
+   * and a subscriber requesting more events from onNext doesn't recurse.
+   */
+  private final class EventSubscription implements Subscription, GenericEventHandler {
+    private final Subscriber<? super T> subscriber;
+    private final AtomicInteger workInProgress = new AtomicInteger();
+    private volatile HandlerRegistration registration;
+
+    // Guarded by this
+    private final ArrayDeque<T> buffer = new ArrayDeque<T>();
+    private long demand;
+    private boolean cancelled;
+    private Throwable error;
+
+    EventSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void handleEvent(GenericEvent event) {
+      if (GenericEvents.isShared(event)) {
+        throw new IllegalArgumentException("Cannot publish the shared instance of "
+            + eventClass.getName() + " because it is reused once fired");
+      }
+      boolean overflowed = false;
+      synchronized (this) {
+        if (cancelled) {
+          return;
+        }
+        // Outstanding demand is about to be met from the buffer, so it doesn't
+        // count towards the buffer size
+        if (buffer.size() - demand < bufferSize) {
+          buffer.add((T) event);
+        } else if (overflow == Overflow.DROP_OLDEST) {
+          if (!buffer.isEmpty()) {
+            buffer.poll();
+            buffer.add((T) event);
+          }
+        } else if (overflow == Overflow.ERROR) {
+          error = new IllegalStateException("More than " + bufferSize + " "
+              + eventClass.getName() + "s were fired without being requested");
+          buffer.clear();
+          overflowed = true;
+        }
+      }
+      if (overflowed) {
+        removeRegistration();
+      }
+      drain();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        synchronized (this) {
+          if (!cancelled && error == null) {
+            error = new IllegalArgumentException(
+                "Subscribers must request a positive number of events, requested " + n);
+            buffer.clear();
+          }
+        }
+        removeRegistration();
+      } else {
+        synchronized (this) {
+          demand = (demand + n < 0) ? Long.MAX_VALUE : demand + n;
+        }
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      synchronized (this) {
+        cancelled = true;
+        buffer.clear();
+      }
+      removeRegistration();
+    }
+
+    /**
+     * Starts receiving events from the event bus, unless the subscription was
+     * cancelled or failed from onSubscribe.
+     */
+    void addHandler() {
+      synchronized (this) {
+        if (cancelled || error != null) {
+          return;
+        }
+      }
+      registration = eventBus.addHandler(GenericEventType.getTypeOf(eventClass), this);
+      // Cancelling concurrently may have missed the registration
+      synchronized (this) {
+        if (!cancelled && error == null) {
+          return;
+        }
+      }
+      removeRegistration();
+    }
+
+    private void removeRegistration() {
+      HandlerRegistration currentRegistration = registration;
+      if (currentRegistration != null) {
+        registration = null;
+        currentRegistration.removeHandler();
+      }
+    }
+
+    private void drain() {
+      if (workInProgress.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      while (true) {
+        while (true) {
+          T event;
+          Throwable errorToSignal = null;
+          synchronized (this) {
+            if (cancelled) {
+              break;
+            }
+            if (error != null) {
+              errorToSignal = error;
+              cancelled = true;
+              event = null;
+            } else if (demand > 0 && !buffer.isEmpty()) {
+              event = buffer.poll();
+              if (demand != Long.MAX_VALUE) {
+                demand--;
+              }
+            } else {
+              break;
+            }
+          }
+          if (errorToSignal != null) {
+            subscriber.onError(errorToSignal);
+            break;
+          }
+          try {
+            subscriber.onNext(event);
+          } catch (RuntimeException e) {
+            // Subscribers aren't allowed to throw, so treat it as a cancellation
+            cancel();
+            throw e;
+          }
+        }
+        missed = workInProgress.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+  }
+}
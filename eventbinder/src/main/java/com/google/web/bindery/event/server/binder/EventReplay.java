@@ -0,0 +1,216 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires the events recorded in an {@link EventJournal} on an event bus and
+ * measures how long each one takes to dispatch. This is useful for reproducing
+ * performance problems seen in production: bind the affected objects to an
+ * event bus with their {@link EventBinder}s, then replay a journal captured
+ * from a real session through it:
+ *
+ * <pre>
+ * EventReplay replay = new EventReplay(new File("session.journal"));
+ * replay.register(ContactsLoadedEvent.class);
+ * eventBinder.bindEventHandlers(presenter, eventBus);
+ * System.out.println(replay.run(eventBus, EventReplay.Timing.MAXIMUM));
+ * </pre>
+ *
+ * The whole journal is decoded before the first event is fired, so decoding
+ * isn't included in the measurements.
+ */
+public class EventReplay {
+
+  /**
+   * How quickly events are fired during a replay.
+   */
+  public enum Timing {
+    /** Events are fired with the same spacing as when they were recorded. */
+    ORIGINAL,
+    /** Each event is fired as soon as the previous one has been dispatched. */
+    MAXIMUM
+  }
+
+  private final File file;
+  private final Map<String, EventCodec<?>> codecs = new HashMap<String, EventCodec<?>>();
+
+  public EventReplay(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Decodes events of the given class, which must be annotated with
+   * {@link Bridgeable}. Every class in the journal must be registered.
+   */
+  public <T extends GenericEvent> void register(Class<T> eventClass) {
+    register(eventClass, EventCodec.of(eventClass));
+  }
+
+  /**
+   * Decodes events of the given class with the given codec.
+   */
+  public <T extends GenericEvent> void register(Class<T> eventClass, EventCodec<T> codec) {
+    codecs.put(eventClass.getName(), codec);
+  }
+
+  /**
+   * Fires every event in the journal on the given event bus, in the order they
+   * were recorded, and reports how long they took to dispatch.
+   *
+   * @throws IOException if the journal can't be read or contains events of an
+   *     unregistered class
+   */
+  public Report run(EventBus eventBus, Timing timing) throws IOException, InterruptedException {
+    List<GenericEvent> events = new ArrayList<GenericEvent>();
+    List<Long> times = new ArrayList<Long>();
+    read(events, times);
+
+    long[] latencies = new long[events.size()];
+    long start = System.nanoTime();
+    for (int i = 0; i < events.size(); i++) {
+      if (timing == Timing.ORIGINAL) {
+        long delay = start + times.get(i) - times.get(0) - System.nanoTime();
+        if (delay > 0) {
+          TimeUnit.NANOSECONDS.sleep(delay);
+        }
+      }
+      long fireStart = System.nanoTime();
+      eventBus.fireEvent(events.get(i));
+      latencies[i] = System.nanoTime() - fireStart;
+    }
+    return new Report(System.nanoTime() - start, latencies);
+  }
+
+  private void read(List<GenericEvent> events, List<Long> times) throws IOException {
+    MappedByteBuffer buffer;
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      buffer = randomAccessFile.getChannel().map(MapMode.READ_ONLY, 0, randomAccessFile.length());
+    } finally {
+      randomAccessFile.close();
+    }
+    if (buffer.remaining() < EventJournal.HEADER_SIZE || buffer.getInt() != EventJournal.MAGIC) {
+      throw new IOException(file + " is not an event journal");
+    }
+    buffer.getLong(); // Creation time
+
+    List<EventCodec<?>> journalCodecs = new ArrayList<EventCodec<?>>();
+    while (buffer.remaining() >= 4) {
+      int length = buffer.getInt();
+      if (length == 0) {
+        break; // End of the recorded events
+      }
+      if (length < 0 || length > buffer.remaining()) {
+        throw new IOException("Invalid record length " + length + " in " + file);
+      }
+      byte[] record = new byte[length];
+      buffer.get(record);
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+      times.add(EventCodec.readVarLong(in));
+      int classIndex = EventCodec.readSize(in);
+      if (classIndex == journalCodecs.size()) {
+        String className = EventCodec.readString(in);
+        EventCodec<?> codec = codecs.get(className);
+        if (codec == null) {
+          throw new IOException("Journal contains events of class " + className
+              + ", which isn't registered");
+        }
+        journalCodecs.add(codec);
+      } else if (classIndex > journalCodecs.size()) {
+        throw new IOException("Invalid class index " + classIndex + " in " + file);
+      }
+      events.add(journalCodecs.get(classIndex).decode(in));
+    }
+  }
+
+  /**
+   * Dispatch throughput and latency measured by a replay.
+   */
+  public static class Report {
+    private final long elapsedNanos;
+    private final long[] sortedLatencies;
+
+    Report(long elapsedNanos, long[] latencies) {
+      this.elapsedNanos = elapsedNanos;
+      this.sortedLatencies = latencies.clone();
+      Arrays.sort(sortedLatencies);
+    }
+
+    /**
+     * Returns the number of events that were fired.
+     */
+    public int getEventCount() {
+      return sortedLatencies.length;
+    }
+
+    /**
+     * Returns the time from firing the first event to finishing dispatching
+     * the last one.
+     */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Returns the number of events dispatched per second over the replay.
+     */
+    public double getEventsPerSecond() {
+      return elapsedNanos == 0 ? 0 : sortedLatencies.length * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns the time within which the given percentage of events were
+     * dispatched, or 0 if no events were fired.
+     */
+    public long getLatencyNanos(double percentile) {
+      if (percentile < 0 || percentile > 100) {
+        throw new IllegalArgumentException("Invalid percentile: " + percentile);
+      }
+      if (sortedLatencies.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+      return sortedLatencies[Math.max(index, 0)];
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d events in %.1f ms (%.0f events/s); dispatch latency "
+          + "p50 %.1f us, p99 %.1f us, max %.1f us",
+          getEventCount(), elapsedNanos / 1e6, getEventsPerSecond(),
+          getLatencyNanos(50) / 1e3, getLatencyNanos(99) / 1e3, getLatencyNanos(100) / 1e3);
+    }
+  }
+}
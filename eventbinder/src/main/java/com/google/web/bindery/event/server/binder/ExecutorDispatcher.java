@@ -0,0 +1,268 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Dispatcher} that runs each handler invocation as a separate task on an
+ * {@link Executor}, so that handlers which block, for example on I/O, don't
+ * stall the thread that fired the event. On Java 21 and later this is best
+ * used with {@code Executors.newVirtualThreadPerTaskExecutor()}, which gives
+ * every invocation its own virtual thread:
+ *
+ * <pre>
+ * EventBus eventBus = new ConcurrentEventBus(new ExecutorDispatcher(
+ *     Executors.newVirtualThreadPerTaskExecutor(), 10000, true));
+ * </pre>
+ *
+ * The number of invocations that have been dispatched but not yet completed can
+ * be limited. Once the limit is reached, firing an event blocks until earlier
+ * invocations finish, which pushes back on producers instead of letting work
+ * pile up without bound. Events fired by the handlers themselves never block,
+ * since the invocations they would wait for may be queued behind them; they
+ * are dispatched over the limit instead.
+ * <p>
+ * Optionally, invocations can be serialized per target, so that the handlers
+ * bound to one object by an {@link
+ * com.google.web.bindery.event.shared.binder.EventBinder} are never called
+ * concurrently and see events in the order they were fired. Handlers that
+ * weren't bound by an EventBinder are serialized individually. Invocations for
+ * different targets still run in parallel. Note that throttled and debounced
+ * handlers deliver delayed events from their own timer thread, outside of this
+ * dispatcher.
+ * <p>
+ * Since handlers run asynchronously, exceptions they throw are passed to the
+ * uncaught exception handler of the thread running them. Handlers may receive
+ * the same event at the same time, so events must be immutable, as recommended
+ * by {@link com.google.web.bindery.event.shared.binder.GenericEvent}.
+ */
+public class ExecutorDispatcher extends Dispatcher {
+
+  private final Executor executor;
+  private final int maxInFlight;
+  private final Semaphore permits;
+  private final boolean serializeTargets;
+
+  /** Number of invocations dispatched from handlers without a permit. */
+  private final AtomicInteger overLimit = new AtomicInteger();
+
+  /** Whether the current thread is running an invocation for this dispatcher. */
+  private final ThreadLocal<Boolean> dispatching = new ThreadLocal<Boolean>();
+
+  /** Queues of pending invocations for each target with a task running. */
+  private final Map<Object, TargetQueue> targetQueues = new IdentityHashMap<Object, TargetQueue>();
+
+  /**
+   * Creates a dispatcher that runs every handler invocation on the given
+   * executor, without limiting the number of invocations in flight.
+   */
+  public ExecutorDispatcher(Executor executor) {
+    this(executor, Integer.MAX_VALUE, false);
+  }
+
+  /**
+   * Creates a dispatcher that runs handler invocations on the given executor.
+   *
+   * @param executor executor used to run invocations
+   * @param maxInFlight maximum number of invocations that may be dispatched
+   *     and not yet completed before firing blocks
+   * @param serializeTargets whether invocations for the same target should run
+   *     one at a time, in the order their events were fired
+   */
+  public ExecutorDispatcher(Executor executor, int maxInFlight, boolean serializeTargets) {
+    if (executor == null) {
+      throw new NullPointerException("Cannot dispatch to a null executor");
+    }
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("maxInFlight must be positive, was " + maxInFlight);
+    }
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.permits = new Semaphore(maxInFlight);
+    this.serializeTargets = serializeTargets;
+  }
+
+  /**
+   * Hands an invocation of each handler to the executor, blocking first if the
+   * maximum number of invocations are already in flight. If the firing thread
+   * is interrupted while blocked, the remaining handlers are not dispatched and
+   * an {@link IllegalStateException} is thrown with the interrupt status set.
+   * When called from a handler run by this dispatcher, it never blocks, and
+   * dispatches the invocation over the limit if no permit is free.
+   *
+   * @throws IllegalArgumentException if the event is a
+   *     {@link com.google.web.bindery.event.shared.binder.PooledEvent}
+   */
+  @Override
+  public void dispatch(Event<?> event, Object[] handlers) {
+    checkNotPooled(event);
+    boolean reentrant = dispatching.get() != null;
+    for (Object handler : handlers) {
+      boolean holdsPermit = true;
+      if (reentrant) {
+        // Waiting here could deadlock, since the invocations holding the
+        // permits may be queued behind the one running on this thread
+        if (!permits.tryAcquire()) {
+          holdsPermit = false;
+          overLimit.incrementAndGet();
+        }
+      } else {
+        try {
+          permits.acquire();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting to dispatch " + event, e);
+        }
+      }
+      Invocation invocation = new Invocation(event, handler, holdsPermit);
+      if (serializeTargets) {
+        enqueue(BoundEventHandler.getTargetOf(handler), invocation);
+      } else {
+        execute(invocation);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of invocations that have been dispatched but have not
+   * yet completed. This can exceed the maximum when handlers fire events.
+   */
+  public int getInFlightCount() {
+    return maxInFlight - permits.availablePermits() + overLimit.get();
+  }
+
+  private void enqueue(Object target, Invocation invocation) {
+    TargetQueue queue;
+    boolean start = false;
+    synchronized (targetQueues) {
+      queue = targetQueues.get(target);
+      if (queue == null) {
+        queue = new TargetQueue(target);
+        targetQueues.put(target, queue);
+        start = true;
+      }
+      queue.invocations.add(invocation);
+    }
+    if (start) {
+      try {
+        executor.execute(queue);
+      } catch (RejectedExecutionException e) {
+        // Drop everything queued for the target so that a later event can
+        // start a new task for it
+        List<Invocation> dropped;
+        synchronized (targetQueues) {
+          targetQueues.remove(target);
+          dropped = new ArrayList<Invocation>(queue.invocations);
+          queue.invocations.clear();
+        }
+        for (Invocation droppedInvocation : dropped) {
+          droppedInvocation.release();
+        }
+        throw e;
+      }
+    }
+  }
+
+  private void execute(Invocation invocation) {
+    try {
+      executor.execute(invocation);
+    } catch (RejectedExecutionException e) {
+      invocation.release();
+      throw e;
+    }
+  }
+
+  /**
+   * A single call to a handler, which releases its permit when complete.
+   */
+  private final class Invocation implements Runnable {
+    private final Event<?> event;
+    private final Object handler;
+    private final boolean holdsPermit;
+
+    Invocation(Event<?> event, Object handler, boolean holdsPermit) {
+      this.event = event;
+      this.handler = handler;
+      this.holdsPermit = holdsPermit;
+    }
+
+    @Override
+    public void run() {
+      Boolean wasDispatching = dispatching.get();
+      dispatching.set(Boolean.TRUE);
+      try {
+        invoke(event, handler);
+      } catch (Throwable e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+      } finally {
+        if (wasDispatching == null) {
+          dispatching.remove();
+        }
+        release();
+      }
+    }
+
+    void release() {
+      if (holdsPermit) {
+        permits.release();
+      } else {
+        overLimit.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Task that runs the pending invocations for a target one after another,
+   * and removes itself once there are none left.
+   */
+  private final class TargetQueue implements Runnable {
+    private final Object target;
+    final Queue<Invocation> invocations = new LinkedList<Invocation>();
+
+    TargetQueue(Object target) {
+      this.target = target;
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Invocation invocation;
+        synchronized (targetQueues) {
+          invocation = invocations.poll();
+          if (invocation == null) {
+            targetQueues.remove(target);
+            return;
+          }
+        }
+        invocation.run();
+      }
+    }
+  }
+}
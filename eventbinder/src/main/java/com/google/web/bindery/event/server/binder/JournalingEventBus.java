@@ -0,0 +1,96 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.Event.Type;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.BindingListener;
+
+/**
+ * Event bus that appends the events fired on it to an {@link EventJournal}
+ * before passing them on to a delegate event bus. Only events whose class is
+ * registered with the journal are recorded; the rest are fired without any
+ * extra work:
+ *
+ * <pre>
+ * EventJournal journal = EventJournal.create(new File("session.journal"), 64 &lt;&lt; 20);
+ * journal.register(ContactsLoadedEvent.class);
+ * EventBus eventBus = new JournalingEventBus(new SimpleEventBus(), journal);
+ * </pre>
+ */
+public class JournalingEventBus extends EventBus implements BindingListener {
+
+  private final EventBus delegate;
+  private final EventJournal journal;
+
+  public JournalingEventBus(EventBus delegate, EventJournal journal) {
+    this.delegate = delegate;
+    this.journal = journal;
+  }
+
+  /**
+   * Returns the journal that events are recorded in.
+   */
+  public EventJournal getJournal() {
+    return journal;
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    return delegate.addHandler(type, handler);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    return delegate.addHandlerToSource(type, source, handler);
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    record(event);
+    delegate.fireEvent(event);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    record(event);
+    delegate.fireEventFromSource(event, source);
+  }
+
+  @Override
+  public void onBind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onBind(binder, target);
+    }
+  }
+
+  @Override
+  public void onUnbind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onUnbind(binder, target);
+    }
+  }
+
+  private void record(Event<?> event) {
+    if (event instanceof GenericEvent) {
+      journal.append((GenericEvent) event);
+    }
+  }
+}
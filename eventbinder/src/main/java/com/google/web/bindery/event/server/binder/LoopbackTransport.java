@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link EventBridge.Transport} that passes batches directly to other bridges
+ * in the same process. Useful for testing code that bridges events, and for
+ * connecting event buses that would otherwise be isolated:
+ *
+ * <pre>
+ * LoopbackTransport transport = new LoopbackTransport();
+ * EventBridge sender = new EventBridge(eventBus, transport, 1);
+ * transport.connect(new EventBridge(otherEventBus, new LoopbackTransport(), 1));
+ * </pre>
+ */
+public class LoopbackTransport implements EventBridge.Transport {
+
+  private final List<EventBridge> receivers = new CopyOnWriteArrayList<EventBridge>();
+
+  /**
+   * Delivers batches sent through this transport to the given bridge, in
+   * addition to any bridges connected previously.
+   */
+  public void connect(EventBridge receiver) {
+    receivers.add(receiver);
+  }
+
+  @Override
+  public void send(byte[] batch) throws IOException {
+    for (EventBridge receiver : receivers) {
+      receiver.receive(batch);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.ParallelSafe;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link Dispatcher} that splits the handlers of an event into chunks and
+ * invokes the chunks in parallel, for events with many handlers that each do
+ * a significant amount of work. Only events whose class is annotated with
+ * {@link ParallelSafe} are split; other events, and events with no more than
+ * one chunk of handlers, are dispatched on the firing thread exactly as by
+ * {@link Dispatcher#synchronous()}. On Java 8 and later, the common
+ * {@code ForkJoinPool} is a good executor to use:
+ *
+ * <pre>
+ * EventBus eventBus = new ConcurrentEventBus(
+ *     new ParallelDispatcher(ForkJoinPool.commonPool(), 64, 8));
+ * </pre>
+ *
+ * The firing thread works through chunks itself alongside the tasks it hands
+ * to the executor, and {@link #dispatch} returns once every handler has run.
+ * Chunks are claimed from a shared counter, so a task that the executor only
+ * starts after the firing thread has taken the remaining chunks does nothing,
+ * and a busy or saturated executor can slow dispatch down but not deadlock it.
+ * Exceptions thrown by handlers are collected from every thread and rethrown
+ * in an {@link UmbrellaException} after all handlers have run.
+ * <p>
+ * Splitting has a fixed cost of a few task hand-offs per event, which is only
+ * worth paying when the handlers together take several microseconds; the
+ * {@code ParallelDispatcherBenchmark} in the benchmarks module measures where
+ * that point lies for a given machine.
+ */
+public class ParallelDispatcher extends Dispatcher {
+
+  private final Executor executor;
+  private final int chunkSize;
+  private final int parallelism;
+
+  /** Whether each event class that has been dispatched is parallel-safe. */
+  private final ConcurrentMap<Class<?>, Boolean> parallelSafeClasses =
+      new ConcurrentHashMap<Class<?>, Boolean>();
+
+  /**
+   * Creates a dispatcher that splits handlers into chunks of 32 and runs up
+   * to as many chunks at once as there are processors.
+   */
+  public ParallelDispatcher(Executor executor) {
+    this(executor, 32, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a dispatcher that splits handlers into chunks on the given
+   * executor.
+   *
+   * @param executor executor used to run chunks other than the ones run by the
+   *     firing thread
+   * @param chunkSize number of handlers invoked one after another by a single
+   *     thread; events with no more handlers than this aren't split
+   * @param parallelism maximum number of threads, including the firing thread,
+   *     that invoke handlers for a single event
+   */
+  public ParallelDispatcher(Executor executor, int chunkSize, int parallelism) {
+    if (executor == null) {
+      throw new NullPointerException("Cannot dispatch to a null executor");
+    }
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("chunkSize must be positive, was " + chunkSize);
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("parallelism must be positive, was " + parallelism);
+    }
+    this.executor = executor;
+    this.chunkSize = chunkSize;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Invokes every handler, in parallel chunks if the event is parallel-safe
+   * and has more than one chunk of handlers, and returns once all of them have
+   * run. If the firing thread is interrupted while waiting for other threads,
+   * it keeps waiting and its interrupt status is set again before returning.
+   */
+  @Override
+  public void dispatch(Event<?> event, Object[] handlers) {
+    if (handlers.length <= chunkSize || parallelism == 1 || !isParallelSafe(event)) {
+      synchronous().dispatch(event, handlers);
+      return;
+    }
+    FanOut fanOut = new FanOut(event, handlers);
+    int helpers = Math.min(fanOut.chunkCount, parallelism) - 1;
+    for (int i = 0; i < helpers; i++) {
+      try {
+        executor.execute(fanOut);
+      } catch (RejectedExecutionException e) {
+        // The firing thread will run the remaining chunks itself
+        break;
+      }
+    }
+    fanOut.run();
+    fanOut.awaitChunks();
+    if (fanOut.causes != null) {
+      throw new UmbrellaException(fanOut.causes);
+    }
+  }
+
+  private boolean isParallelSafe(Event<?> event) {
+    Class<?> eventClass = event.getClass();
+    Boolean parallelSafe = parallelSafeClasses.get(eventClass);
+    if (parallelSafe == null) {
+      parallelSafe = eventClass.isAnnotationPresent(ParallelSafe.class);
+      parallelSafeClasses.put(eventClass, parallelSafe);
+    }
+    return parallelSafe;
+  }
+
+  /**
+   * Dispatch of one event, run by the firing thread and by each task handed
+   * to the executor. Every runner claims chunks until none are left.
+   */
+  private final class FanOut implements Runnable {
+    private final Event<?> event;
+    private final Object[] handlers;
+    final int chunkCount;
+    private final AtomicInteger nextChunk = new AtomicInteger();
+    private final CountDownLatch chunksDone;
+    Set<Throwable> causes;
+
+    FanOut(Event<?> event, Object[] handlers) {
+      this.event = event;
+      this.handlers = handlers;
+      this.chunkCount = (handlers.length + chunkSize - 1) / chunkSize;
+      this.chunksDone = new CountDownLatch(chunkCount);
+    }
+
+    @Override
+    public void run() {
+      int chunk;
+      while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+        int end = Math.min((chunk + 1) * chunkSize, handlers.length);
+        for (int i = chunk * chunkSize; i < end; i++) {
+          try {
+            invoke(event, handlers[i]);
+          } catch (Throwable e) {
+            addCause(e);
+          }
+        }
+        chunksDone.countDown();
+      }
+    }
+
+    /**
+     * Waits for chunks claimed by other threads to finish. The latch also
+     * makes their exceptions visible to the firing thread.
+     */
+    void awaitChunks() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          chunksDone.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private synchronized void addCause(Throwable e) {
+      if (causes == null) {
+        causes = new HashSet<Throwable>();
+      }
+      causes.add(e);
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.binder.Routable;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link Dispatcher} that spreads events across a fixed number of lanes, each
+ * with its own thread, while keeping events for the same entity in order.
+ * Every event is routed by the {@link Routable#getRoutingKey routing key} of
+ * its entity, or by its class if it isn't {@link Routable} or has no key, to
+ * the lane picked by hashing that key. A lane invokes the handlers for one
+ * event after another, and for one event at a time, so all events with the
+ * same key that are fired from a thread reach each of their handlers in the
+ * order they were fired, and the handlers bound to a target by an {@link
+ * com.google.web.bindery.event.shared.binder.EventBinder} are never called
+ * concurrently for events with the same key:
+ *
+ * <pre>
+ * PartitionedDispatcher dispatcher = new PartitionedDispatcher(8, 1024);
+ * EventBus eventBus = new ConcurrentEventBus(dispatcher);
+ * </pre>
+ *
+ * Each lane has a bounded queue. Once a lane's queue is full, firing an event
+ * routed to it blocks until the lane catches up, which pushes back on
+ * producers instead of letting work pile up without bound. Lanes themselves
+ * never block, since two lanes waiting on each other's full queues would block
+ * forever: events fired by a handler that are routed to the lane already
+ * running it are delivered at once on that lane, as by {@link
+ * Dispatcher#synchronous()}, and events routed to another lane whose queue is
+ * full are queued there beyond its capacity. The depth, lag and throughput of
+ * every lane can be read while it runs, to spot lanes made hot by popular
+ * keys.
+ * <p>
+ * Since handlers run asynchronously, exceptions they throw are passed to the
+ * uncaught exception handler of the lane's thread, and the lane goes on to the
+ * next handler.
+ */
+public class PartitionedDispatcher extends Dispatcher {
+
+  private final Lane[] lanes;
+
+  /**
+   * Held for reading while queueing an event and for writing while shutting
+   * down, so that no event can be queued behind a lane's stop marker.
+   */
+  private final ReadWriteLock runningLock = new ReentrantReadWriteLock();
+  private volatile boolean running = true;
+
+  /**
+   * Creates a dispatcher and starts a daemon thread for each of its lanes.
+   *
+   * @param laneCount number of lanes, and so of threads, to spread events over
+   * @param queueCapacity number of events that can wait in each lane before
+   *     firing an event routed to it blocks
+   */
+  public PartitionedDispatcher(int laneCount, int queueCapacity) {
+    this(laneCount, queueCapacity, new ThreadFactory() {
+      private final AtomicInteger nextLane = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable lane) {
+        Thread thread =
+            new Thread(lane, "PartitionedDispatcher lane " + nextLane.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Creates a dispatcher and starts a thread from the given factory for each
+   * of its lanes.
+   *
+   * @param laneCount number of lanes, and so of threads, to spread events over
+   * @param queueCapacity number of events that can wait in each lane before
+   *     firing an event routed to it blocks
+   * @param threadFactory factory for the threads that run the lanes
+   */
+  public PartitionedDispatcher(int laneCount, int queueCapacity, ThreadFactory threadFactory) {
+    if (laneCount <= 0) {
+      throw new IllegalArgumentException("laneCount must be positive, was " + laneCount);
+    }
+    if (queueCapacity <= 0) {
+      throw new IllegalArgumentException("queueCapacity must be positive, was " + queueCapacity);
+    }
+    lanes = new Lane[laneCount];
+    for (int i = 0; i < laneCount; i++) {
+      lanes[i] = new Lane(queueCapacity);
+      lanes[i].thread = threadFactory.newThread(lanes[i]);
+    }
+    for (Lane lane : lanes) {
+      lane.thread.start();
+    }
+  }
+
+  /**
+   * Queues the event for delivery to the given handlers on the lane for its
+   * routing key, blocking while the lane's queue is full unless the event was
+   * fired by a handler running on one of this dispatcher's lanes. If the firing
+   * thread is interrupted while blocked, the event is not delivered and an
+   * {@link IllegalStateException} is thrown with the interrupt status set.
+   *
+   * @throws IllegalStateException if this dispatcher has been shut down and
+   *     the event wasn't fired by a handler running on one of its lanes
+   * @throws IllegalArgumentException if the event is a
+   *     {@link com.google.web.bindery.event.shared.binder.PooledEvent} that
+   *     would have to be queued
+   */
+  @Override
+  public void dispatch(Event<?> event, Object[] handlers) {
+    Lane lane = lanes[getLane(getRoutingKey(event))];
+    if (Thread.currentThread() == lane.thread) {
+      lane.deliver(event, handlers);
+      return;
+    }
+    checkNotPooled(event);
+    Lane currentLane = getCurrentLane();
+    boolean holdsPermit;
+    if (currentLane != null) {
+      // A lane must not wait for another, which may in turn be waiting for it
+      holdsPermit = lane.permits.tryAcquire();
+    } else {
+      if (!running) {
+        throw new IllegalStateException("Cannot dispatch events after shutdown");
+      }
+      try {
+        lane.permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting to dispatch " + event, e);
+      }
+      holdsPermit = true;
+    }
+    runningLock.readLock().lock();
+    try {
+      if (running) {
+        lane.queue.add(new Delivery(event, handlers, holdsPermit));
+        return;
+      }
+    } finally {
+      runningLock.readLock().unlock();
+    }
+    if (holdsPermit) {
+      lane.permits.release();
+    }
+    if (currentLane == null) {
+      throw new IllegalStateException("Cannot dispatch events after shutdown");
+    }
+    // Other lanes may already have stopped, so events fired by handlers while
+    // the queues drain are delivered on the lane that fired them
+    currentLane.deliver(event, handlers);
+  }
+
+  /**
+   * Returns the number of lanes.
+   */
+  public int getLaneCount() {
+    return lanes.length;
+  }
+
+  /**
+   * Returns the index of the lane that events with the given routing key are
+   * delivered on.
+   */
+  public int getLane(Object routingKey) {
+    int hash = routingKey.hashCode();
+    // Spread the high bits, since keys such as boxed longs vary mostly there
+    hash ^= (hash >>> 16);
+    return (hash & Integer.MAX_VALUE) % lanes.length;
+  }
+
+  /**
+   * Returns the number of events waiting in the given lane's queue, not
+   * counting the one being delivered.
+   */
+  public int getQueueDepth(int lane) {
+    return lanes[lane].queue.size();
+  }
+
+  /**
+   * Returns how far the given lane is behind, as the time in milliseconds
+   * since the oldest event that it hasn't finished delivering was fired, or 0
+   * if it is idle.
+   */
+  public long getLagMillis(int lane) {
+    long oldest = lanes[lane].oldestPendingNanos();
+    return (oldest != 0) ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest) : 0;
+  }
+
+  /**
+   * Returns the number of events the given lane has finished delivering.
+   */
+  public long getDeliveredCount(int lane) {
+    return lanes[lane].deliveredCount.get();
+  }
+
+  /**
+   * Waits for every event dispatched so far to be delivered, then stops the
+   * lane threads. Events dispatched by other threads after this method is
+   * called are rejected, while events fired by handlers as the lanes finish
+   * their queues are delivered at once on the lane running the handler.
+   */
+  public void shutdown() throws InterruptedException {
+    runningLock.writeLock().lock();
+    try {
+      if (running) {
+        running = false;
+        for (Lane lane : lanes) {
+          lane.queue.add(Delivery.STOP);
+        }
+      }
+    } finally {
+      runningLock.writeLock().unlock();
+    }
+    for (Lane lane : lanes) {
+      lane.thread.join();
+    }
+  }
+
+  private Lane getCurrentLane() {
+    Thread currentThread = Thread.currentThread();
+    for (Lane lane : lanes) {
+      if (lane.thread == currentThread) {
+        return lane;
+      }
+    }
+    return null;
+  }
+
+  private static Object getRoutingKey(Event<?> event) {
+    Object key = (event instanceof Routable) ? ((Routable) event).getRoutingKey() : null;
+    return (key != null) ? key : event.getClass();
+  }
+
+  /**
+   * An event waiting to be delivered to a snapshot of its handlers.
+   */
+  private static final class Delivery {
+    static final Delivery STOP = new Delivery(null, null, false);
+
+    final Event<?> event;
+    final Object[] handlers;
+    /** Whether the event takes up room in the lane's queue. */
+    final boolean holdsPermit;
+    final long firedNanos = System.nanoTime();
+
+    Delivery(Event<?> event, Object[] handlers, boolean holdsPermit) {
+      this.event = event;
+      this.handlers = handlers;
+      this.holdsPermit = holdsPermit;
+    }
+  }
+
+  /**
+   * Single thread delivering the events queued for it in order. The queue
+   * itself is unbounded so that other lanes can always add to it; its capacity
+   * is enforced by permits, which only threads other than lanes wait for.
+   */
+  private static final class Lane implements Runnable {
+    final BlockingQueue<Delivery> queue = new LinkedBlockingQueue<Delivery>();
+    final Semaphore permits;
+    final AtomicLong deliveredCount = new AtomicLong();
+    Thread thread;
+
+    /** Time at which the event being delivered was fired, or 0 if idle. */
+    private volatile long currentFiredNanos;
+
+    Lane(int queueCapacity) {
+      permits = new Semaphore(queueCapacity);
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        Delivery delivery;
+        try {
+          delivery = queue.take();
+        } catch (InterruptedException e) {
+          // Only shutdown stops a lane, so that queued events aren't lost
+          continue;
+        }
+        if (delivery == Delivery.STOP) {
+          return;
+        }
+        if (delivery.holdsPermit) {
+          permits.release();
+        }
+        currentFiredNanos = delivery.firedNanos;
+        deliver(delivery.event, delivery.handlers);
+        currentFiredNanos = 0;
+        deliveredCount.incrementAndGet();
+      }
+    }
+
+    void deliver(Event<?> event, Object[] handlers) {
+      for (Object handler : handlers) {
+        try {
+          invoke(event, handler);
+        } catch (Throwable e) {
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    }
+
+    long oldestPendingNanos() {
+      long current = currentFiredNanos;
+      if (current != 0) {
+        return current;
+      }
+      Delivery head = queue.peek();
+      return (head != null && head != Delivery.STOP) ? head.firedNanos : 0;
+    }
+  }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.gwt.core.server.ServerGwtBridge;
+import com.google.gwt.core.server.ServerGwtBridge.ClassInstantiator;
+import com.google.gwt.core.server.ServerGwtBridge.Properties;
+import com.google.web.bindery.event.gwt.rebind.binder.HandlerMethods;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.AbstractEventBinder;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link EventBinder} that finds the {@link EventHandler} methods of its target
+ * class by reflection at runtime, for use on the JVM where the GWT generator
+ * doesn't run. This allows presenters to be bound in server code and tested
+ * with plain JUnit instead of {@code GWTTestCase}.
+ * <p>
+ * The target class is scanned once, when its binder is first requested, and
+ * the resulting handler methods are cached, so binding an object only costs
+ * one handler allocation per method, as with a generated binder. Methods are
+ * selected and validated in the same way as by the generator, and problems are
+ * reported by throwing an {@link IllegalArgumentException} when the binder is
+ * created.
+ * <p>
+ * Binders for an {@link EventBinder} subinterface can be created with
+ * {@link #create}, or {@link #install} can be called once so that
+ * {@code GWT.create} returns them outside of client code:
+ *
+ * <pre>
+ * &#64;BeforeClass
+ * public static void installEventBinders() {
+ *   ReflectiveEventBinder.install();
+ * }
+ * </pre>
+ *
+ * @param <T> type of object being bound
+ */
+public final class ReflectiveEventBinder<T> extends AbstractEventBinder<T> {
+
+  private static final ConcurrentMap<Class<?>, ReflectiveEventBinder<?>> binders =
+      new ConcurrentHashMap<Class<?>, ReflectiveEventBinder<?>>();
+
+  /** Validates handler methods in the same way as the generator. */
+  private static final HandlerMethods<Class<?>> HANDLER_METHODS =
+      new HandlerMethods<Class<?>>(GenericEvent.class, false) {
+        @Override
+        protected boolean isAbstract(Class<?> type) {
+          return Modifier.isAbstract(type.getModifiers());
+        }
+
+        @Override
+        protected boolean isAssignable(Class<?> from, Class<?> to) {
+          return to.isAssignableFrom(from);
+        }
+
+        @Override
+        protected String getName(Class<?> type) {
+          return type.getCanonicalName();
+        }
+      };
+
+  private static boolean installed;
+
+  private final Class<T> targetClass;
+  private final HandlerMethod[] handlerMethods;
+
+  private ReflectiveEventBinder(Class<T> targetClass) {
+    this.targetClass = targetClass;
+    List<HandlerMethod> methods = new ArrayList<HandlerMethod>();
+    for (Method method : getInheritableMethods(targetClass)) {
+      EventHandler annotation = method.getAnnotation(EventHandler.class);
+      if (annotation != null) {
+        addHandlerMethods(annotation, method, methods);
+      }
+    }
+    handlerMethods = methods.toArray(new HandlerMethod[methods.size()]);
+  }
+
+  /**
+   * Returns the binder for the given target class, scanning the class if this
+   * is the first time a binder for it has been requested.
+   *
+   * @throws IllegalArgumentException if any of the class's handler methods are
+   *     invalid
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> ReflectiveEventBinder<T> of(Class<T> targetClass) {
+    ReflectiveEventBinder<?> binder = binders.get(targetClass);
+    if (binder == null) {
+      binder = new ReflectiveEventBinder<T>(targetClass);
+      ReflectiveEventBinder<?> existingBinder = binders.putIfAbsent(targetClass, binder);
+      if (existingBinder != null) {
+        binder = existingBinder;
+      }
+    }
+    return (ReflectiveEventBinder<T>) binder;
+  }
+
+  /**
+   * Returns an implementation of the given {@link EventBinder} subinterface
+   * that binds its target using a {@link ReflectiveEventBinder}. This plays the
+   * same role as {@code GWT.create} in client code.
+   *
+   * @throws IllegalArgumentException if the interface doesn't extend
+   *     EventBinder with a type parameter, or if the target has invalid handler
+   *     methods
+   */
+  public static <B extends EventBinder<?>> B create(Class<B> binderInterface) {
+    final ReflectiveEventBinder<?> binder = of(getTargetClass(binderInterface));
+    return binderInterface.cast(Proxy.newProxyInstance(
+        binderInterface.getClassLoader(),
+        new Class<?>[] {binderInterface},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+              if (method.getName().equals("equals")) {
+                return proxy == args[0];
+              } else if (method.getName().equals("hashCode")) {
+                return System.identityHashCode(proxy);
+              }
+              return binder.toString();
+            }
+            try {
+              return method.invoke(binder, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          }
+        }));
+  }
+
+  /**
+   * Registers {@link #create} with GWT's server-side bridge, so that
+   * {@code GWT.create} can be used to create {@link EventBinder}s outside of
+   * client code, for example in plain JUnit tests. Calling this more than once
+   * has no further effect.
+   */
+  public static synchronized void install() {
+    if (!installed) {
+      ServerGwtBridge.getInstance().register(EventBinder.class, new ClassInstantiator() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <I> I create(Class<?> baseClass, Properties properties) {
+          return baseClass.isInterface()
+              ? (I) ReflectiveEventBinder.create(baseClass.asSubclass(EventBinder.class))
+              : null;
+        }
+      });
+      installed = true;
+    }
+  }
+
+  @Override
+  protected void doBindEventHandlers(
+      T target, EventBus eventBus, List<HandlerRegistration> registrations) {
+    for (HandlerMethod handlerMethod : handlerMethods) {
+      GenericEventHandler handler = new ReflectiveEventHandler(target, handlerMethod);
+      if (handlerMethod.throttleMillis > 0) {
+        handler = throttle(handlerMethod.throttleMillis, handler);
+      } else if (handlerMethod.debounceMillis > 0) {
+        handler = debounce(handlerMethod.debounceMillis, handler);
+      }
+      bind(eventBus, registrations, handlerMethod.eventClass, handler);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ReflectiveEventBinder<" + targetClass.getName() + ">";
+  }
+
+  private static Class<?> getTargetClass(Class<?> binderInterface) {
+    Type[] superTypes = binderInterface.getGenericInterfaces();
+    if (superTypes.length == 1 && superTypes[0] instanceof ParameterizedType) {
+      ParameterizedType superType = (ParameterizedType) superTypes[0];
+      Type targetType = superType.getActualTypeArguments()[0];
+      if (superType.getRawType() == EventBinder.class) {
+        if (targetType instanceof Class) {
+          return (Class<?>) targetType;
+        } else if (targetType instanceof ParameterizedType) {
+          return (Class<?>) ((ParameterizedType) targetType).getRawType();
+        }
+      }
+    }
+    throw new IllegalArgumentException(
+        binderInterface + " must extend EventBinder with a type parameter");
+  }
+
+  /**
+   * Returns the most-derived declaration of each non-private method of the
+   * given class, its superclasses and its interfaces, like
+   * {@code JClassType.getInheritableMethods} does for the generator.
+   */
+  private static Iterable<Method> getInheritableMethods(Class<?> type) {
+    Map<String, Method> methods = new LinkedHashMap<String, Method>();
+    Set<Class<?>> visitedInterfaces = new HashSet<Class<?>>();
+    for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+      addInheritableMethods(clazz, methods);
+    }
+    for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+      addInterfaceMethods(clazz, methods, visitedInterfaces);
+    }
+    return methods.values();
+  }
+
+  private static void addInterfaceMethods(
+      Class<?> type, Map<String, Method> methods, Set<Class<?>> visitedInterfaces) {
+    for (Class<?> superInterface : type.getInterfaces()) {
+      if (visitedInterfaces.add(superInterface)) {
+        addInheritableMethods(superInterface, methods);
+        addInterfaceMethods(superInterface, methods, visitedInterfaces);
+      }
+    }
+  }
+
+  private static void addInheritableMethods(Class<?> type, Map<String, Method> methods) {
+    for (Method method : type.getDeclaredMethods()) {
+      if (Modifier.isPrivate(method.getModifiers()) || method.isSynthetic()) {
+        continue;
+      }
+      StringBuilder signature = new StringBuilder(method.getName());
+      for (Class<?> parameterType : method.getParameterTypes()) {
+        signature.append(',').append(parameterType.getName());
+      }
+      if (!methods.containsKey(signature.toString())) {
+        methods.put(signature.toString(), method);
+      }
+    }
+  }
+
+  private static void addHandlerMethods(
+      EventHandler annotation, Method method, List<HandlerMethod> methods) {
+    Class<?> eventParameter = null;
+    if (method.getParameterTypes().length == 1) {
+      eventParameter = method.getParameterTypes()[0];
+    }
+    List<Class<?>> eventTypes = HANDLER_METHODS.getEventTypes(method.getName(), annotation,
+        Arrays.<Class<?>>asList(annotation.handles()), method.getParameterTypes().length,
+        eventParameter);
+
+    method.setAccessible(true);
+    for (Class<?> eventType : eventTypes) {
+      methods.add(new HandlerMethod(
+          method, eventType.asSubclass(GenericEvent.class), eventParameter != null, annotation));
+    }
+  }
+
+  /**
+   * An {@link EventHandler} method and the event class it is bound to.
+   */
+  private static final class HandlerMethod {
+    final Method method;
+    final Class<? extends GenericEvent> eventClass;
+    final boolean passEvent;
+    final int throttleMillis;
+    final int debounceMillis;
+    final int order;
+
+    HandlerMethod(Method method, Class<? extends GenericEvent> eventClass, boolean passEvent,
+        EventHandler annotation) {
+      this.method = method;
+      this.eventClass = eventClass;
+      this.passEvent = passEvent;
+      this.throttleMillis = annotation.throttleMillis();
+      this.debounceMillis = annotation.debounceMillis();
+      this.order = annotation.order();
+    }
+  }
+
+  /**
+   * Handler that invokes a handler method on its target.
+   */
+  private static final class ReflectiveEventHandler extends BoundEventHandler {
+    private final HandlerMethod handlerMethod;
+
+    ReflectiveEventHandler(Object target, HandlerMethod handlerMethod) {
+      super(target, handlerMethod.method.getName(), handlerMethod.order);
+      this.handlerMethod = handlerMethod;
+    }
+
+    @Override
+    public void handleEvent(GenericEvent event) {
+      try {
+        if (handlerMethod.passEvent) {
+          handlerMethod.method.invoke(getTarget(), event);
+        } else {
+          handlerMethod.method.invoke(getTarget());
+        }
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      } catch (IllegalAccessException e) {
+        throw new IllegalStateException("Can't call handler method " + handlerMethod.method, e);
+      }
+    }
+  }
+}
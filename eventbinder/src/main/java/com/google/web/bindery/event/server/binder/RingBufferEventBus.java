@@ -0,0 +1,431 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link EventBus} for high-volume streams of events fired by a single
+ * producer thread on the JVM. Fired events are written into a preallocated
+ * ring buffer and dispatched asynchronously by dedicated consumer threads,
+ * which process every event published since they last ran as a single batch.
+ * Apart from the event itself, firing an event allocates nothing, and the
+ * buffer lets go of each event once every consumer has dispatched it.
+ * <p>
+ * Each handler is assigned to one of the consumer threads when it is added,
+ * and every consumer sees every event, so handlers on different consumers run
+ * in parallel while each handler still receives events in the order they were
+ * fired. All handlers bound to the same target by an
+ * {@link com.google.web.bindery.event.shared.binder.EventBinder} are assigned
+ * to the same consumer, so a target is never called from two threads at once.
+ * When the buffer is full the producer waits for the slowest consumer. How
+ * threads wait is controlled by a {@link WaitStrategy}.
+ * <p>
+ * Since dispatch is asynchronous, exceptions thrown by handlers can't be
+ * reported to the code that fired the event. Instead they are passed to the
+ * uncaught exception handler of the consumer thread, which then continues with
+ * the next event. Handlers on different consumers may receive the same event
+ * at the same time, so events must be immutable, as recommended by
+ * {@link com.google.web.bindery.event.shared.binder.GenericEvent}. For the same
+ * reason, {@link PooledEvent}s can't be fired on this bus.
+ * <p>
+ * Events must only be fired from one thread at a time. In particular, handlers
+ * may not fire events on the bus that is dispatching to them.
+ */
+public class RingBufferEventBus extends EventBus {
+
+  /**
+   * Determines how consumer threads wait for events to be fired and how the
+   * producer waits for consumers when the buffer is full.
+   */
+  public abstract static class WaitStrategy {
+
+    /**
+     * Spins without ever giving up the CPU. This has the lowest latency, but
+     * keeps one core busy for each waiting thread.
+     */
+    public static WaitStrategy busySpin() {
+      return new WaitStrategy() {
+        @Override
+        void idle(int attempts) {}
+      };
+    }
+
+    /**
+     * Spins for a short while and then yields the CPU to other threads between
+     * checks. A good choice when there are spare cores.
+     */
+    public static WaitStrategy yielding() {
+      return new WaitStrategy() {
+        @Override
+        void idle(int attempts) {
+          if (attempts > SPIN_ATTEMPTS) {
+            Thread.yield();
+          }
+        }
+      };
+    }
+
+    /**
+     * Spins, then yields, then sleeps for short periods. Uses little CPU when
+     * idle at the cost of some latency for the first event after a pause.
+     */
+    public static WaitStrategy sleeping() {
+      return new WaitStrategy() {
+        @Override
+        void idle(int attempts) {
+          if (attempts > 2 * SPIN_ATTEMPTS) {
+            LockSupport.parkNanos(SLEEP_NANOS);
+          } else if (attempts > SPIN_ATTEMPTS) {
+            Thread.yield();
+          }
+        }
+      };
+    }
+
+    /**
+     * Blocks waiting threads until they are signalled. Uses no CPU when idle,
+     * but adds lock overhead for the producer whenever a consumer is waiting.
+     */
+    public static WaitStrategy blocking() {
+      return new BlockingWaitStrategy();
+    }
+
+    private static final int SPIN_ATTEMPTS = 100;
+    private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    WaitStrategy() {}
+
+    /**
+     * Waits for a short time. {@code attempts} is the number of times this
+     * method has already been called during the current wait.
+     */
+    abstract void idle(int attempts);
+
+    /**
+     * Called after the state being waited for may have changed.
+     */
+    void signal() {}
+  }
+
+  private static final class BlockingWaitStrategy extends WaitStrategy {
+    private final Lock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    @Override
+    void idle(int attempts) {
+      lock.lock();
+      try {
+        waiters.incrementAndGet();
+        // The timeout bounds the delay if a signal races with this wait.
+        changed.await(1, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        waiters.decrementAndGet();
+        lock.unlock();
+      }
+    }
+
+    @Override
+    void signal() {
+      if (waiters.get() > 0) {
+        lock.lock();
+        try {
+          changed.signalAll();
+        } finally {
+          lock.unlock();
+        }
+      }
+    }
+  }
+
+  private final Event<?>[] events;
+  private final Object[] sources;
+  private final int mask;
+  private final WaitStrategy waitStrategy;
+  private final Consumer[] consumers;
+  /**
+   * Number of consumers that have yet to dispatch the event in each slot, so
+   * that the last one can clear it. Unused with a single consumer.
+   */
+  private final AtomicIntegerArray remainingConsumers;
+
+  /** Sequence of the last event made visible to consumers. */
+  private final Sequence published = new Sequence();
+  /** Sequence of the next event to be fired, only accessed by the producer. */
+  private long nextSequence;
+  /** Lowest sequence processed by all consumers when it was last checked. */
+  private long cachedConsumedSequence = -1;
+
+  private volatile boolean running = true;
+  /**
+   * Whether the producer is firing an event. Together with {@link #running}
+   * this lets shutdown wait for an event that passed the running check to be
+   * published before deciding which is the last event to dispatch.
+   */
+  private volatile boolean publishing;
+  /** Sequence of the last event to dispatch once shut down. */
+  private volatile long finalSequence = Long.MAX_VALUE;
+
+  /**
+   * Creates a bus with a single consumer thread that uses the
+   * {@link WaitStrategy#sleeping sleeping} wait strategy.
+   *
+   * @param capacity number of events that can be fired before the producer has
+   *        to wait for the consumer; rounded up to a power of two
+   */
+  public RingBufferEventBus(int capacity) {
+    this(capacity, 1, WaitStrategy.sleeping());
+  }
+
+  /**
+   * Creates a bus and starts its consumer threads.
+   *
+   * @param capacity number of events that can be fired before the producer has
+   *        to wait for the consumers; rounded up to a power of two
+   * @param consumerCount number of consumer threads between which handlers are
+   *        divided
+   * @param waitStrategy how the producer and consumers wait for each other
+   */
+  public RingBufferEventBus(int capacity, int consumerCount, WaitStrategy waitStrategy) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    if (consumerCount < 1) {
+      throw new IllegalArgumentException("There must be at least one consumer");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.events = new Event<?>[size];
+    this.sources = new Object[size];
+    this.mask = size - 1;
+    this.waitStrategy = waitStrategy;
+    this.consumers = new Consumer[consumerCount];
+    this.remainingConsumers = (consumerCount > 1) ? new AtomicIntegerArray(size) : null;
+    for (int i = 0; i < consumerCount; i++) {
+      consumers[i] = new Consumer("RingBufferEventBus consumer " + i);
+    }
+    for (Consumer consumer : consumers) {
+      consumer.start();
+    }
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Event.Type<H> type, H handler) {
+    return getConsumer(handler).handlers.addHandler(type, handler);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Event.Type<H> type, Object source, H handler) {
+    return getConsumer(handler).handlers.addHandlerToSource(type, source, handler);
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    publish(event, null);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    if (source == null) {
+      throw new NullPointerException("Cannot fire from a null source");
+    }
+    publish(event, source);
+  }
+
+  /**
+   * Waits for every event fired so far to be dispatched, then stops the
+   * consumer threads. Events fired after this method is called are rejected.
+   */
+  public void shutdown() throws InterruptedException {
+    running = false;
+    // An event that was fired before running was cleared is published before
+    // publishing is, so it is included in the final sequence
+    int attempts = 0;
+    while (publishing) {
+      waitStrategy.idle(attempts++);
+    }
+    finalSequence = published.get();
+    waitStrategy.signal();
+    for (Consumer consumer : consumers) {
+      consumer.join();
+    }
+  }
+
+  /**
+   * Returns the consumer for the given handler, which is picked by the
+   * handler's target so that all handlers of a target share a consumer.
+   */
+  private Consumer getConsumer(Object handler) {
+    int hash = System.identityHashCode(BoundEventHandler.getTargetOf(handler));
+    return consumers[(hash & Integer.MAX_VALUE) % consumers.length];
+  }
+
+  private void publish(Event<?> event, Object source) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+    if (event instanceof PooledEvent) {
+      throw new IllegalArgumentException("Cannot fire pooled event " + event.getClass().getName()
+          + " on a RingBufferEventBus, since its pool reuses it once fired");
+    }
+    checkNotConsumerThread();
+    publishing = true;
+    try {
+      if (!running) {
+        throw new IllegalStateException("Cannot fire events after shutdown");
+      }
+      publish(event, source, nextSequence);
+    } finally {
+      publishing = false;
+    }
+  }
+
+  private void publish(Event<?> event, Object source, long sequence) {
+    long wrapPoint = sequence - events.length;
+    if (wrapPoint > cachedConsumedSequence) {
+      int attempts = 0;
+      long consumed;
+      while (wrapPoint > (consumed = getConsumedSequence())) {
+        waitStrategy.idle(attempts++);
+      }
+      cachedConsumedSequence = consumed;
+    }
+
+    int index = (int) sequence & mask;
+    events[index] = event;
+    sources[index] = source;
+    if (remainingConsumers != null) {
+      remainingConsumers.lazySet(index, consumers.length);
+    }
+    nextSequence = sequence + 1;
+    published.lazySet(sequence);
+    waitStrategy.signal();
+  }
+
+  private long getConsumedSequence() {
+    long minimum = Long.MAX_VALUE;
+    for (Consumer consumer : consumers) {
+      minimum = Math.min(minimum, consumer.consumed.get());
+    }
+    return minimum;
+  }
+
+  private void checkNotConsumerThread() {
+    Thread currentThread = Thread.currentThread();
+    for (Consumer consumer : consumers) {
+      if (consumer == currentThread) {
+        throw new IllegalStateException(
+            "Handlers cannot fire events on the RingBufferEventBus that dispatched to them");
+      }
+    }
+  }
+
+  /**
+   * Consumer thread that dispatches every published event to its own subset of
+   * the handlers.
+   */
+  private final class Consumer extends Thread {
+    final ConcurrentEventBus handlers = new ConcurrentEventBus();
+    final Sequence consumed = new Sequence();
+
+    Consumer(String name) {
+      super(name);
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      long next = 0;
+      int attempts = 0;
+      while (true) {
+        long available = published.get();
+        if (available < next) {
+          // Events published before shutdown was requested are still dispatched
+          if (finalSequence < next) {
+            return;
+          }
+          waitStrategy.idle(attempts++);
+          continue;
+        }
+        attempts = 0;
+        // Dispatch everything that has been published as a single batch
+        for (long sequence = next; sequence <= available; sequence++) {
+          int index = (int) sequence & mask;
+          dispatch(events[index], sources[index]);
+          release(index);
+        }
+        next = available + 1;
+        consumed.lazySet(available);
+        waitStrategy.signal();
+      }
+    }
+
+    /**
+     * Clears the given slot if this is the last consumer to dispatch its
+     * event. This happens before the consumed sequence moves past the slot, so
+     * the producer can't have reused it yet.
+     */
+    private void release(int index) {
+      if (remainingConsumers == null || remainingConsumers.decrementAndGet(index) == 0) {
+        events[index] = null;
+        sources[index] = null;
+      }
+    }
+
+    private void dispatch(Event<?> event, Object source) {
+      try {
+        if (source == null) {
+          handlers.fireEvent(event);
+        } else {
+          handlers.fireEventFromSource(event, source);
+        }
+      } catch (Throwable e) {
+        getUncaughtExceptionHandler().uncaughtException(this, e);
+      }
+    }
+  }
+
+  /**
+   * Sequence counter padded to keep it on its own cache line, so that the
+   * producer and consumers don't slow each other down through false sharing.
+   */
+  @SuppressWarnings("unused")
+  private static final class Sequence extends AtomicLong {
+    private long p1, p2, p3, p4, p5, p6, p7;
+
+    Sequence() {
+      super(-1);
+    }
+  }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.Event.Type;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.BindingListener;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Event bus that keeps statistics about the handlers added to it, the events
+ * fired on it and the binders that bind targets on it, before passing every
+ * call on to a delegate event bus. The statistics can be read directly or
+ * exported over JMX, since this class implements {@link EventBusStatsMXBean}:
+ *
+ * <pre>
+ * StatsEventBus eventBus = new StatsEventBus(new ConcurrentEventBus());
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(
+ *     eventBus, new ObjectName("com.example:type=EventBus,name=main"));
+ * </pre>
+ *
+ * Counters are striped across several cells, so threads firing events at the
+ * same time rarely update the same memory, and reading them never blocks
+ * updates. Rates are computed over a fixed interval from snapshots of the
+ * counts taken by a shared daemon thread, so every reader sees the same rates
+ * however often it polls. Binds and unbinds are counted for binders given this
+ * bus or a decorator from this library wrapping it, since those pass binding
+ * notifications on to their delegate. This class is thread-safe if its
+ * delegate is.
+ */
+public class StatsEventBus extends EventBus implements EventBusStatsMXBean, BindingListener {
+
+  private final EventBus delegate;
+  private final ConcurrentMap<Type<?>, TypeStats> typeStats =
+      new ConcurrentHashMap<Type<?>, TypeStats>();
+  private final ConcurrentMap<String, BinderStats> binderStats =
+      new ConcurrentHashMap<String, BinderStats>();
+
+  private static ScheduledExecutorService snapshotExecutor;
+
+  private final RateSampler fireRates = new RateSampler();
+  private final RateSampler bindRates = new RateSampler();
+  private final RateSampler unbindRates = new RateSampler();
+
+  /**
+   * Creates a bus that keeps statistics for the given delegate, computing rates
+   * over ten-second intervals.
+   */
+  public StatsEventBus(EventBus delegate) {
+    this(delegate, 10000);
+  }
+
+  /**
+   * Creates a bus that keeps statistics for the given delegate, computing rates
+   * over intervals of the given length.
+   */
+  public StatsEventBus(EventBus delegate, long rateIntervalMillis) {
+    if (rateIntervalMillis <= 0) {
+      throw new IllegalArgumentException(
+          "rateIntervalMillis must be positive, was " + rateIntervalMillis);
+    }
+    this.delegate = delegate;
+    SnapshotTask task = new SnapshotTask(this);
+    task.future = getSnapshotExecutor().scheduleAtFixedRate(
+        task, rateIntervalMillis, rateIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    TypeStats stats = getStats(type);
+    return track(stats, delegate.addHandler(type, wrap(stats, handler)));
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    TypeStats stats = getStats(type);
+    return track(stats, delegate.addHandlerToSource(type, source, wrap(stats, handler)));
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    count(event);
+    delegate.fireEvent(event);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    count(event);
+    delegate.fireEventFromSource(event, source);
+  }
+
+  @Override
+  public void onBind(EventBinder<?> binder, Object target) {
+    getStats(binder).binds.increment();
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onBind(binder, target);
+    }
+  }
+
+  @Override
+  public void onUnbind(EventBinder<?> binder, Object target) {
+    getStats(binder).unbinds.increment();
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onUnbind(binder, target);
+    }
+  }
+
+  @Override
+  public Map<String, Long> getHandlerCounts() {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<Type<?>, TypeStats> entry : typeStats.entrySet()) {
+      counts.put(entry.getValue().getName(entry.getKey()), entry.getValue().handlers.sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public long getTotalHandlerCount() {
+    long total = 0;
+    for (TypeStats stats : typeStats.values()) {
+      total += stats.handlers.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public Map<String, Long> getFireCounts() {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<Type<?>, TypeStats> entry : typeStats.entrySet()) {
+      counts.put(entry.getValue().getName(entry.getKey()), entry.getValue().fires.sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Double> getFireRates() {
+    return fireRates.getRates();
+  }
+
+  @Override
+  public Map<String, Double> getDispatchesPerFire() {
+    Map<String, Double> averages = new TreeMap<String, Double>();
+    for (Map.Entry<Type<?>, TypeStats> entry : typeStats.entrySet()) {
+      long fires = entry.getValue().fires.sum();
+      long dispatches = entry.getValue().dispatches.sum();
+      averages.put(entry.getValue().getName(entry.getKey()),
+          (fires > 0) ? (double) dispatches / fires : 0);
+    }
+    return averages;
+  }
+
+  @Override
+  public Map<String, Long> getBindCounts() {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<String, BinderStats> entry : binderStats.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().binds.sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Long> getUnbindCounts() {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (Map.Entry<String, BinderStats> entry : binderStats.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().unbinds.sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Double> getBindRates() {
+    return bindRates.getRates();
+  }
+
+  @Override
+  public Map<String, Double> getUnbindRates() {
+    return unbindRates.getRates();
+  }
+
+  private static synchronized ScheduledExecutorService getSnapshotExecutor() {
+    if (snapshotExecutor == null) {
+      snapshotExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "StatsEventBus snapshots");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return snapshotExecutor;
+  }
+
+  private void takeSnapshot() {
+    fireRates.update(getFireCounts());
+    bindRates.update(getBindCounts());
+    unbindRates.update(getUnbindCounts());
+  }
+
+  private void count(Event<?> event) {
+    if (event != null) {
+      TypeStats stats = getStats(event.getAssociatedType());
+      if (stats.name == null) {
+        stats.name = event.getClass().getName();
+      }
+      stats.fires.increment();
+    }
+  }
+
+  private TypeStats getStats(Type<?> type) {
+    TypeStats stats = typeStats.get(type);
+    if (stats == null) {
+      TypeStats newStats = new TypeStats(type);
+      stats = typeStats.putIfAbsent(type, newStats);
+      if (stats == null) {
+        stats = newStats;
+      }
+    }
+    return stats;
+  }
+
+  private BinderStats getStats(EventBinder<?> binder) {
+    // Reflective binders share a class, so they are told apart by their target
+    String name = (binder instanceof ReflectiveEventBinder)
+        ? binder.toString()
+        : binder.getClass().getName();
+    BinderStats stats = binderStats.get(name);
+    if (stats == null) {
+      BinderStats newStats = new BinderStats();
+      stats = binderStats.putIfAbsent(name, newStats);
+      if (stats == null) {
+        stats = newStats;
+      }
+    }
+    return stats;
+  }
+
+  private static HandlerRegistration track(
+      final TypeStats stats, final HandlerRegistration registration) {
+    stats.handlers.increment();
+    return new HandlerRegistration() {
+      private boolean removed;
+
+      @Override
+      public void removeHandler() {
+        if (!removed) {
+          removed = true;
+          registration.removeHandler();
+          stats.handlers.add(-1);
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps handlers for generic events so that each call to them is counted.
+   * Other handlers are added unchanged, since their type isn't known here.
+   */
+  @SuppressWarnings("unchecked")
+  private static <H> H wrap(final TypeStats stats, final H handler) {
+    if (!(handler instanceof GenericEventHandler)) {
+      return handler;
+    }
+    return (H) new BoundEventHandler(BoundEventHandler.getTargetOf(handler),
+        BoundEventHandler.getMethodNameOf(handler), BoundEventHandler.getOrderOf(handler)) {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        stats.dispatches.increment();
+        ((GenericEventHandler) handler).handleEvent(event);
+      }
+    };
+  }
+
+  /**
+   * Counters for a single event type.
+   */
+  private static final class TypeStats {
+    final StripedCounter handlers = new StripedCounter();
+    final StripedCounter fires = new StripedCounter();
+    final StripedCounter dispatches = new StripedCounter();
+
+    /** Name of the event class, learned from the type or the first event fired. */
+    volatile String name;
+
+    TypeStats(Type<?> type) {
+      if (type instanceof GenericEventType) {
+        name = ((GenericEventType) type).getEventClass().getName();
+      }
+    }
+
+    String getName(Type<?> type) {
+      return (name != null) ? name : type + "@" + Integer.toHexString(type.hashCode());
+    }
+  }
+
+  /**
+   * Counters for a single binder.
+   */
+  private static final class BinderStats {
+    final StripedCounter binds = new StripedCounter();
+    final StripedCounter unbinds = new StripedCounter();
+  }
+
+  /**
+   * Snapshots the counts of a bus at a fixed rate, and cancels itself once the
+   * bus has been garbage collected.
+   */
+  private static final class SnapshotTask implements Runnable {
+    private final WeakReference<StatsEventBus> eventBus;
+    volatile ScheduledFuture<?> future;
+
+    SnapshotTask(StatsEventBus eventBus) {
+      this.eventBus = new WeakReference<StatsEventBus>(eventBus);
+    }
+
+    @Override
+    public void run() {
+      StatsEventBus bus = eventBus.get();
+      if (bus != null) {
+        bus.takeSnapshot();
+      } else if (future != null) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Turns counts into rates per second by comparing each snapshot with the one
+   * before it. Readers get the rates of the last complete interval, which are
+   * empty until the first interval has passed.
+   */
+  private static final class RateSampler {
+    private final Map<String, Long> lastCounts = new HashMap<String, Long>();
+    private long lastNanos = System.nanoTime();
+    private volatile Map<String, Double> rates = Collections.emptyMap();
+
+    synchronized void update(Map<String, Long> counts) {
+      long now = System.nanoTime();
+      double seconds = Math.max(now - lastNanos, 1) / 1e9;
+      Map<String, Double> newRates = new TreeMap<String, Double>();
+      for (Map.Entry<String, Long> entry : counts.entrySet()) {
+        Long lastCount = lastCounts.get(entry.getKey());
+        long delta = entry.getValue() - ((lastCount != null) ? lastCount : 0);
+        newRates.put(entry.getKey(), delta / seconds);
+      }
+      lastCounts.clear();
+      lastCounts.putAll(counts);
+      lastNanos = now;
+      rates = Collections.unmodifiableMap(newRates);
+    }
+
+    Map<String, Double> getRates() {
+      return rates;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter that can be incremented from many threads at once without them
+ * contending for the same memory. Each thread adds to one of several cells,
+ * chosen by its id, and the cells are only summed when the counter is read.
+ * The cells are spread a cache line apart so that threads updating different
+ * cells don't invalidate each other's caches.
+ */
+final class StripedCounter {
+
+  /** Number of longs between two cells, enough to fill a 64-byte cache line. */
+  private static final int CELL_SPACING = 8;
+
+  private static final int STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * CELL_SPACING);
+
+  /**
+   * Adds one to this counter.
+   */
+  void increment() {
+    add(1);
+  }
+
+  /**
+   * Adds the given amount, which may be negative, to this counter.
+   */
+  void add(long delta) {
+    int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+    cells.addAndGet(stripe * CELL_SPACING, delta);
+  }
+
+  /**
+   * Returns the sum of the amounts added so far. Updates made while the sum is
+   * being read may or may not be included.
+   */
+  long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * CELL_SPACING);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the smallest power of two that is at least the given number of
+   * processors, up to 64.
+   */
+  static int stripesFor(int processors) {
+    int stripes = 1;
+    while (stripes < processors && stripes < 64) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for a {@link GenericEvent} subclass that can be sent to other
+ * processes with an {@code EventBridge}. When the class is compiled with javac,
+ * the EventBinder annotation processor generates a compact binary codec for it
+ * named after the class with its enclosing types joined by underscores,
+ * followed by {@code Codec}. The codec is placed in a server-only package
+ * under {@code com.google.web.bindery.event.server.binder.codecs}, so it
+ * doesn't end up in the source path of GWT modules that include the event.
+ * <p>
+ * The event must follow the pattern described on {@link GenericEvent}, and
+ * since its codec lives in another package, it must be public: every field
+ * must be final and either public or readable through a public {@code get} or
+ * {@code is} accessor, and there must be a public constructor taking all of
+ * the fields in the order they are declared, starting with those of
+ * superclasses. Fields may be primitives, their wrappers, strings, enums, or
+ * lists of any of these:
+ *
+ * <pre>
+ * {@literal @}Bridgeable
+ * public class ContactsLoadedEvent extends GenericEvent {
+ *   private final List&lt;String&gt; contactNames;
+ *
+ *   public ContactsLoadedEvent(List&lt;String&gt; contactNames) {
+ *     this.contactNames = contactNames;
+ *   }
+ *
+ *   public List&lt;String&gt; getContactNames() {
+ *     return contactNames;
+ *   }
+ * }
+ * </pre>
+ *
+ * Generated codecs use {@code java.io} and so can only be used on the JVM.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface Bridgeable {}
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.Event.Type;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.impl.BindingListener;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.HandlerTimer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diagnostic event bus that records cascades: an event fired from outside any
+ * handler, together with every event fired by its handlers, by their
+ * handlers, and so on. Use it in place of the application's event bus while
+ * looking for event storms, where a single action fans out to a large number
+ * of handler invocations:
+ *
+ * <pre>
+ * CascadeAnalyzer eventBus = new CascadeAnalyzer(new SimpleEventBus(), 10);
+ * ... // Bind presenters to eventBus and exercise the application
+ * GWT.log(eventBus.getReport());
+ * </pre>
+ *
+ * Each cascade is recorded as a tree. A node groups the events of one class
+ * that were fired by handlers on one target class while handling the parent
+ * node's events, and counts how many such events there were, how many handler
+ * invocations they caused, and how long those invocations took, including any
+ * nested dispatches. Only the cascades with the most handler invocations are
+ * kept. Handlers must be added through this event bus to be recorded, and it
+ * must only be used from one thread at a time.
+ */
+public class CascadeAnalyzer extends EventBus implements BindingListener {
+
+  /**
+   * Events of one class fired from handlers on one target class within a
+   * cascade.
+   */
+  public static class Node {
+    private final String eventName;
+    private final String firedBy;
+    private final int depth;
+    private final Map<String, Node> children = new LinkedHashMap<String, Node>();
+    private int eventCount;
+    private int handlerInvocations;
+    private double handlerMillis;
+
+    Node(String eventName, String firedBy, int depth) {
+      this.eventName = eventName;
+      this.firedBy = firedBy;
+      this.depth = depth;
+    }
+
+    /** Returns the name of the class of the events in this node. */
+    public String getEventName() {
+      return eventName;
+    }
+
+    /**
+     * Returns the name of the class of the handler target that fired the
+     * events, or null for the event that started the cascade.
+     */
+    public String getFiredBy() {
+      return firedBy;
+    }
+
+    /** Returns the number of handlers between the root of the cascade and this node. */
+    public int getDepth() {
+      return depth;
+    }
+
+    /** Returns the number of events in this node. */
+    public int getEventCount() {
+      return eventCount;
+    }
+
+    /** Returns the number of handler invocations caused directly by this node's events. */
+    public int getHandlerInvocations() {
+      return handlerInvocations;
+    }
+
+    /** Returns the total time spent in those invocations, including nested dispatches. */
+    public double getHandlerMillis() {
+      return handlerMillis;
+    }
+
+    /** Returns the nodes for events fired by the handlers of this node's events. */
+    public List<Node> getChildren() {
+      return new ArrayList<Node>(children.values());
+    }
+
+    Node getChild(String eventName, String firedBy) {
+      String key = firedBy + " " + eventName;
+      Node child = children.get(key);
+      if (child == null) {
+        child = new Node(eventName, firedBy, depth + 1);
+        children.put(key, child);
+      }
+      return child;
+    }
+  }
+
+  /**
+   * A recorded cascade, with totals over all of its nodes.
+   */
+  public static class Cascade {
+    private final Node root;
+    private int eventCount;
+    private int handlerInvocations;
+    private int depth;
+
+    Cascade(Node root) {
+      this.root = root;
+      addTotals(root);
+    }
+
+    private void addTotals(Node node) {
+      eventCount += node.eventCount;
+      handlerInvocations += node.handlerInvocations;
+      depth = Math.max(depth, node.depth);
+      for (Node child : node.children.values()) {
+        addTotals(child);
+      }
+    }
+
+    /** Returns the node for the event that started the cascade. */
+    public Node getRoot() {
+      return root;
+    }
+
+    /** Returns the number of events fired in the cascade, including the first. */
+    public int getEventCount() {
+      return eventCount;
+    }
+
+    /** Returns the number of handler invocations in the cascade. */
+    public int getHandlerInvocations() {
+      return handlerInvocations;
+    }
+
+    /** Returns the length of the longest chain of handlers firing events. */
+    public int getDepth() {
+      return depth;
+    }
+
+    /** Returns the time taken to dispatch the first event and everything it caused. */
+    public double getTotalMillis() {
+      return root.handlerMillis;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append("Cascade from ").append(root.eventName).append(": ")
+          .append(handlerInvocations).append(" handler invocations, ")
+          .append(eventCount).append(" events, depth ").append(depth).append(", ")
+          .append(formatMillis(getTotalMillis())).append('\n');
+      appendNode(builder, root);
+      return builder.toString();
+    }
+
+    private void appendNode(StringBuilder builder, Node node) {
+      for (int i = 0; i <= node.depth; i++) {
+        builder.append("  ");
+      }
+      if (node.firedBy != null) {
+        builder.append(node.firedBy).append(" fired ");
+      }
+      builder.append(node.eventName).append(" x").append(node.eventCount).append(": ")
+          .append(node.handlerInvocations).append(" handler invocations, ")
+          .append(formatMillis(node.handlerMillis)).append('\n');
+      for (Node child : node.children.values()) {
+        appendNode(builder, child);
+      }
+    }
+  }
+
+  private final EventBus delegate;
+  private final int maxCascades;
+  private final List<Cascade> worstCascades = new ArrayList<Cascade>();
+
+  /** Node of the event currently being dispatched, or null outside of any cascade. */
+  private Node currentNode;
+
+  /** Name of the target of the handler currently running, or null if there is none. */
+  private String currentTarget;
+
+  /**
+   * Creates an analyzer that passes all calls on to the given event bus and
+   * keeps the given number of cascades with the most handler invocations.
+   */
+  public CascadeAnalyzer(EventBus delegate, int maxCascades) {
+    this.delegate = delegate;
+    this.maxCascades = maxCascades;
+  }
+
+  /**
+   * Returns the recorded cascades with the most handler invocations, worst
+   * first.
+   */
+  public List<Cascade> getWorstCascades() {
+    return new ArrayList<Cascade>(worstCascades);
+  }
+
+  /**
+   * Returns a description of each of the worst cascades and its tree of
+   * events.
+   */
+  public String getReport() {
+    StringBuilder builder = new StringBuilder();
+    for (Cascade cascade : worstCascades) {
+      builder.append(cascade);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Forgets all recorded cascades.
+   */
+  public void reset() {
+    worstCascades.clear();
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    return delegate.addHandler(type, wrap(handler));
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    return delegate.addHandlerToSource(type, source, wrap(handler));
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    Node parent = enter(event);
+    try {
+      delegate.fireEvent(event);
+    } finally {
+      exit(parent);
+    }
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    Node parent = enter(event);
+    try {
+      delegate.fireEventFromSource(event, source);
+    } finally {
+      exit(parent);
+    }
+  }
+
+  @Override
+  public void onBind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onBind(binder, target);
+    }
+  }
+
+  @Override
+  public void onUnbind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onUnbind(binder, target);
+    }
+  }
+
+  private Node enter(Event<?> event) {
+    Node parent = currentNode;
+    String eventName = getSimpleName(event.getClass());
+    currentNode = (parent == null)
+        ? new Node(eventName, null, 0)
+        : parent.getChild(eventName, currentTarget);
+    currentNode.eventCount++;
+    return parent;
+  }
+
+  private void exit(Node parent) {
+    Node node = currentNode;
+    currentNode = parent;
+    if (parent == null) {
+      record(new Cascade(node));
+    }
+  }
+
+  private void record(Cascade cascade) {
+    int index = worstCascades.size();
+    while (index > 0
+        && worstCascades.get(index - 1).handlerInvocations < cascade.handlerInvocations) {
+      index--;
+    }
+    if (index < maxCascades) {
+      worstCascades.add(index, cascade);
+      if (worstCascades.size() > maxCascades) {
+        worstCascades.remove(maxCascades);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <H> H wrap(final H handler) {
+    if (!(handler instanceof GenericEventHandler)) {
+      return handler;
+    }
+    final String targetName = getSimpleName(BoundEventHandler.getTargetOf(handler).getClass());
+    return (H) new BoundEventHandler(BoundEventHandler.getTargetOf(handler),
+        BoundEventHandler.getMethodNameOf(handler), BoundEventHandler.getOrderOf(handler)) {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        Node node = currentNode;
+        if (node == null) { // Fired directly on the delegate
+          ((GenericEventHandler) handler).handleEvent(event);
+          return;
+        }
+        String previousTarget = currentTarget;
+        currentTarget = targetName;
+        double start = HandlerTimer.currentTimeMillis();
+        try {
+          ((GenericEventHandler) handler).handleEvent(event);
+        } finally {
+          node.handlerInvocations++;
+          node.handlerMillis += HandlerTimer.currentTimeMillis() - start;
+          currentTarget = previousTarget;
+        }
+      }
+    };
+  }
+
+  private static String getSimpleName(Class<?> clazz) {
+    String name = clazz.getName();
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+
+  private static String formatMillis(double millis) {
+    return (Math.round(millis * 100) / 100.0) + " ms";
+  }
+}
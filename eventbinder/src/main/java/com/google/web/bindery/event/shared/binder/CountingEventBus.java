@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.Event.Type;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.impl.BindingListener;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Event bus that counts the handlers added to it for each event type before
+ * passing every call on to a delegate event bus, so that
+ * {@link GenericEvents#fireIfHandled} can tell whether anything is listening.
+ * Every handler added through this bus is counted, whether it was bound by an
+ * {@link EventBinder} or added directly:
+ *
+ * <pre>
+ * EventBus eventBus = new CountingEventBus(new SimpleEventBus());
+ * </pre>
+ *
+ * Handlers must be added through this event bus, not its delegate, to be
+ * counted. Buses that wrap this one hide its counts, so it should be the
+ * outermost bus.
+ */
+public class CountingEventBus extends EventBus implements HandlerCounter, BindingListener {
+
+  private final EventBus delegate;
+  private final Map<Type<?>, Integer> handlerCounts = new HashMap<Type<?>, Integer>();
+
+  public CountingEventBus(EventBus delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public synchronized int getHandlerCount(Type<?> type) {
+    Integer count = handlerCounts.get(type);
+    return (count != null) ? count : 0;
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(final Type<H> type, H handler) {
+    final HandlerRegistration registration = delegate.addHandler(type, handler);
+    updateCount(type, 1);
+    return new HandlerRegistration() {
+      private boolean removed;
+
+      @Override
+      public void removeHandler() {
+        if (!removed) {
+          removed = true;
+          registration.removeHandler();
+          updateCount(type, -1);
+        }
+      }
+    };
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    return delegate.addHandlerToSource(type, source, handler);
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    delegate.fireEvent(event);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    delegate.fireEventFromSource(event, source);
+  }
+
+  @Override
+  public void onBind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onBind(binder, target);
+    }
+  }
+
+  @Override
+  public void onUnbind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onUnbind(binder, target);
+    }
+  }
+
+  private synchronized void updateCount(Type<?> type, int delta) {
+    int count = getHandlerCount(type) + delta;
+    if (count == 0) {
+      handlerCounts.remove(type);
+    } else {
+      handlerCounts.put(type, count);
+    }
+  }
+}
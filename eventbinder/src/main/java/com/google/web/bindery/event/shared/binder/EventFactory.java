@@ -0,0 +1,29 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+/**
+ * Creates instances of an event on demand. Used with
+ * {@link GenericEvents#fireIfHandled} so that events which are expensive to
+ * construct are only built when there is a handler to receive them, and with
+ * {@link GenericEvents#fireShared} to create the instance of an event class that
+ * is reused.
+ *
+ * @param <T> type of event created by this factory
+ */
+public interface EventFactory<T extends GenericEvent> {
+  T create();
+}
@@ -87,4 +87,70 @@ public @interface EventHandler {
    *
    */
   Class<? extends GenericEvent>[] handles() default {};
+
+  /**
+   * <p>If positive, the annotated method is invoked at most once in each period
+   * of this many milliseconds. The first event in a period is delivered
+   * immediately, and the most recent event received during the rest of the
+   * period is delivered when it ends. Other events are dropped.</p>
+   *
+   * <p>This is useful for expensive handlers of high-frequency events such as
+   * scrolling or resizing:</p>
+   *
+   * <pre>
+   * {@literal @}EventHandler(throttleMillis = 100)
+   * void onScroll(ScrollPositionChangedEvent event) {
+   *   updateVisibleRows(event.getTop());
+   * }
+   * </pre>
+   *
+   * <p>Throttled events are delivered asynchronously at the end of a period,
+   * using the GWT {@code Scheduler} in the browser and a shared scheduled
+   * executor on the JVM. On the JVM they are therefore delivered on that
+   * executor's single daemon thread rather than on the thread that fired them,
+   * and a slow handler delays every other throttled or debounced handler.
+   * May not be combined with {@link #debounceMillis}.</p>
+   */
+  int throttleMillis() default 0;
+
+  /**
+   * <p>If positive, the annotated method is only invoked once no events have
+   * been received for this many milliseconds, and is passed the most recent
+   * event. Other events are dropped. This is useful for handlers that should
+   * wait for a burst of events to finish, such as searching as the user
+   * types:</p>
+   *
+   * <pre>
+   * {@literal @}EventHandler(debounceMillis = 300)
+   * void onSearchTextChanged(SearchTextChangedEvent event) {
+   *   server.search(event.getText());
+   * }
+   * </pre>
+   *
+   * <p>Debounced events are always delivered asynchronously, on the same
+   * shared timer thread as throttled events when running on the JVM. May not
+   * be combined with {@link #throttleMillis}.</p>
+   */
+  int debounceMillis() default 0;
+
+  /**
+   * <p>Position of the annotated method among the handlers for the same event
+   * type when it is bound to an {@link OrderedEventBus}. Handlers with a lower
+   * order are invoked first, and handlers with the same order are invoked in
+   * the order they were bound. Other event buses ignore this value.</p>
+   *
+   * <p>Combined with {@link GenericEvent#stopPropagation}, this lets a cheap
+   * handler consume an event before more expensive handlers see it:</p>
+   *
+   * <pre>
+   * {@literal @}EventHandler(order = -100)
+   * void onContactRequested(ContactRequestedEvent event) {
+   *   if (cache.contains(event.getId())) {
+   *     showContact(cache.get(event.getId()));
+   *     event.stopPropagation();
+   *   }
+   * }
+   * </pre>
+   */
+  int order() default 0;
 }
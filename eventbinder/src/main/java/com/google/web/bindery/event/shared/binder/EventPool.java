@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.EventBus;
+
+/**
+ * Pool of reusable instances of a {@link PooledEvent} subclass. Events are
+ * taken from the pool with {@link #acquire}, filled in, and fired with
+ * {@link #fire}, which returns them to the pool once the event bus has
+ * dispatched them, so that firing doesn't allocate once the pool is warm:
+ *
+ * <pre>
+ * private final EventPool&lt;PointerMoveEvent&gt; pool = new EventPool&lt;PointerMoveEvent&gt;(
+ *     new EventFactory&lt;PointerMoveEvent&gt;() {
+ *       public PointerMoveEvent create() {
+ *         return new PointerMoveEvent();
+ *       }
+ *     }, 4);
+ * ...
+ * pool.fire(eventBus, pool.acquire().setX(x));
+ * </pre>
+ *
+ * Pooled events must only be fired on event buses that dispatch them to every
+ * handler before {@code fireEvent} returns, and that don't keep them
+ * afterwards. The buses, dispatchers and handlers in this library that would
+ * keep them, such as {@link StickyEventBus}, the asynchronous buses on the JVM,
+ * throttled and debounced handlers and lazy bindings that haven't loaded yet,
+ * reject pooled events with an {@link IllegalArgumentException}.
+ * In debug mode, which is the default when assertions are enabled, released
+ * events are never reused, so any later access through
+ * {@link PooledEvent#checkNotReleased} fails instead of silently reading the
+ * fields of a newer event. Pools must only be used from one thread at a time.
+ *
+ * @param <T> type of event held by this pool
+ */
+public class EventPool<T extends PooledEvent> {
+
+  private final EventFactory<T> factory;
+  private final Object[] events;
+  private int size;
+  private int createdCount;
+  private boolean debug;
+
+  /**
+   * Creates a pool that creates events with the given factory and keeps up to
+   * the given number of released events for reuse.
+   */
+  public EventPool(EventFactory<T> factory, int capacity) {
+    this.factory = factory;
+    this.events = new Object[capacity];
+    assert debug = true; // Debug mode defaults to on when assertions are enabled
+  }
+
+  /**
+   * Sets whether released events are kept out of circulation so that handlers
+   * that access them later are detected.
+   */
+  public void setDebug(boolean debug) {
+    this.debug = debug;
+    if (debug) {
+      while (size > 0) {
+        events[--size] = null;
+      }
+    }
+  }
+
+  /**
+   * Returns an event from the pool, creating a new one if the pool is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public T acquire() {
+    T event;
+    if (size > 0) {
+      event = (T) events[--size];
+      events[size] = null;
+    } else {
+      event = factory.create();
+      createdCount++;
+    }
+    event.acquire();
+    return event;
+  }
+
+  /**
+   * Returns an event to the pool. The event must not be used afterwards.
+   *
+   * @throws IllegalStateException if the event has already been released
+   */
+  public void release(T event) {
+    event.release();
+    if (!debug && size < events.length) {
+      events[size++] = event;
+    }
+  }
+
+  /**
+   * Fires an event acquired from this pool on the given event bus, then
+   * releases it, even if a handler throws an exception.
+   */
+  public void fire(EventBus eventBus, T event) {
+    try {
+      eventBus.fireEvent(event);
+    } finally {
+      release(event);
+    }
+  }
+
+  /**
+   * Returns the number of released events waiting to be reused.
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the number of events created by this pool's factory.
+   */
+  public int getCreatedCount() {
+    return createdCount;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.impl.AbstractEventBinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the handlers bound by any number of {@link EventBinder}s, possibly on
+ * different event buses, so that they can all be released with a single call.
+ * This is useful for screens made up of several presenters that should stop
+ * listening for events at the same time:
+ *
+ * <pre>
+ * EventScope scope = new EventScope();
+ * scope.bind(contactsBinder, contactsPresenter, eventBus);
+ * scope.bind(sidebarBinder, sidebarPresenter, eventBus);
+ * ...
+ * scope.removeHandler(); // Unbinds both presenters
+ * </pre>
+ *
+ * Registrations for all binders are kept in a single list owned by the scope,
+ * so binding into a scope does not allocate a separate list for each binder.
+ * A scope can be reused after it has been released.
+ */
+public class EventScope implements HandlerRegistration {
+
+  private final List<HandlerRegistration> registrations = new ArrayList<HandlerRegistration>();
+
+  /**
+   * Binds the event handlers on the given target to the given event bus, in the
+   * same way as {@link EventBinder#bindEventHandlers}, and records the
+   * resulting registrations in this scope.
+   */
+  public <T> void bind(EventBinder<T> binder, T target, EventBus eventBus) {
+    if (binder instanceof AbstractEventBinder) {
+      ((AbstractEventBinder<T>) binder).bindEventHandlers(target, eventBus, registrations);
+    } else {
+      registrations.add(binder.bindEventHandlers(target, eventBus));
+    }
+  }
+
+  /**
+   * Records a registration that was created outside of an {@link EventBinder}
+   * so that it will be removed along with the rest of this scope.
+   */
+  public void add(HandlerRegistration registration) {
+    registrations.add(registration);
+  }
+
+  /**
+   * Returns the number of registrations currently held by this scope.
+   */
+  public int size() {
+    return registrations.size();
+  }
+
+  /**
+   * Removes every handler that was bound or added to this scope since it was
+   * created or last released.
+   */
+  @Override
+  public void removeHandler() {
+    for (HandlerRegistration registration : registrations) {
+      registration.removeHandler();
+    }
+    registrations.clear();
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for an {@link EventBinder} subinterface whose implementation
+ * should be generated by the EventBinder annotation processor when the
+ * interface is compiled with javac, rather than by the GWT generator during a
+ * GWT compile. The generated class has the same name as the one the GWT
+ * generator would produce, the name of the interface with its enclosing types
+ * joined by underscores followed by {@code Impl}, so {@code GWT.create} keeps
+ * working and simply reuses it. It can also be instantiated directly, which
+ * doesn't require GWT at all:
+ *
+ * <pre>
+ * {@literal @}GenerateEventBinder
+ * interface MyEventBinder extends EventBinder&lt;MyClass&gt; {}
+ * private static MyEventBinder eventBinder = new MyClass_MyEventBinderImpl();
+ * </pre>
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateEventBinder {}
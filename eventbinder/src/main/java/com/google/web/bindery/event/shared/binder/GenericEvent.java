@@ -55,6 +55,10 @@ import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
  * @author ekuefler@google.com (Erik Kuefler)
  */
 public abstract class GenericEvent extends GwtEvent<GenericEventHandler> {
+
+  private boolean propagationStopped;
+  private boolean shared;
+
   @Override
   public GenericEventType getAssociatedType() {
     return GenericEventType.getTypeOf(getClass());
@@ -64,4 +68,52 @@ public abstract class GenericEvent extends GwtEvent<GenericEventHandler> {
   protected void dispatch(GenericEventHandler handler) {
     handler.handleEvent(this);
   }
+
+  /**
+   * Stops this event from being delivered to any further handlers once the
+   * current handler returns. This is only honored by {@link OrderedEventBus},
+   * which invokes handlers by their {@link EventHandler#order}; other event
+   * buses still deliver the event to every handler.
+   */
+  public void stopPropagation() {
+    propagationStopped = true;
+  }
+
+  /**
+   * Returns whether a handler has called {@link #stopPropagation} during the
+   * current dispatch of this event.
+   */
+  public boolean isPropagationStopped() {
+    return propagationStopped;
+  }
+
+  /**
+   * Allows this event to be delivered to every handler again. Called by
+   * {@link OrderedEventBus} before each dispatch.
+   */
+  void resetPropagation() {
+    propagationStopped = false;
+  }
+
+  /**
+   * Clears the state left behind by a previous dispatch so that a shared
+   * instance can be fired again. Used by {@link GenericEvents#fireShared}.
+   */
+  void resetForReuse() {
+    revive();
+    resetPropagation();
+  }
+
+  /**
+   * Marks this event as the shared instance of its class. Called by
+   * {@link GenericEvents#fireShared} before the instance is first fired.
+   */
+  void markShared() {
+    shared = true;
+  }
+
+  /** Returns whether {@link #markShared} was called on this event. */
+  boolean isShared() {
+    return shared;
+  }
 }
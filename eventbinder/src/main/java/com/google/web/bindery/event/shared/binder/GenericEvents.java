@@ -0,0 +1,175 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+import com.google.web.bindery.event.shared.binder.impl.SharedEventInstances;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Static utilities for working with {@link GenericEvent}s.
+ */
+public final class GenericEvents {
+
+  /** The shared instance of each event class fired by {@link #fireShared}. */
+  private static final Map<Class<?>, SharedEvent> SHARED_EVENTS =
+      new HashMap<Class<?>, SharedEvent>();
+
+  /**
+   * Returns whether the given event bus may have a handler for the given event
+   * class. Buses that implement {@link HandlerCounter}, such as a
+   * {@link CountingEventBus}, answer this from the count of handlers added to
+   * them; for any other bus this conservatively returns true.
+   */
+  public static boolean isHandled(EventBus eventBus, Class<? extends GenericEvent> eventClass) {
+    return !(eventBus instanceof HandlerCounter)
+        || ((HandlerCounter) eventBus).getHandlerCount(GenericEventType.getTypeOf(eventClass)) > 0;
+  }
+
+  /**
+   * Fires an event created by the given factory on the given event bus, but
+   * only if {@link #isHandled} reports that the bus may have a handler for the
+   * event class. Otherwise the factory is never invoked, which avoids the cost
+   * of building events that nobody is listening for:
+   *
+   * <pre>
+   * EventBus eventBus = new CountingEventBus(new SimpleEventBus());
+   * ...
+   * GenericEvents.fireIfHandled(eventBus, ContactsLoadedEvent.class,
+   *     new EventFactory&lt;ContactsLoadedEvent&gt;() {
+   *       public ContactsLoadedEvent create() {
+   *         return new ContactsLoadedEvent(buildContactList());
+   *       }
+   *     });
+   * </pre>
+   *
+   * Events are only skipped on buses that implement {@link HandlerCounter};
+   * on other buses they are always built and fired.
+   *
+   * @return whether the event was created and fired
+   */
+  public static <T extends GenericEvent> boolean fireIfHandled(
+      EventBus eventBus, Class<T> eventClass, EventFactory<T> factory) {
+    if (!isHandled(eventBus, eventClass)) {
+      return false;
+    }
+    eventBus.fireEvent(factory.create());
+    return true;
+  }
+
+  /**
+   * Fires a single shared instance of an event on the given event bus, rather
+   * than allocating a new event each time. There is one shared instance per
+   * event class, created by the given factory the first time the class is fired
+   * this way and reused afterwards. This is only allowed for events without
+   * payload, which must have no instance fields:
+   *
+   * <pre>
+   * private static final EventFactory&lt;ContactScreenOpenedEvent&gt; SCREEN_OPENED =
+   *     new EventFactory&lt;ContactScreenOpenedEvent&gt;() {
+   *       public ContactScreenOpenedEvent create() {
+   *         return new ContactScreenOpenedEvent();
+   *       }
+   *     };
+   * ...
+   * GenericEvents.fireShared(eventBus, ContactScreenOpenedEvent.class, SCREEN_OPENED);
+   * </pre>
+   *
+   * Since nothing is looked up by class, only the events that are actually
+   * fired this way end up in compiled code. The shared instance is reset before
+   * and after each dispatch, so handlers see the same source and liveness as
+   * they would for a fresh event. If the shared instance is already being
+   * dispatched when this is called, as happens when a handler fires the same
+   * event again, a new instance from the factory is fired instead. Handlers
+   * must not hold on to the event after returning, and the buses and handlers
+   * in this library that would keep it reject it, as for a {@link PooledEvent}.
+   *
+   * @throws IllegalArgumentException if the factory creates events of another
+   *     class, or if the event class has instance fields; the latter is only
+   *     checked on the JVM
+   */
+  public static <T extends GenericEvent> void fireShared(
+      EventBus eventBus, Class<T> eventClass, EventFactory<T> factory) {
+    SharedEvent shared = acquireShared(eventClass, factory);
+    if (shared == null) {
+      eventBus.fireEvent(factory.create());
+      return;
+    }
+    try {
+      shared.event.resetForReuse();
+      eventBus.fireEvent(shared.event);
+    } finally {
+      shared.event.resetForReuse();
+      releaseShared(shared);
+    }
+  }
+
+  /**
+   * Returns the shared instance of the given class, created by the given
+   * factory if there is none yet, marked as firing, or null if it is already
+   * firing.
+   */
+  private static synchronized SharedEvent acquireShared(
+      Class<? extends GenericEvent> eventClass, EventFactory<?> factory) {
+    SharedEvent shared = SHARED_EVENTS.get(eventClass);
+    if (shared == null) {
+      GenericEvent event = factory.create();
+      if (event.getClass() != eventClass) {
+        throw new IllegalArgumentException("Factory for " + eventClass.getName()
+            + " created an event of " + event.getClass().getName());
+      }
+      if (!SharedEventInstances.isShareable(eventClass)) {
+        throw new IllegalArgumentException(eventClass.getName()
+            + " can't be shared because it has instance fields");
+      }
+      event.markShared();
+      shared = new SharedEvent(event);
+      SHARED_EVENTS.put(eventClass, shared);
+    }
+    if (shared.firing) {
+      return null;
+    }
+    shared.firing = true;
+    return shared;
+  }
+
+  private static synchronized void releaseShared(SharedEvent shared) {
+    shared.firing = false;
+  }
+
+  /**
+   * Returns whether the given event is the shared instance of its class, which
+   * is reused by {@link #fireShared} and so mustn't be retained after it has
+   * been dispatched.
+   */
+  public static boolean isShared(GenericEvent event) {
+    return event.isShared();
+  }
+
+  private static class SharedEvent {
+    final GenericEvent event;
+    boolean firing;
+
+    SharedEvent(GenericEvent event) {
+      this.event = event;
+    }
+  }
+
+  private GenericEvents() {}
+}
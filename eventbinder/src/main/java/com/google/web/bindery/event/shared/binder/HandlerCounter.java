@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.Event;
+
+/**
+ * Implemented by event buses that can cheaply report how many handlers are
+ * registered on them for an event type. {@link GenericEvents#fireIfHandled}
+ * uses this to skip building events that no handler on the bus would receive.
+ * Any event bus can be given this ability by wrapping it in a
+ * {@link CountingEventBus}.
+ */
+public interface HandlerCounter {
+
+  /**
+   * Returns the number of handlers currently registered on this event bus for
+   * the given type, not counting handlers registered to a specific source.
+   */
+  int getHandlerCount(Event.Type<?> type);
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for an {@link EventBinder} subinterface whose handlers should be
+ * loaded lazily, behind a {@code GWT.runAsync} split point. Binding a target
+ * with such a binder only registers a lightweight stub for each handled event
+ * type. The first event received by any of the stubs loads the real handlers,
+ * binds them in place of the stubs, and then delivers every event received
+ * while loading to them, in order. This keeps the handler code, and any code
+ * reachable only from it, out of the initial download:
+ *
+ * <pre>
+ * {@literal @}LazyEventBinder
+ * interface MyEventBinder extends EventBinder&lt;MyClass&gt; {}
+ * </pre>
+ *
+ * The binder interface is used as the name of the split point. If loading
+ * fails, the events received so far are dropped and the next event tries again.
+ * Lazy loading only applies to client code. On the JVM the handlers are bound
+ * synchronously when the first event arrives.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface LazyEventBinder {}
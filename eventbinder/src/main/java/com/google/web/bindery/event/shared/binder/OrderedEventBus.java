@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link EventBus} that invokes the handlers for each event type in the order
+ * given by {@link EventHandler#order}, lowest first. Handlers with the same
+ * order, including handlers added directly rather than by an
+ * {@link EventBinder}, are invoked in the order they were added. A handler can
+ * call {@link GenericEvent#stopPropagation} to keep the event from reaching
+ * the handlers after it:
+ *
+ * <pre>
+ * EventBus eventBus = new OrderedEventBus();
+ * eventBinder.bindEventHandlers(contactCache, eventBus); // order = -100
+ * eventBinder.bindEventHandlers(contactsPresenter, eventBus);
+ * </pre>
+ *
+ * The handlers for each event type are kept in an array that is sorted when a
+ * handler is added, so firing an event never sorts. As with
+ * {@link com.google.web.bindery.event.shared.SimpleEventBus}, handlers added or
+ * removed while an event is being dispatched won't affect that dispatch, and
+ * exceptions thrown by handlers are rethrown in an {@link UmbrellaException}
+ * once dispatch is finished.
+ */
+public class OrderedEventBus extends EventBus implements HandlerCounter {
+
+  private final Map<Event.Type<?>, Entry[]> entries = new HashMap<Event.Type<?>, Entry[]>();
+
+  @Override
+  public <H> HandlerRegistration addHandler(Event.Type<H> type, H handler) {
+    return addHandler(type, handler, BoundEventHandler.getOrderOf(handler));
+  }
+
+  /**
+   * Adds a handler that is invoked in the given order relative to the other
+   * handlers for the same event type, as if it had been bound from a method
+   * with that {@link EventHandler#order}.
+   */
+  public <H> HandlerRegistration addHandler(Event.Type<H> type, H handler, int order) {
+    return doAdd(type, null, handler, order);
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Event.Type<H> type, Object source, H handler) {
+    if (source == null) {
+      throw new NullPointerException("Cannot add a handler with a null source");
+    }
+    return doAdd(type, source, handler, BoundEventHandler.getOrderOf(handler));
+  }
+
+  @Override
+  public int getHandlerCount(Event.Type<?> type) {
+    Entry[] typeEntries = entries.get(type);
+    int count = 0;
+    if (typeEntries != null) {
+      for (Entry entry : typeEntries) {
+        if (entry.source == null) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    doFire(event, null);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    if (source == null) {
+      throw new NullPointerException("Cannot fire from a null source");
+    }
+    doFire(event, source);
+  }
+
+  private HandlerRegistration doAdd(Event.Type<?> type, Object source, Object handler, int order) {
+    if (type == null) {
+      throw new NullPointerException("Cannot add a handler with a null type");
+    }
+    if (handler == null) {
+      throw new NullPointerException("Cannot add a null handler");
+    }
+    Entry entry = new Entry(type, source, handler, order);
+    Entry[] oldEntries = entries.get(type);
+    if (oldEntries == null) {
+      entries.put(type, new Entry[] {entry});
+      return entry;
+    }
+    // Insert after every entry with the same or a lower order
+    int index = oldEntries.length;
+    while (index > 0 && oldEntries[index - 1].order > order) {
+      index--;
+    }
+    Entry[] newEntries = new Entry[oldEntries.length + 1];
+    System.arraycopy(oldEntries, 0, newEntries, 0, index);
+    newEntries[index] = entry;
+    System.arraycopy(oldEntries, index, newEntries, index + 1, oldEntries.length - index);
+    entries.put(type, newEntries);
+    return entry;
+  }
+
+  private void doRemove(Entry entry) {
+    Entry[] oldEntries = entries.get(entry.type);
+    if (oldEntries == null) {
+      return;
+    }
+    for (int i = 0; i < oldEntries.length; i++) {
+      if (oldEntries[i] == entry) {
+        if (oldEntries.length == 1) {
+          entries.remove(entry.type);
+        } else {
+          Entry[] newEntries = new Entry[oldEntries.length - 1];
+          System.arraycopy(oldEntries, 0, newEntries, 0, i);
+          System.arraycopy(oldEntries, i + 1, newEntries, i, newEntries.length - i);
+          entries.put(entry.type, newEntries);
+        }
+        return;
+      }
+    }
+  }
+
+  private void doFire(Event<?> event, Object source) {
+    if (event == null) {
+      throw new NullPointerException("Cannot fire null event");
+    }
+    if (source != null) {
+      setSourceOfEvent(event, source);
+    }
+    GenericEvent genericEvent = (event instanceof GenericEvent) ? (GenericEvent) event : null;
+    if (genericEvent != null) {
+      genericEvent.resetPropagation();
+    }
+    Entry[] snapshot = entries.get(event.getAssociatedType());
+    if (snapshot == null) {
+      return;
+    }
+    Set<Throwable> causes = null;
+    for (Entry entry : snapshot) {
+      if (entry.source != null && !entry.source.equals(source)) {
+        continue;
+      }
+      try {
+        dispatch(event, entry.handler);
+      } catch (Throwable e) {
+        if (causes == null) {
+          causes = new HashSet<Throwable>();
+        }
+        causes.add(e);
+      }
+      if (genericEvent != null && genericEvent.isPropagationStopped()) {
+        break;
+      }
+    }
+    if (causes != null) {
+      throw new UmbrellaException(causes);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <H> void dispatch(Event<H> event, Object handler) {
+    dispatchEvent(event, (H) handler);
+  }
+
+  /**
+   * A handler added to this bus, which also serves as its registration.
+   */
+  private final class Entry implements HandlerRegistration {
+    final Event.Type<?> type;
+    final Object source;
+    final Object handler;
+    final int order;
+
+    Entry(Event.Type<?> type, Object source, Object handler, int order) {
+      this.type = type;
+      this.source = source;
+      this.handler = handler;
+      this.order = order;
+    }
+
+    @Override
+    public void removeHandler() {
+      doRemove(this);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+/**
+ * Base class for events that are reused through an {@link EventPool} rather
+ * than allocated for every fire, for event types fired so often that the
+ * allocations become noticeable, such as pointer moves or animation ticks.
+ * <p>
+ * Unlike other {@link GenericEvent}s, pooled events are mutable: the code that
+ * fires them sets their fields after acquiring them from the pool. In return,
+ * handlers must not keep a reference to a pooled event, or to anything
+ * returned by its accessors that is reset on release, after they return.
+ * Accessors should call {@link #checkNotReleased} so that handlers breaking
+ * this rule are detected when the pool is in debug mode:
+ *
+ * <pre>
+ * public class PointerMoveEvent extends PooledEvent {
+ *   private int x;
+ *
+ *   PointerMoveEvent setX(int x) {
+ *     this.x = x;
+ *     return this;
+ *   }
+ *
+ *   public int getX() {
+ *     checkNotReleased();
+ *     return x;
+ *   }
+ * }
+ * </pre>
+ */
+public abstract class PooledEvent extends GenericEvent {
+
+  private boolean released;
+
+  /**
+   * Returns whether this event has been released to its pool and not acquired
+   * again since.
+   */
+  public final boolean isReleased() {
+    return released;
+  }
+
+  /**
+   * Throws an {@link IllegalStateException} if this event has been released.
+   * Pools in debug mode never reuse released events, so this reliably detects
+   * handlers that access a pooled event after their invocation.
+   */
+  protected final void checkNotReleased() {
+    if (released) {
+      throw new IllegalStateException("Pooled event " + getClass().getName()
+          + " was used after being released to its pool; handlers must not keep references "
+          + "to pooled events");
+    }
+  }
+
+  /**
+   * Called when this event is released to its pool. Subclasses can override it
+   * to clear references held in their fields.
+   */
+  protected void reset() {}
+
+  void acquire() {
+    released = false;
+    revive();
+  }
+
+  void release() {
+    if (released) {
+      throw new IllegalStateException(
+          "Pooled event " + getClass().getName() + " was released twice");
+    }
+    released = true;
+    kill();
+    reset();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+/**
+ * Implemented by events that concern a single entity, such as a document or a
+ * user, to identify that entity. Dispatchers that deliver events on several
+ * threads, such as the JVM's {@code PartitionedDispatcher}, use the key to
+ * send all events for the same entity through the same thread, so that they
+ * reach their handlers in the order in which they were fired:
+ *
+ * <pre>
+ * public class DocumentEditedEvent extends GenericEvent implements Routable {
+ *   private final String documentId;
+ *   ...
+ *   public Object getRoutingKey() {
+ *     return documentId;
+ *   }
+ * }
+ * </pre>
+ */
+public interface Routable {
+
+  /**
+   * Returns the key of the entity that this event concerns. Keys are compared
+   * with {@link Object#equals} and must have a consistent
+   * {@link Object#hashCode}. May return null for events that don't concern a
+   * particular entity.
+   */
+  Object getRoutingKey();
+}
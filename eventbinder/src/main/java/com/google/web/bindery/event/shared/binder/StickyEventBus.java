@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.Event.Type;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.impl.BindingListener;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Event bus that remembers the most recent event of selected
+ * {@link GenericEvent} types and replays it to handlers added later. All other
+ * calls are passed on to a delegate event bus. This lets a presenter that is
+ * bound after an event was fired, such as a screen that is reopened after its
+ * data was loaded, catch up without asking for the data again:
+ *
+ * <pre>
+ * StickyEventBus eventBus = new StickyEventBus(new SimpleEventBus());
+ * eventBus.makeSticky(ContactsLoadedEvent.class);
+ * eventBus.fireEvent(new ContactsLoadedEvent(contacts));
+ * ...
+ * eventBinder.bindEventHandlers(presenter, eventBus); // Receives the event now
+ * </pre>
+ *
+ * Only one event is kept for each sticky type, so memory use is bounded by the
+ * number of types passed to {@link #makeSticky}. A remembered event is replayed
+ * from {@link #addHandler}, or from {@link #addHandlerToSource} if it was fired
+ * from the same source, before the registration is returned. Call
+ * {@link #invalidate} once a remembered event no longer reflects the current
+ * state.
+ * <p>
+ * If a handler throws an exception while a remembered event is replayed to it,
+ * the handler is removed again and the exception is thrown from the call that
+ * added it, wrapped in an {@link UmbrellaException}. Events that are reused
+ * once they have been dispatched, such as {@link PooledEvent}s and the shared
+ * instances fired by {@link GenericEvents#fireShared}, can't be remembered, so
+ * firing one of a sticky type throws an {@link IllegalArgumentException}.
+ */
+public class StickyEventBus extends EventBus implements BindingListener {
+
+  private final EventBus delegate;
+
+  /**
+   * The most recent event of each sticky type, or null if none has been fired
+   * since the type was made sticky or last invalidated.
+   */
+  private final Map<Type<?>, GenericEvent> stickyEvents = new HashMap<Type<?>, GenericEvent>();
+
+  public StickyEventBus(EventBus delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Starts remembering the most recent event of the given class. Events of the
+   * class that were fired before this call are not remembered.
+   */
+  public void makeSticky(Class<? extends GenericEvent> eventClass) {
+    Type<?> type = GenericEventType.getTypeOf(eventClass);
+    if (!stickyEvents.containsKey(type)) {
+      stickyEvents.put(type, null);
+    }
+  }
+
+  /**
+   * Stops remembering events of the given class and forgets the most recent
+   * one.
+   */
+  public void makeNonSticky(Class<? extends GenericEvent> eventClass) {
+    stickyEvents.remove(GenericEventType.getTypeOf(eventClass));
+  }
+
+  /**
+   * Forgets the most recent event of the given class, so that it isn't replayed
+   * to handlers added later. The class remains sticky.
+   */
+  public void invalidate(Class<? extends GenericEvent> eventClass) {
+    Type<?> type = GenericEventType.getTypeOf(eventClass);
+    if (stickyEvents.containsKey(type)) {
+      stickyEvents.put(type, null);
+    }
+  }
+
+  /**
+   * Forgets the most recent event of every sticky class.
+   */
+  public void invalidateAll() {
+    for (Map.Entry<Type<?>, GenericEvent> entry : stickyEvents.entrySet()) {
+      entry.setValue(null);
+    }
+  }
+
+  /**
+   * Returns the most recent event of the given sticky class, or null if there
+   * is none or the class isn't sticky.
+   */
+  public <T extends GenericEvent> T getStickyEvent(Class<T> eventClass) {
+    @SuppressWarnings("unchecked")
+    T event = (T) stickyEvents.get(GenericEventType.getTypeOf(eventClass));
+    return event;
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    HandlerRegistration registration = delegate.addHandler(type, handler);
+    GenericEvent event = stickyEvents.get(type);
+    if (event != null) {
+      replay(event, handler, registration);
+    }
+    return registration;
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    HandlerRegistration registration = delegate.addHandlerToSource(type, source, handler);
+    GenericEvent event = stickyEvents.get(type);
+    if (event != null && source.equals(event.getSource())) {
+      replay(event, handler, registration);
+    }
+    return registration;
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    remember(event);
+    delegate.fireEvent(event);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    remember(event);
+    delegate.fireEventFromSource(event, source);
+  }
+
+  @Override
+  public void onBind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onBind(binder, target);
+    }
+  }
+
+  @Override
+  public void onUnbind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onUnbind(binder, target);
+    }
+  }
+
+  /**
+   * Dispatches a remembered event to a newly added handler. If the handler
+   * throws, it is removed again so that the caller, which never receives the
+   * registration, doesn't leak it.
+   */
+  private void replay(GenericEvent event, Object handler, HandlerRegistration registration) {
+    try {
+      dispatchEvent(event, (GenericEventHandler) handler);
+    } catch (RuntimeException e) {
+      registration.removeHandler();
+      throw new UmbrellaException(Collections.<Throwable>singleton(e));
+    }
+  }
+
+  /**
+   * Remembers the given event if its type is sticky. This happens before the
+   * event is fired so that handlers added while it is being dispatched also
+   * receive it.
+   */
+  private void remember(Event<?> event) {
+    if (event instanceof GenericEvent && stickyEvents.containsKey(event.getAssociatedType())) {
+      if (event instanceof PooledEvent || GenericEvents.isShared((GenericEvent) event)) {
+        throw new IllegalArgumentException("Can't remember " + event.getClass().getName()
+            + " because it is reused after being dispatched; fire a new instance of sticky"
+            + " events instead");
+      }
+      stickyEvents.put(event.getAssociatedType(), (GenericEvent) event);
+    }
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.Event.Type;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.impl.BindingListener;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.HandlerTimer;
+
+/**
+ * Event bus that records a span for each handler invocation, for viewing
+ * event traffic on a profiler timeline. Use it in place of the application's
+ * event bus and export the recording with {@link #getTraceJson}, which
+ * produces the Chrome trace event format understood by {@code chrome://tracing}
+ * and Perfetto:
+ *
+ * <pre>
+ * TracingEventBus eventBus = new TracingEventBus(new SimpleEventBus(), 100000);
+ * ... // Bind presenters to eventBus and exercise the application
+ * String json = eventBus.getTraceJson();
+ * </pre>
+ *
+ * Each span records the event class, the target class and method of the
+ * handler, its start time and duration, and its depth, which is the number of
+ * handlers already running when it started. Spans are stored in arrays
+ * allocated up front; once they are full, each new span replaces the oldest
+ * one, so recording never allocates and can be left on during load tests.
+ * Handlers must be added through this event bus to be recorded, and it must
+ * only be used from one thread at a time.
+ */
+public class TracingEventBus extends EventBus implements BindingListener {
+
+  private final EventBus delegate;
+  private final double startMillis = HandlerTimer.currentTimeMillis();
+
+  // Ring buffer of spans, in the order they ended
+  private final String[] eventNames;
+  private final String[] targetNames;
+  private final String[] methodNames;
+  private final double[] spanStarts;
+  private final double[] spanDurations;
+  private final int[] spanDepths;
+  private int next;
+  private int size;
+  private int overwrittenCount;
+
+  private int depth;
+
+  /**
+   * Creates an event bus that passes all calls on to the given event bus and
+   * keeps the given number of most recent spans.
+   */
+  public TracingEventBus(EventBus delegate, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.delegate = delegate;
+    eventNames = new String[capacity];
+    targetNames = new String[capacity];
+    methodNames = new String[capacity];
+    spanStarts = new double[capacity];
+    spanDurations = new double[capacity];
+    spanDepths = new int[capacity];
+  }
+
+  /**
+   * Returns the number of spans currently held.
+   */
+  public int getSpanCount() {
+    return size;
+  }
+
+  /**
+   * Returns the number of spans that were replaced by newer ones because the
+   * buffer was full.
+   */
+  public int getOverwrittenCount() {
+    return overwrittenCount;
+  }
+
+  /**
+   * Discards all recorded spans.
+   */
+  public void clear() {
+    for (int i = 0; i < eventNames.length; i++) {
+      eventNames[i] = targetNames[i] = methodNames[i] = null;
+    }
+    next = 0;
+    size = 0;
+    overwrittenCount = 0;
+  }
+
+  /**
+   * Returns the recorded spans, oldest first, as a JSON object in the Chrome
+   * trace event format. Times are in microseconds since this event bus was
+   * created.
+   */
+  public String getTraceJson() {
+    StringBuilder json = new StringBuilder("{\"traceEvents\":[");
+    for (int i = 0; i < size; i++) {
+      int index = (next - size + i + eventNames.length) % eventNames.length;
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("\n{\"name\":");
+      appendString(json, targetNames[index] + "." + methodNames[index]);
+      json.append(",\"cat\":\"EventBinder\",\"ph\":\"X\",\"pid\":1,\"tid\":1,\"ts\":")
+          .append(formatMicros(spanStarts[index]))
+          .append(",\"dur\":").append(formatMicros(spanDurations[index]))
+          .append(",\"args\":{\"event\":");
+      appendString(json, eventNames[index]);
+      json.append(",\"target\":");
+      appendString(json, targetNames[index]);
+      json.append(",\"method\":");
+      appendString(json, methodNames[index]);
+      json.append(",\"depth\":").append(spanDepths[index]).append("}}");
+    }
+    return json.append("\n],\"displayTimeUnit\":\"ms\"}").toString();
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandler(Type<H> type, H handler) {
+    return delegate.addHandler(type, wrap(handler));
+  }
+
+  @Override
+  public <H> HandlerRegistration addHandlerToSource(Type<H> type, Object source, H handler) {
+    return delegate.addHandlerToSource(type, source, wrap(handler));
+  }
+
+  @Override
+  public void fireEvent(Event<?> event) {
+    delegate.fireEvent(event);
+  }
+
+  @Override
+  public void fireEventFromSource(Event<?> event, Object source) {
+    delegate.fireEventFromSource(event, source);
+  }
+
+  @Override
+  public void onBind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onBind(binder, target);
+    }
+  }
+
+  @Override
+  public void onUnbind(EventBinder<?> binder, Object target) {
+    if (delegate instanceof BindingListener) {
+      ((BindingListener) delegate).onUnbind(binder, target);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <H> H wrap(final H handler) {
+    if (!(handler instanceof GenericEventHandler)) {
+      return handler;
+    }
+    Object target = BoundEventHandler.getTargetOf(handler);
+    String methodName = BoundEventHandler.getMethodNameOf(handler);
+    int order = BoundEventHandler.getOrderOf(handler);
+    final String targetName = target.getClass().getName();
+    final String spanMethodName = (methodName != null) ? methodName : "handleEvent";
+    return (H) new BoundEventHandler(target, methodName, order) {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        int spanDepth = depth++;
+        double start = HandlerTimer.currentTimeMillis();
+        try {
+          ((GenericEventHandler) handler).handleEvent(event);
+        } finally {
+          depth--;
+          record(event.getClass().getName(), targetName, spanMethodName, start,
+              HandlerTimer.currentTimeMillis() - start, spanDepth);
+        }
+      }
+    };
+  }
+
+  private void record(String eventName, String targetName, String methodName, double start,
+      double duration, int spanDepth) {
+    eventNames[next] = eventName;
+    targetNames[next] = targetName;
+    methodNames[next] = methodName;
+    spanStarts[next] = start - startMillis;
+    spanDurations[next] = duration;
+    spanDepths[next] = spanDepth;
+    next = (next + 1) % eventNames.length;
+    if (size < eventNames.length) {
+      size++;
+    } else {
+      overwrittenCount++;
+    }
+  }
+
+  private static String formatMicros(double millis) {
+    return String.valueOf(Math.round(millis * 1000));
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        String hex = Integer.toHexString(c);
+        json.append("\\u00").append(hex.length() == 1 ? "0" : "").append(hex);
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+}
@@ -20,6 +20,7 @@ import com.google.web.bindery.event.shared.HandlerRegistration;
 import com.google.web.bindery.event.shared.binder.EventBinder;
 import com.google.web.bindery.event.shared.binder.GenericEvent;
 
+import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -33,7 +34,19 @@ public abstract class AbstractEventBinder<T> implements EventBinder<T> {
 
   @Override
   public final HandlerRegistration bindEventHandlers(T target, EventBus eventBus) {
-    final List<HandlerRegistration> registrations = doBindEventHandlers(target, eventBus);
+    final List<HandlerRegistration> registrations = new LinkedList<HandlerRegistration>();
+    try {
+      doBindEventHandlers(target, eventBus, registrations);
+    } catch (RuntimeException e) {
+      // The caller never sees the registrations, so don't leave any behind
+      for (HandlerRegistration registration : registrations) {
+        registration.removeHandler();
+      }
+      throw e;
+    }
+    if (eventBus instanceof BindingListener) {
+      registrations.add(notifyBind(target, (BindingListener) eventBus));
+    }
     return new HandlerRegistration() {
       @Override
       public void removeHandler() {
@@ -45,11 +58,56 @@ public abstract class AbstractEventBinder<T> implements EventBinder<T> {
     };
   }
 
+  /**
+   * Binds handlers in the same way as {@link #bindEventHandlers(Object, EventBus)}, but adds each
+   * registration to the given list instead of allocating a new one for this call. This allows an
+   * {@link com.google.web.bindery.event.shared.binder.EventScope} to collect the registrations of
+   * many binders in a single structure.
+   */
+  public final void bindEventHandlers(
+      T target, EventBus eventBus, List<HandlerRegistration> registrations) {
+    int start = registrations.size();
+    try {
+      doBindEventHandlers(target, eventBus, registrations);
+    } catch (RuntimeException e) {
+      // Only undo this call, leaving the registrations that were already in the list
+      List<HandlerRegistration> added = registrations.subList(start, registrations.size());
+      for (HandlerRegistration registration : added) {
+        registration.removeHandler();
+      }
+      added.clear();
+      throw e;
+    }
+    if (eventBus instanceof BindingListener) {
+      registrations.add(notifyBind(target, (BindingListener) eventBus));
+    }
+  }
+
+  /**
+   * Tells the given listener that the target has been bound, and returns a registration that
+   * tells it that the target has been unbound when it is removed after the handlers.
+   */
+  private HandlerRegistration notifyBind(final T target, final BindingListener listener) {
+    listener.onBind(this, target);
+    return new HandlerRegistration() {
+      private boolean removed;
+
+      @Override
+      public void removeHandler() {
+        if (!removed) {
+          removed = true;
+          listener.onUnbind(AbstractEventBinder.this, target);
+        }
+      }
+    };
+  }
+
   /**
    * Implemented by EventBinderGenerator to do the actual work of binding event handlers on the
-   * target.
+   * target. Each registration should be added to the given list.
    */
-  protected abstract List<HandlerRegistration> doBindEventHandlers(T target, EventBus eventBus);
+  protected abstract void doBindEventHandlers(
+      T target, EventBus eventBus, List<HandlerRegistration> registrations);
 
   /**
    * Registers the given handler for the given event class on the given event bus. Factored out
@@ -61,6 +119,48 @@ public abstract class AbstractEventBinder<T> implements EventBinder<T> {
       List<HandlerRegistration> registrations,
       Class<U> type,
       GenericEventHandler handler) {
-    registrations.add(eventBus.addHandler(GenericEventType.getTypeOf(type), handler));
+    registrations.add(register(eventBus, type, handler));
+  }
+
+  /**
+   * Adds the given handler to the event bus and returns a registration that removes it again.
+   * Removing the registration more than once has no further effect.
+   */
+  static HandlerRegistration register(
+      EventBus eventBus, Class<? extends GenericEvent> type, final GenericEventHandler handler) {
+    final HandlerRegistration registration =
+        eventBus.addHandler(GenericEventType.getTypeOf(type), handler);
+    return new HandlerRegistration() {
+      private boolean removed;
+
+      @Override
+      public void removeHandler() {
+        if (!removed) {
+          removed = true;
+          registration.removeHandler();
+          if (handler instanceof RateLimitedEventHandler) {
+            ((RateLimitedEventHandler) handler).cancel();
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps the given handler so that it is invoked at most once every {@code millis} milliseconds.
+   * Called by generated code for handlers with {@link
+   * com.google.web.bindery.event.shared.binder.EventHandler#throttleMillis} set.
+   */
+  protected final GenericEventHandler throttle(int millis, GenericEventHandler handler) {
+    return RateLimitedEventHandler.throttle(millis, handler);
+  }
+
+  /**
+   * Wraps the given handler so that it is only invoked once no events have been received for
+   * {@code millis} milliseconds. Called by generated code for handlers with {@link
+   * com.google.web.bindery.event.shared.binder.EventHandler#debounceMillis} set.
+   */
+  protected final GenericEventHandler debounce(int millis, GenericEventHandler handler) {
+    return RateLimitedEventHandler.debounce(millis, handler);
   }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import com.google.web.bindery.event.shared.binder.EventBinder;
+
+/**
+ * Implemented by event buses that want to be told when an {@link EventBinder}
+ * binds or unbinds a target on them, for example to keep statistics per
+ * binder. Binders only notify the bus they are given, so event buses that
+ * decorate another bus implement this too and pass the notifications on to
+ * their delegate. Users shouldn't need to reference this class directly.
+ */
+public interface BindingListener {
+
+  /**
+   * Called after the given binder has bound the handlers of the given target.
+   */
+  void onBind(EventBinder<?> binder, Object target);
+
+  /**
+   * Called after the handlers that the given binder bound for the given target
+   * have been removed.
+   */
+  void onUnbind(EventBinder<?> binder, Object target);
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+/**
+ * A {@link GenericEventHandler} that invokes a method on a particular target
+ * object. Handlers created by generated {@link
+ * com.google.web.bindery.event.shared.binder.EventBinder}s extend this class so
+ * that event buses and dispatchers can tell which handlers belong to the same
+ * target, for example to avoid calling one target from several threads at
+ * once. Users shouldn't need to reference this class directly.
+ */
+public abstract class BoundEventHandler implements GenericEventHandler {
+
+  private final Object target;
+  private final String methodName;
+  private final int order;
+
+  protected BoundEventHandler(Object target) {
+    this(target, null);
+  }
+
+  protected BoundEventHandler(Object target, String methodName) {
+    this(target, methodName, 0);
+  }
+
+  protected BoundEventHandler(Object target, String methodName, int order) {
+    this.target = target;
+    this.methodName = methodName;
+    this.order = order;
+  }
+
+  /**
+   * Returns the object whose handler method is invoked by this handler.
+   */
+  public final Object getTarget() {
+    return target;
+  }
+
+  /**
+   * Returns the name of the method invoked by this handler, or null if it
+   * isn't known.
+   */
+  public final String getMethodName() {
+    return methodName;
+  }
+
+  /**
+   * Returns the {@link com.google.web.bindery.event.shared.binder.EventHandler#order}
+   * of the method invoked by this handler.
+   */
+  public final int getOrder() {
+    return order;
+  }
+
+  /**
+   * Returns the target of the given handler if it is a {@link
+   * BoundEventHandler}, or the handler itself otherwise.
+   */
+  public static Object getTargetOf(Object handler) {
+    return (handler instanceof BoundEventHandler)
+        ? ((BoundEventHandler) handler).getTarget()
+        : handler;
+  }
+
+  /**
+   * Returns the name of the method invoked by the given handler if it is a
+   * {@link BoundEventHandler}, or null otherwise.
+   */
+  public static String getMethodNameOf(Object handler) {
+    return (handler instanceof BoundEventHandler)
+        ? ((BoundEventHandler) handler).getMethodName()
+        : null;
+  }
+
+  /**
+   * Returns the order of the given handler if it is a {@link
+   * BoundEventHandler}, or 0 otherwise.
+   */
+  public static int getOrderOf(Object handler) {
+    return (handler instanceof BoundEventHandler)
+        ? ((BoundEventHandler) handler).getOrder()
+        : 0;
+  }
+}
@@ -19,9 +19,6 @@ import com.google.gwt.event.shared.GwtEvent.Type;
 import com.google.web.bindery.event.shared.binder.EventBinder;
 import com.google.web.bindery.event.shared.binder.GenericEvent;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Utility to maintain a mapping from subtypes of {@link GenericEvent} to 
  * {@link Type}s for those events. Users shouldn't need to reference this class
@@ -31,9 +28,6 @@ import java.util.Map;
  */
 public class GenericEventType extends Type<GenericEventHandler> {
 
-  private static final Map<Class<?>, GenericEventType> TYPE_MAP =
-      new HashMap<Class<?>, GenericEventType>();
-
   /**
    * Creates a new EventType for the given event class. Repeated invocations of
    * this method for the same type will return the same object. This method is
@@ -41,16 +35,22 @@ public class GenericEventType extends Type<GenericEventHandler> {
    * called directly by users.
    */
   public static <T extends GenericEvent> GenericEventType getTypeOf(Class<T> clazz) {
-    
-    GenericEventType eventType = TYPE_MAP.get(clazz);
-    
-    if (eventType == null) {
-      eventType = new GenericEventType();
-      TYPE_MAP.put(clazz, eventType);
-    }
-    
-    return eventType;
+    GenericEventType eventType = GenericEventTypeMap.get(clazz);
+    return (eventType != null)
+        ? eventType
+        : GenericEventTypeMap.putIfAbsent(clazz, new GenericEventType(clazz));
+  }
+
+  private final Class<?> eventClass;
+
+  private GenericEventType(Class<?> eventClass) {
+    this.eventClass = eventClass;
   }
 
-  private GenericEventType() {}
+  /**
+   * Returns the event class that this type was created for.
+   */
+  public Class<?> getEventClass() {
+    return eventClass;
+  }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Map from event classes to their {@link GenericEventType}s. This
+ * implementation is used on the JVM: the map is never modified after it is
+ * published, and new types are added to a copy which then replaces it, so
+ * that lookups proceed without locking when events are fired from many
+ * threads. A super-sourced implementation backed by a plain map is used in the
+ * browser, where there is no concurrency and copying would make registering
+ * types quadratic. Users shouldn't need to reference this class directly.
+ */
+final class GenericEventTypeMap {
+
+  private static volatile Map<Class<?>, GenericEventType> typeMap =
+      new HashMap<Class<?>, GenericEventType>();
+
+  /**
+   * Returns the type registered for the given class, or null if there is none.
+   */
+  static GenericEventType get(Class<?> clazz) {
+    return typeMap.get(clazz);
+  }
+
+  /**
+   * Registers the given type for the given class unless one is already
+   * registered, and returns the registered type.
+   */
+  static synchronized GenericEventType putIfAbsent(Class<?> clazz, GenericEventType eventType) {
+    GenericEventType existingType = typeMap.get(clazz);
+    if (existingType != null) {
+      return existingType;
+    }
+    Map<Class<?>, GenericEventType> newTypeMap = new HashMap<Class<?>, GenericEventType>(typeMap);
+    newTypeMap.put(clazz, eventType);
+    typeMap = newTypeMap;
+    return eventType;
+  }
+
+  private GenericEventTypeMap() {}
+}
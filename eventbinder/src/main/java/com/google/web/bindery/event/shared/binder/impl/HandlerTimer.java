@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cancellable one-shot timer used to delay invocations of event handlers.
+ * This implementation is used on the JVM and runs all timers on a single shared
+ * daemon thread. A super-sourced implementation based on the GWT
+ * {@link com.google.gwt.core.client.Scheduler} is used in the browser. Users
+ * shouldn't need to reference this class directly.
+ */
+public abstract class HandlerTimer {
+
+  private static ScheduledExecutorService executor;
+
+  private ScheduledFuture<?> future;
+
+  /**
+   * Returns the current time in milliseconds, measured from an arbitrary point.
+   */
+  public static double currentTimeMillis() {
+    return System.nanoTime() / 1000000.0;
+  }
+
+  private static synchronized ScheduledExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "EventBinder handler timer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+  /**
+   * Invoked when the timer fires, with the generation it was scheduled with.
+   * A run can start just as it is cancelled or rescheduled, so callers should
+   * ignore runs for a generation that is no longer current.
+   */
+  abstract void run(int generation);
+
+  /**
+   * Schedules this timer to run after the given delay, cancelling any run that
+   * is already scheduled.
+   */
+  synchronized void schedule(int delayMillis, final int generation) {
+    cancel();
+    future = getExecutor().schedule(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          HandlerTimer.this.run(generation);
+        } catch (Throwable e) {
+          Thread thread = Thread.currentThread();
+          thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+      }
+    }, delayMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Cancels the scheduled run of this timer, if any.
+   */
+  synchronized void cancel() {
+    if (future != null) {
+      future.cancel(false);
+      future = null;
+    }
+  }
+}
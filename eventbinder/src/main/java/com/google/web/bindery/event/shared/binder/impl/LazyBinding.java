@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.RunAsyncCallback;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.GenericEvents;
+import com.google.web.bindery.event.shared.binder.LazyEventBinder;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binding of a single target created by a {@link LazyEventBinder}. Registers
+ * a stub handler for each event type until the first event arrives, then loads
+ * and binds the real handlers and replays the events received in the meantime.
+ * Generated binders implement {@link #load} by calling {@code GWT.runAsync}
+ * with this object as the callback, and {@link #bindHandlers} by calling
+ * {@link #bind} for each handler. Events received before loading are kept
+ * until the handlers are bound, so {@link PooledEvent}s and shared instances
+ * fired by {@link GenericEvents#fireShared} are rejected with an
+ * {@link IllegalArgumentException} until then. Users shouldn't need to
+ * reference this class directly.
+ */
+public abstract class LazyBinding implements RunAsyncCallback {
+
+  private final EventBus eventBus;
+  private final List<HandlerRegistration> registrations;
+  private final List<HandlerRegistration> stubRegistrations = new ArrayList<HandlerRegistration>();
+
+  /** Real handlers for each event type, only kept while replaying events. */
+  private final Map<GenericEventType, List<GenericEventHandler>> handlers =
+      new HashMap<GenericEventType, List<GenericEventHandler>>();
+
+  private List<GenericEvent> pendingEvents = new ArrayList<GenericEvent>();
+  private boolean loading;
+  private boolean loaded;
+  private boolean released;
+
+  protected LazyBinding(EventBus eventBus, List<HandlerRegistration> registrations,
+      Class<? extends GenericEvent>... eventClasses) {
+    this.eventBus = eventBus;
+    this.registrations = registrations;
+    GenericEventHandler stub = new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        handleBeforeLoad(event);
+      }
+    };
+    for (Class<? extends GenericEvent> eventClass : eventClasses) {
+      stubRegistrations.add(AbstractEventBinder.register(eventBus, eventClass, stub));
+    }
+    registrations.add(new HandlerRegistration() {
+      @Override
+      public void removeHandler() {
+        release();
+      }
+    });
+  }
+
+  /**
+   * Starts loading the code for the real handlers, calling {@link #onSuccess}
+   * or {@link #onFailure} when done.
+   */
+  protected abstract void load();
+
+  /**
+   * Binds the real handlers by calling {@link #bind} for each of them.
+   */
+  protected abstract void bindHandlers();
+
+  /**
+   * Binds a real handler for the given event type. Called from
+   * {@link #bindHandlers}.
+   */
+  protected final void bind(Class<? extends GenericEvent> type, GenericEventHandler handler) {
+    registrations.add(AbstractEventBinder.register(eventBus, type, handler));
+    GenericEventType eventType = GenericEventType.getTypeOf(type);
+    List<GenericEventHandler> typeHandlers = handlers.get(eventType);
+    if (typeHandlers == null) {
+      typeHandlers = new ArrayList<GenericEventHandler>();
+      handlers.put(eventType, typeHandlers);
+    }
+    typeHandlers.add(handler);
+  }
+
+  @Override
+  public void onSuccess() {
+    if (released || loaded) {
+      return;
+    }
+    loaded = true;
+    bindHandlers();
+    removeStubs();
+    List<GenericEvent> events = pendingEvents;
+    pendingEvents = null;
+    try {
+      for (GenericEvent event : events) {
+        List<GenericEventHandler> typeHandlers = handlers.get(event.getAssociatedType());
+        if (typeHandlers != null) {
+          for (GenericEventHandler handler : typeHandlers) {
+            handler.handleEvent(event);
+          }
+        }
+      }
+    } finally {
+      handlers.clear();
+    }
+  }
+
+  @Override
+  public void onFailure(Throwable reason) {
+    loading = false;
+    if (pendingEvents != null) {
+      pendingEvents.clear();
+    }
+    throw new RuntimeException("Failed to load lazily bound event handlers", reason);
+  }
+
+  private void handleBeforeLoad(GenericEvent event) {
+    if (released || loaded) {
+      return;
+    }
+    if (event instanceof PooledEvent || GenericEvents.isShared(event)) {
+      throw new IllegalArgumentException("Cannot queue " + event.getClass().getName()
+          + " for a lazy binding because it is reused once fired");
+    }
+    pendingEvents.add(event);
+    if (!loading) {
+      loading = true;
+      if (GWT.isClient()) {
+        load();
+      } else {
+        onSuccess(); // There are no split points to load on the JVM
+      }
+    }
+  }
+
+  private void release() {
+    released = true;
+    pendingEvents = null;
+    removeStubs();
+  }
+
+  private void removeStubs() {
+    for (HandlerRegistration registration : stubRegistrations) {
+      registration.removeHandler();
+    }
+    stubRegistrations.clear();
+  }
+}
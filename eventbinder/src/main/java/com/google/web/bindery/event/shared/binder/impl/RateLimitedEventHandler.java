@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.GenericEvents;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+
+/**
+ * Wraps a handler so that it is throttled or debounced as specified by
+ * {@link EventHandler#throttleMillis} or {@link EventHandler#debounceMillis}.
+ * Each binding gets its own instance, so the rate of a handler is limited
+ * separately for each bound target. The wrapper reports the same target as the
+ * handler it wraps. Delayed events are delivered by a {@link HandlerTimer},
+ * which on the JVM means on its shared timer thread rather than on the thread
+ * that fired them. Since a delayed event is kept after it was fired,
+ * {@link PooledEvent}s and shared instances fired by
+ * {@link GenericEvents#fireShared} are rejected with an
+ * {@link IllegalArgumentException}.
+ * Users shouldn't need to reference this class directly.
+ */
+public class RateLimitedEventHandler extends BoundEventHandler {
+
+  private final GenericEventHandler delegate;
+  private final int millis;
+  private final boolean debounce;
+  private final HandlerTimer timer = new HandlerTimer() {
+    @Override
+    void run(int generation) {
+      handlePendingEvent(generation);
+    }
+  };
+
+  private GenericEvent pendingEvent;
+  /** Incremented whenever a run is scheduled or cancelled, so stale runs can be ignored. */
+  private int generation;
+  private boolean scheduled;
+  private double lastInvocationMillis = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Returns a handler that invokes the given handler at most once every
+   * {@code millis} milliseconds.
+   */
+  public static RateLimitedEventHandler throttle(int millis, GenericEventHandler delegate) {
+    return new RateLimitedEventHandler(delegate, millis, false);
+  }
+
+  /**
+   * Returns a handler that invokes the given handler once no events have been
+   * received for {@code millis} milliseconds.
+   */
+  public static RateLimitedEventHandler debounce(int millis, GenericEventHandler delegate) {
+    return new RateLimitedEventHandler(delegate, millis, true);
+  }
+
+  private RateLimitedEventHandler(GenericEventHandler delegate, int millis, boolean debounce) {
+    super(getTargetOf(delegate), getMethodNameOf(delegate), getOrderOf(delegate));
+    this.delegate = delegate;
+    this.millis = millis;
+    this.debounce = debounce;
+  }
+
+  @Override
+  public void handleEvent(GenericEvent event) {
+    if (event instanceof PooledEvent || GenericEvents.isShared(event)) {
+      throw new IllegalArgumentException("Cannot " + (debounce ? "debounce" : "throttle")
+          + " " + event.getClass().getName() + " because it is reused once fired");
+    }
+    GenericEvent eventToHandle = null;
+    synchronized (this) {
+      if (debounce) {
+        pendingEvent = event;
+        scheduled = true;
+        timer.schedule(millis, ++generation);
+      } else {
+        double now = HandlerTimer.currentTimeMillis();
+        double elapsed = now - lastInvocationMillis;
+        if (!scheduled && elapsed >= millis) {
+          lastInvocationMillis = now;
+          eventToHandle = event;
+        } else {
+          pendingEvent = event;
+          if (!scheduled) {
+            scheduled = true;
+            timer.schedule((int) Math.ceil(millis - elapsed), ++generation);
+          }
+        }
+      }
+    }
+    // Invoke the handler outside of the lock, since it may fire more events
+    if (eventToHandle != null) {
+      delegate.handleEvent(eventToHandle);
+    }
+  }
+
+  /**
+   * Drops any event waiting to be delivered. Called when the handler is
+   * unbound.
+   */
+  public synchronized void cancel() {
+    generation++;
+    timer.cancel();
+    pendingEvent = null;
+    scheduled = false;
+  }
+
+  private void handlePendingEvent(int runGeneration) {
+    GenericEvent eventToHandle;
+    synchronized (this) {
+      if (runGeneration != generation) {
+        // Cancelled or rescheduled after this run had already started
+        return;
+      }
+      eventToHandle = pendingEvent;
+      pendingEvent = null;
+      scheduled = false;
+      lastInvocationMillis = HandlerTimer.currentTimeMillis();
+    }
+    if (eventToHandle != null) {
+      delegate.handleEvent(eventToHandle);
+    }
+  }
+}
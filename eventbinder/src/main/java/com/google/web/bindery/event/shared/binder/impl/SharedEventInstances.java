@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Checks that events passed to
+ * {@link com.google.web.bindery.event.shared.binder.GenericEvents#fireShared}
+ * carry no payload. This implementation is used on the JVM and checks classes
+ * by reflection. A super-sourced implementation that accepts every class is
+ * used in the browser, where classes can't be inspected. Users shouldn't need
+ * to reference this class directly.
+ */
+public class SharedEventInstances {
+
+  /**
+   * Returns whether the given event class declares no instance fields, other
+   * than those inherited from {@link GenericEvent}.
+   */
+  public static boolean isShareable(Class<? extends GenericEvent> eventClass) {
+    for (Class<?> type = eventClass; type != GenericEvent.class; type = type.getSuperclass()) {
+      for (Field field : type.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private SharedEventInstances() {}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Browser implementation of the map from event classes to their
+ * {@link GenericEventType}s, backed by a plain map since there is only one
+ * thread. Users shouldn't need to reference this class directly.
+ */
+final class GenericEventTypeMap {
+
+  private static final Map<Class<?>, GenericEventType> typeMap =
+      new HashMap<Class<?>, GenericEventType>();
+
+  static GenericEventType get(Class<?> clazz) {
+    return typeMap.get(clazz);
+  }
+
+  static GenericEventType putIfAbsent(Class<?> clazz, GenericEventType eventType) {
+    GenericEventType existingType = typeMap.get(clazz);
+    if (existingType != null) {
+      return existingType;
+    }
+    typeMap.put(clazz, eventType);
+    return eventType;
+  }
+
+  private GenericEventTypeMap() {}
+}
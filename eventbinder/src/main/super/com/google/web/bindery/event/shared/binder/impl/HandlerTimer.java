@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.shared.binder.impl;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+/**
+ * Browser implementation of the timer used to delay invocations of event
+ * handlers, based on the GWT {@link Scheduler}. Users shouldn't need to
+ * reference this class directly.
+ */
+public abstract class HandlerTimer {
+
+  private RepeatingCommand command;
+
+  public static double currentTimeMillis() {
+    return Duration.currentTimeMillis();
+  }
+
+  abstract void run(int generation);
+
+  void schedule(int delayMillis, final int generation) {
+    cancel();
+    // Scheduled commands can't be cancelled, so remember which one is current
+    // and ignore any others.
+    command = new RepeatingCommand() {
+      @Override
+      public boolean execute() {
+        if (command == this) {
+          command = null;
+          run(generation);
+        }
+        return false;
+      }
+    };
+    Scheduler.get().scheduleFixedDelay(command, delayMillis);
+  }
+
+  void cancel() {
+    command = null;
+  }
+}
@@ -1,7 +1,22 @@
 package com.google.web.bindery.event;
 
 import com.google.web.bindery.event.shared.binder.EventBinderTest;
+import com.google.web.bindery.event.gwt.rebind.binder.EventBinderReportLinkerTest;
 import com.google.web.bindery.event.gwt.rebind.binder.EventBinderWriterTest;
+import com.google.web.bindery.event.gwt.rebind.binder.EventGraphTest;
+import com.google.web.bindery.event.apt.binder.EventBinderProcessorTest;
+import com.google.web.bindery.event.apt.binder.EventCodecProcessorTest;
+import com.google.web.bindery.event.server.binder.ConcurrentEventBusTest;
+import com.google.web.bindery.event.server.binder.EventBridgeTest;
+import com.google.web.bindery.event.server.binder.EventJournalTest;
+import com.google.web.bindery.event.server.binder.EventPublisherTest;
+import com.google.web.bindery.event.server.binder.FootprintTest;
+import com.google.web.bindery.event.server.binder.ParallelDispatcherTest;
+import com.google.web.bindery.event.server.binder.PartitionedDispatcherTest;
+import com.google.web.bindery.event.server.binder.ReflectiveEventBinderTest;
+import com.google.web.bindery.event.server.binder.ExecutorDispatcherTest;
+import com.google.web.bindery.event.server.binder.RingBufferEventBusTest;
+import com.google.web.bindery.event.server.binder.StatsEventBusTest;
 
 import com.google.gwt.junit.tools.GWTTestSuite;
 
@@ -11,5 +26,22 @@ import org.junit.runners.Suite;
 import org.junit.runner.RunWith;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({EventBinderTest.class, EventBinderWriterTest.class})
+@Suite.SuiteClasses({
+    EventBinderTest.class,
+    EventBinderWriterTest.class,
+    EventBinderReportLinkerTest.class,
+    EventGraphTest.class,
+    ConcurrentEventBusTest.class,
+    RingBufferEventBusTest.class,
+    ExecutorDispatcherTest.class,
+    ParallelDispatcherTest.class,
+    PartitionedDispatcherTest.class,
+    EventPublisherTest.class,
+    ReflectiveEventBinderTest.class,
+    EventBinderProcessorTest.class,
+    EventCodecProcessorTest.class,
+    EventBridgeTest.class,
+    EventJournalTest.class,
+    FootprintTest.class,
+    StatsEventBusTest.class})
 public class TestSuite {}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.apt.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Tests for {@link EventBinderProcessor}, which compile small sources with
+ * javac and check the generated binders.
+ */
+@RunWith(JUnit4.class)
+public class EventBinderProcessorTest {
+
+  private static final String EVENT_SOURCE = join(
+      "package test;",
+      "public class MyEvent extends com.google.web.bindery.event.shared.binder.GenericEvent {}");
+
+  private File outputDir;
+  private DiagnosticCollector<JavaFileObject> diagnostics;
+
+  @Before
+  public void setUp() throws IOException {
+    outputDir = File.createTempFile("eventbinder", "");
+    outputDir.delete();
+    outputDir.mkdir();
+    diagnostics = new DiagnosticCollector<JavaFileObject>();
+  }
+
+  @After
+  public void tearDown() {
+    delete(outputDir);
+  }
+
+  @Test
+  public void shouldGenerateSameBinderAsGwtGenerator() throws Exception {
+    assertTrue(compile(EVENT_SOURCE, join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "public class MyPresenter {",
+        "  @GenerateEventBinder interface MyEventBinder extends EventBinder<MyPresenter> {}",
+        "  @EventHandler(throttleMillis = 100) void onMyEvent(MyEvent event) {}",
+        "}")));
+
+    assertEquals(join(
+        "package test;",
+        "",
+        "import com.google.web.bindery.event.shared.EventBus;",
+        "import com.google.web.bindery.event.shared.HandlerRegistration;",
+        "import com.google.web.bindery.event.shared.binder.EventBinder;",
+        "import com.google.web.bindery.event.shared.binder.GenericEvent;",
+        "import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;",
+        "import java.util.List;",
+        "",
+        "public class MyPresenter_MyEventBinderImpl extends "
+            + "com.google.web.bindery.event.shared.binder.impl.AbstractEventBinder<test.MyPresenter> "
+            + "implements test.MyPresenter.MyEventBinder {",
+        "  protected void doBindEventHandlers(final test.MyPresenter target, "
+            + "EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "    bind(eventBus, registrations, test.MyEvent.class, "
+            + "throttle(100, new BoundEventHandler(target, \"onMyEvent\") {",
+        "      public void handleEvent(GenericEvent event) { "
+            + "target.onMyEvent((test.MyEvent) event); }",
+        "    }));",
+        "  }",
+        "}"), read(new File(outputDir, "test/MyPresenter_MyEventBinderImpl.java")));
+  }
+
+  @Test
+  public void shouldPassHandlerOrder() throws Exception {
+    assertTrue(compile(EVENT_SOURCE, join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "public class MyPresenter {",
+        "  @GenerateEventBinder interface MyEventBinder extends EventBinder<MyPresenter> {}",
+        "  @EventHandler(order = -5) void onMyEvent(MyEvent event) {}",
+        "}")));
+
+    assertTrue(read(new File(outputDir, "test/MyPresenter_MyEventBinderImpl.java")).contains(
+        "bind(eventBus, registrations, test.MyEvent.class, "
+            + "new BoundEventHandler(target, \"onMyEvent\", -5) {"));
+  }
+
+  @Test
+  public void shouldGenerateLazyBinder() throws Exception {
+    assertTrue(compile(EVENT_SOURCE, join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "public class MyPresenter {",
+        "  @GenerateEventBinder @LazyEventBinder",
+        "  interface MyEventBinder extends EventBinder<MyPresenter> {}",
+        "  @EventHandler void onMyEvent(MyEvent event) {}",
+        "}")));
+
+    assertEquals(join(
+        "package test;",
+        "",
+        "import com.google.gwt.core.client.GWT;",
+        "import com.google.web.bindery.event.shared.EventBus;",
+        "import com.google.web.bindery.event.shared.HandlerRegistration;",
+        "import com.google.web.bindery.event.shared.binder.EventBinder;",
+        "import com.google.web.bindery.event.shared.binder.GenericEvent;",
+        "import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;",
+        "import com.google.web.bindery.event.shared.binder.impl.LazyBinding;",
+        "import java.util.List;",
+        "",
+        "public class MyPresenter_MyEventBinderImpl extends "
+            + "com.google.web.bindery.event.shared.binder.impl.AbstractEventBinder<test.MyPresenter> "
+            + "implements test.MyPresenter.MyEventBinder {",
+        "  protected void doBindEventHandlers(final test.MyPresenter target, "
+            + "EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "    new LazyBinding(eventBus, registrations, test.MyEvent.class) {",
+        "      protected void load() {",
+        "        GWT.runAsync(test.MyPresenter.MyEventBinder.class, this);",
+        "      }",
+        "      protected void bindHandlers() {",
+        "        bind(test.MyEvent.class, new BoundEventHandler(target, \"onMyEvent\") {",
+        "          public void handleEvent(GenericEvent event) { "
+            + "target.onMyEvent((test.MyEvent) event); }",
+        "        });",
+        "      }",
+        "    };",
+        "  }",
+        "}"), read(new File(outputDir, "test/MyPresenter_MyEventBinderImpl.java")));
+  }
+
+  @Test
+  public void shouldGenerateWorkingBinder() throws Exception {
+    assertTrue(compile(EVENT_SOURCE, join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "public class BasePresenter {",
+        "  public int inheritedCount;",
+        "  @EventHandler void onMyEventInBase(MyEvent event) { inheritedCount++; }",
+        "}"), join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "public class MyPresenter extends BasePresenter {",
+        "  @GenerateEventBinder public interface MyEventBinder extends EventBinder<MyPresenter> {}",
+        "  public int count;",
+        "  public int countWithoutParameter;",
+        "  @EventHandler void onMyEvent(MyEvent event) { count++; }",
+        "  @EventHandler(handles = MyEvent.class) void onMyEventWithoutParameter() {",
+        "    countWithoutParameter++;",
+        "  }",
+        "}")));
+
+    ClassLoader classLoader =
+        new URLClassLoader(new URL[] {outputDir.toURI().toURL()}, getClass().getClassLoader());
+    Class<?> presenterClass = classLoader.loadClass("test.MyPresenter");
+    Object presenter = presenterClass.newInstance();
+    @SuppressWarnings("unchecked")
+    EventBinder<Object> binder = (EventBinder<Object>)
+        classLoader.loadClass("test.MyPresenter_MyEventBinderImpl").newInstance();
+    EventBus eventBus = new SimpleEventBus();
+    binder.bindEventHandlers(presenter, eventBus);
+
+    eventBus.fireEvent((GenericEvent) classLoader.loadClass("test.MyEvent").newInstance());
+
+    assertEquals(1, presenterClass.getField("count").get(presenter));
+    assertEquals(1, presenterClass.getField("countWithoutParameter").get(presenter));
+    assertEquals(1, presenterClass.getField("inheritedCount").get(presenter));
+  }
+
+  @Test
+  public void shouldFailOnAbstractEventParameter() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "public class MyPresenter {",
+        "  @GenerateEventBinder interface MyEventBinder extends EventBinder<MyPresenter> {}",
+        "  @EventHandler void onEvent(GenericEvent event) {}",
+        "}")));
+    assertTrue(hasError("Method onEvent annotated with @EventHandler without event classes"));
+  }
+
+  @Test
+  public void shouldFailOnInterfaceWithoutTypeParameter() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "import com.google.web.bindery.event.shared.binder.*;",
+        "@GenerateEventBinder interface MyEventBinder extends EventBinder {}")));
+    assertTrue(hasError("must extend EventBinder with a type parameter"));
+  }
+
+  private boolean compile(String... sources) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    try {
+      List<JavaFileObject> files = new ArrayList<JavaFileObject>();
+      for (String source : sources) {
+        files.add(new SourceFile(source));
+      }
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+          Arrays.asList("-classpath", System.getProperty("java.class.path"),
+              "-d", outputDir.getPath(), "-s", outputDir.getPath()),
+          null, files);
+      task.setProcessors(Arrays.asList(new EventBinderProcessor()));
+      return task.call();
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private boolean hasError(String message) {
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR
+          && diagnostic.getMessage(null).contains(message)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String read(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+      return scanner.hasNext() ? scanner.next() : "";
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private static String join(String... strings) {
+    StringBuilder builder = new StringBuilder();
+    for (String string : strings) {
+      builder.append(string).append('\n');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Source file held in memory, named after the public class it declares.
+   */
+  private static class SourceFile extends SimpleJavaFileObject {
+    private static final Pattern DECLARATION =
+        Pattern.compile("(?s)package ([\\w.]+);.*?(?:class|interface) (\\w+)");
+
+    private final String source;
+
+    SourceFile(String source) {
+      super(URI.create("string:///" + getClassName(source).replace('.', '/') + ".java"),
+          Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+
+    private static String getClassName(String source) {
+      Matcher matcher = DECLARATION.matcher(source);
+      matcher.find();
+      return matcher.group(1) + "." + matcher.group(2);
+    }
+  }
+}
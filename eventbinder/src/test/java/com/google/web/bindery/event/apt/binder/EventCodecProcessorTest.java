@@ -0,0 +1,337 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.apt.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.web.bindery.event.server.binder.EventCodec;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Tests for {@link EventCodecProcessor}, which compile small events with javac
+ * and check the generated codecs.
+ */
+@RunWith(JUnit4.class)
+public class EventCodecProcessorTest {
+
+  private static final String EVENT_SOURCE = join(
+      "package test;",
+      "import com.google.web.bindery.event.shared.binder.*;",
+      "import java.util.List;",
+      "@Bridgeable public class MyEvent extends GenericEvent {",
+      "  public enum Color { RED, GREEN }",
+      "  final int count;",
+      "  private final String name;",
+      "  private final Long id;",
+      "  private final List<Color> colors;",
+      "  public MyEvent(int count, String name, Long id, List<Color> colors) {",
+      "    this.count = count;",
+      "    this.name = name;",
+      "    this.id = id;",
+      "    this.colors = colors;",
+      "  }",
+      "  public int getCount() { return count; }",
+      "  public String getName() { return name; }",
+      "  public Long getId() { return id; }",
+      "  public List<Color> getColors() { return colors; }",
+      "}");
+
+  private File outputDir;
+  private DiagnosticCollector<JavaFileObject> diagnostics;
+
+  @Before
+  public void setUp() throws IOException {
+    outputDir = File.createTempFile("eventbinder", "");
+    outputDir.delete();
+    outputDir.mkdir();
+    diagnostics = new DiagnosticCollector<JavaFileObject>();
+  }
+
+  @After
+  public void tearDown() {
+    delete(outputDir);
+  }
+
+  @Test
+  public void shouldGenerateCodec() throws Exception {
+    assertTrue(compile(EVENT_SOURCE));
+
+    assertEquals(join(
+        "package com.google.web.bindery.event.server.binder.codecs.test;",
+        "",
+        "import com.google.web.bindery.event.server.binder.EventCodec;",
+        "import java.io.DataInput;",
+        "import java.io.DataOutput;",
+        "import java.io.IOException;",
+        "",
+        "public class MyEventCodec extends EventCodec<test.MyEvent> {",
+        "  public void encode(test.MyEvent event, DataOutput out) throws IOException {",
+        "    int f0 = event.getCount();",
+        "    writeVarInt(out, f0);",
+        "    java.lang.String f1 = event.getName();",
+        "    writeString(out, f1);",
+        "    java.lang.Long f2 = event.getId();",
+        "    if (writeNotNull(out, f2)) { writeVarLong(out, f2); }",
+        "    java.util.List<test.MyEvent.Color> f3 = event.getColors();",
+        "    if (writeNotNull(out, f3)) {",
+        "      writeVarInt(out, f3.size());",
+        "      for (test.MyEvent.Color e : f3) {",
+        "        writeEnum(out, e);",
+        "      }",
+        "    }",
+        "  }",
+        "  public test.MyEvent decode(DataInput in) throws IOException {",
+        "    int f0 = readVarInt(in);",
+        "    java.lang.String f1 = readString(in);",
+        "    java.lang.Long f2 = in.readBoolean() ? java.lang.Long.valueOf(readVarLong(in)) : null;",
+        "    java.util.List<test.MyEvent.Color> f3 = null;",
+        "    if (in.readBoolean()) {",
+        "      int f3Size = readSize(in);",
+        "      f3 = new java.util.ArrayList<test.MyEvent.Color>(f3Size);",
+        "      for (int i = 0; i < f3Size; i++) {",
+        "        f3.add(readEnum(in, test.MyEvent.Color.class));",
+        "      }",
+        "    }",
+        "    return new test.MyEvent(f0, f1, f2, f3);",
+        "  }",
+        "}"), read(new File(outputDir,
+        "com/google/web/bindery/event/server/binder/codecs/test/MyEventCodec.java")));
+  }
+
+  @Test
+  public void shouldRoundTripEvents() throws Exception {
+    assertTrue(compile(EVENT_SOURCE));
+    ClassLoader classLoader = new URLClassLoader(
+        new URL[] {outputDir.toURI().toURL()}, getClass().getClassLoader());
+    Class<?> eventClass = classLoader.loadClass("test.MyEvent");
+    Class<?> colorClass = classLoader.loadClass("test.MyEvent$Color");
+    Object green = colorClass.getEnumConstants()[1];
+
+    GenericEvent event = roundTrip(eventClass, (GenericEvent) eventClass
+        .getConstructor(int.class, String.class, Long.class, List.class)
+        .newInstance(-300, "h\u00e9llo", Long.MIN_VALUE, Arrays.asList(green, null)));
+    assertEquals(-300, eventClass.getMethod("getCount").invoke(event));
+    assertEquals("h\u00e9llo", eventClass.getMethod("getName").invoke(event));
+    assertEquals(Long.MIN_VALUE, eventClass.getMethod("getId").invoke(event));
+    assertEquals(Arrays.asList(green, null), eventClass.getMethod("getColors").invoke(event));
+
+    event = roundTrip(eventClass, (GenericEvent) eventClass
+        .getConstructor(int.class, String.class, Long.class, List.class)
+        .newInstance(0, null, null, null));
+    assertNull(eventClass.getMethod("getName").invoke(event));
+    assertNull(eventClass.getMethod("getId").invoke(event));
+    assertNull(eventClass.getMethod("getColors").invoke(event));
+  }
+
+  @Test
+  public void shouldFailOnNonFinalField() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "@com.google.web.bindery.event.shared.binder.Bridgeable",
+        "public class MyEvent extends com.google.web.bindery.event.shared.binder.GenericEvent {",
+        "  public int count;",
+        "  public MyEvent(int count) { this.count = count; }",
+        "}")));
+    assertTrue(hasError("Field count of MyEvent must be final to be bridged"));
+  }
+
+  @Test
+  public void shouldFailOnUnsupportedField() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "@com.google.web.bindery.event.shared.binder.Bridgeable",
+        "public class MyEvent extends com.google.web.bindery.event.shared.binder.GenericEvent {",
+        "  public final Object value;",
+        "  public MyEvent(Object value) { this.value = value; }",
+        "}")));
+    assertTrue(hasError("Field value of MyEvent has type java.lang.Object, which can't be bridged"));
+  }
+
+  @Test
+  public void shouldFailOnUnreadableField() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "@com.google.web.bindery.event.shared.binder.Bridgeable",
+        "public class MyEvent extends com.google.web.bindery.event.shared.binder.GenericEvent {",
+        "  private final int count;",
+        "  public MyEvent(int count) { this.count = count; }",
+        "}")));
+    assertTrue(hasError("Field count of MyEvent must be public or readable through a public get"));
+  }
+
+  @Test
+  public void shouldFailWithoutConstructorForAllFields() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "@com.google.web.bindery.event.shared.binder.Bridgeable",
+        "public class MyEvent extends com.google.web.bindery.event.shared.binder.GenericEvent {",
+        "  public final int count;",
+        "  public final String name;",
+        "  public MyEvent(String name, int count) { this.count = count; this.name = name; }",
+        "  MyEvent(int count, String name) { this.count = count; this.name = name; }",
+        "}")));
+    assertTrue(hasError("MyEvent must have a public constructor taking all of its fields"));
+  }
+
+  @Test
+  public void shouldFailOnNonPublicEvent() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "public class Outer {",
+        "  @com.google.web.bindery.event.shared.binder.Bridgeable",
+        "  static class MyEvent extends com.google.web.bindery.event.shared.binder.GenericEvent {}",
+        "}")));
+    assertTrue(hasError("@Bridgeable can only be applied to public"));
+  }
+
+  @Test
+  public void shouldFailOnNonEvent() throws Exception {
+    assertFalse(compile(join(
+        "package test;",
+        "@com.google.web.bindery.event.shared.binder.Bridgeable",
+        "public class MyEvent {}")));
+    assertTrue(hasError("@Bridgeable can only be applied to"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static GenericEvent roundTrip(Class<?> eventClass, GenericEvent event)
+      throws IOException {
+    EventCodec<GenericEvent> codec =
+        EventCodec.of((Class<GenericEvent>) eventClass);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    codec.encode(event, new DataOutputStream(bytes));
+    return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  private boolean compile(String... sources) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+    try {
+      List<JavaFileObject> files = new ArrayList<JavaFileObject>();
+      for (String source : sources) {
+        files.add(new SourceFile(source));
+      }
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+          Arrays.asList("-classpath", System.getProperty("java.class.path"),
+              "-d", outputDir.getPath(), "-s", outputDir.getPath()),
+          null, files);
+      task.setProcessors(Arrays.asList(new EventCodecProcessor()));
+      return task.call();
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private boolean hasError(String message) {
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+      if (diagnostic.getKind() == Diagnostic.Kind.ERROR
+          && diagnostic.getMessage(null).contains(message)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String read(File file) throws IOException {
+    InputStream in = new FileInputStream(file);
+    try {
+      Scanner scanner = new Scanner(in, "UTF-8").useDelimiter("\\A");
+      return scanner.hasNext() ? scanner.next() : "";
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private static String join(String... strings) {
+    StringBuilder builder = new StringBuilder();
+    for (String string : strings) {
+      builder.append(string).append('\n');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Source file held in memory, named after the public class it declares.
+   */
+  private static class SourceFile extends SimpleJavaFileObject {
+    private static final Pattern DECLARATION =
+        Pattern.compile("(?s)package ([\\w.]+);.*?public class (\\w+)");
+
+    private final String source;
+
+    SourceFile(String source) {
+      super(URI.create("string:///" + getClassName(source).replace('.', '/') + ".java"),
+          Kind.SOURCE);
+      this.source = source;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+
+    private static String getClassName(String source) {
+      Matcher matcher = DECLARATION.matcher(source);
+      matcher.find();
+      return matcher.group(1) + "." + matcher.group(2);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.gwt.rebind.binder;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link EventBinderReportLinker}.
+ */
+@RunWith(JUnit4.class)
+public class EventBinderReportLinkerTest {
+
+  @Test
+  public void shouldWriteLargestBindersFirst() {
+    BinderSizeArtifact small = new BinderSizeArtifact("com.example.Small.Binder",
+        "com.example.Small", 1, 0, Arrays.asList("com.example.FirstEvent"), 100);
+    BinderSizeArtifact large = new BinderSizeArtifact("com.example.Large.Binder",
+        "com.example.Large", 3, 2,
+        Arrays.asList("com.example.FirstEvent", "com.example.SecondEvent"), 300);
+
+    StringWriter output = new StringWriter();
+    EventBinderReportLinker.writeReport(Arrays.asList(small, large), new PrintWriter(output));
+
+    assertEquals(join(
+        "Summary:",
+        "  binders: 2",
+        "  handlers: 4 (2 inherited)",
+        "  generated source: 400 chars",
+        "",
+        "com.example.Large.Binder:",
+        "  target: com.example.Large",
+        "  handlers: 3 (2 inherited)",
+        "  generated source: 300 chars (75% of total)",
+        "  event types:",
+        "    com.example.FirstEvent",
+        "    com.example.SecondEvent",
+        "",
+        "com.example.Small.Binder:",
+        "  target: com.example.Small",
+        "  handlers: 1 (0 inherited)",
+        "  generated source: 100 chars (25% of total)",
+        "  event types:",
+        "    com.example.FirstEvent"), output.toString());
+  }
+
+  private String join(String... strings) {
+    StringBuilder builder = new StringBuilder();
+    for (String string : strings) {
+      builder.append(string).append(System.getProperty("line.separator"));
+    }
+    return builder.toString();
+  }
+}
@@ -45,6 +45,8 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -73,7 +75,7 @@ public class EventBinderWriterTest {
 
     typeOracle = createTypeOracle();
     genericEventType = getEventType(GenericEvent.class);
-    writer = new EventBinderWriter(logger, genericEventType);
+    writer = new EventBinderWriter(logger, genericEventType, false);
     output = new StringSourceWriter();
   }
 
@@ -94,28 +96,143 @@ public class EventBinderWriterTest {
     writer.writeDoBindEventHandlers(target, output, typeOracle);
 
     assertEquals(join(
-        "protected List<HandlerRegistration> doBindEventHandlers("
-            + "final MyTarget target, EventBus eventBus) {",
-        "  List<HandlerRegistration> registrations = new LinkedList<HandlerRegistration>();",
-        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new GenericEventHandler() {",
+        "protected void doBindEventHandlers("
+            + "final MyTarget target, EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new BoundEventHandler(target, \"method1\") {",
         "    public void handleEvent(GenericEvent event) { target.method1((" + className(MyEvent1.class) + ") event); }",
         "  });",
-        "  bind(eventBus, registrations, " + className(MyEvent2.class) +".class, new GenericEventHandler() {",
+        "  bind(eventBus, registrations, " + className(MyEvent2.class) +".class, new BoundEventHandler(target, \"method2\") {",
         "    public void handleEvent(GenericEvent event) { target.method2((" + className(MyEvent2.class) + ") event); }",
         "  });",
-        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new GenericEventHandler() {",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new BoundEventHandler(target, \"method3\") {",
         "    public void handleEvent(GenericEvent event) { target.method3((" + className(MyEvent1.class) +") event); }",
         "  });",
-        "  bind(eventBus, registrations, " + className(MyEvent2.class) + ".class, new GenericEventHandler() {",
+        "  bind(eventBus, registrations, " + className(MyEvent2.class) + ".class, new BoundEventHandler(target, \"method3\") {",
         "    public void handleEvent(GenericEvent event) { target.method3((" + className(MyEvent2.class) + ") event); }",
         "  });",
-        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new GenericEventHandler() {",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new BoundEventHandler(target, \"method4\") {",
         "    public void handleEvent(GenericEvent event) { target.method4(); }",
         "  });",
-        "  return registrations;",
         "}"), output.toString());
   }
 
+  @Test
+  public void shouldWriteHandlerOrder() throws Exception {
+    JClassType eventType1 = getEventType(MyEvent1.class);
+    JMethod method1 = newMethod("method1", eventType1);
+    when(method1.getAnnotation(EventHandler.class).order()).thenReturn(-5);
+
+    when(target.getQualifiedSourceName()).thenReturn("MyTarget");
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method1});
+
+    writer.writeDoBindEventHandlers(target, output, typeOracle);
+
+    assertEquals(join(
+        "protected void doBindEventHandlers("
+            + "final MyTarget target, EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new BoundEventHandler(target, \"method1\", -5) {",
+        "    public void handleEvent(GenericEvent event) { target.method1((" + className(MyEvent1.class) + ") event); }",
+        "  });",
+        "}"), output.toString());
+  }
+
+  @Test
+  public void shouldCountBoundHandlers() throws Exception {
+    JClassType eventType1 = getEventType(MyEvent1.class);
+    JMethod method1 = newMethod("method1", eventType1);
+    when(method1.getEnclosingType()).thenReturn(target);
+    JMethod method2 = newMethod("method2", new JType[] {genericEventType},
+        new Class[] {MyEvent1.class, MyEvent2.class});
+    when(method2.getEnclosingType()).thenReturn(mock(JClassType.class));
+
+    when(target.getQualifiedSourceName()).thenReturn("MyTarget");
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method1, method2});
+
+    writer.writeDoBindEventHandlers(target, output, typeOracle);
+
+    assertEquals(2, writer.getHandlerCount());
+    assertEquals(1, writer.getInheritedHandlerCount());
+    assertEquals(Arrays.asList(className(MyEvent1.class), className(MyEvent2.class)),
+        new ArrayList<String>(writer.getEventTypes()));
+  }
+
+  @Test
+  public void shouldWriteRateLimitedHandlers() throws Exception {
+    JClassType eventType1 = getEventType(MyEvent1.class);
+    JMethod method1 = newMethod("method1", eventType1);
+    when(method1.getAnnotation(EventHandler.class).throttleMillis()).thenReturn(100);
+    JMethod method2 = newMethod("method2", eventType1);
+    when(method2.getAnnotation(EventHandler.class).debounceMillis()).thenReturn(250);
+
+    when(target.getQualifiedSourceName()).thenReturn("MyTarget");
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method1, method2});
+
+    writer.writeDoBindEventHandlers(target, output, typeOracle);
+
+    assertEquals(join(
+        "protected void doBindEventHandlers("
+            + "final MyTarget target, EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, throttle(100, new BoundEventHandler(target, \"method1\") {",
+        "    public void handleEvent(GenericEvent event) { target.method1((" + className(MyEvent1.class) + ") event); }",
+        "  }));",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, debounce(250, new BoundEventHandler(target, \"method2\") {",
+        "    public void handleEvent(GenericEvent event) { target.method2((" + className(MyEvent1.class) + ") event); }",
+        "  }));",
+        "}"), output.toString());
+  }
+
+  @Test
+  public void shouldWriteLazyBinder() throws Exception {
+    JClassType eventType1 = getEventType(MyEvent1.class);
+    JMethod method1 = newMethod("method1", eventType1);
+    when(method1.getAnnotation(EventHandler.class).throttleMillis()).thenReturn(100);
+    JMethod method2 = newMethod("method2", new JType[] {},
+        new Class[] {MyEvent1.class, MyEvent2.class});
+
+    when(target.getQualifiedSourceName()).thenReturn("MyTarget");
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method1, method2});
+
+    writer.writeLazyDoBindEventHandlers(target, "MyTarget.MyBinder", output, typeOracle);
+
+    assertEquals(join(
+        "protected void doBindEventHandlers("
+            + "final MyTarget target, EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "  new LazyBinding(eventBus, registrations, " + className(MyEvent1.class) + ".class, "
+            + className(MyEvent2.class) + ".class) {",
+        "    protected void load() {",
+        "      GWT.runAsync(MyTarget.MyBinder.class, this);",
+        "    }",
+        "    protected void bindHandlers() {",
+        "      bind(" + className(MyEvent1.class) + ".class, throttle(100, new BoundEventHandler(target, \"method1\") {",
+        "        public void handleEvent(GenericEvent event) { target.method1((" + className(MyEvent1.class) + ") event); }",
+        "      }));",
+        "      bind(" + className(MyEvent1.class) + ".class, new BoundEventHandler(target, \"method2\") {",
+        "        public void handleEvent(GenericEvent event) { target.method2(); }",
+        "      });",
+        "      bind(" + className(MyEvent2.class) + ".class, new BoundEventHandler(target, \"method2\") {",
+        "        public void handleEvent(GenericEvent event) { target.method2(); }",
+        "      });",
+        "    }",
+        "  };",
+        "}"), output.toString());
+  }
+
+  @Test
+  public void shouldFailOnThrottleAndDebounce() throws Exception {
+    JMethod method = newMethod("myMethod", getEventType(MyEvent1.class));
+    when(method.getAnnotation(EventHandler.class).throttleMillis()).thenReturn(100);
+    when(method.getAnnotation(EventHandler.class).debounceMillis()).thenReturn(100);
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    try {
+      writer.writeDoBindEventHandlers(target, output, typeOracle);
+      fail("Exception not thrown");
+    } catch (UnableToCompleteException expected) {}
+
+    verify(logger).log(
+        eq(Type.ERROR), contains("myMethod"), isNull(Throwable.class), isNull(HelpInfo.class));
+  }
+
   @Test
   public void shouldFailOnZeroParametersWithoutEvents() throws Exception {
     JMethod method = newMethod("myMethod");
@@ -212,6 +329,48 @@ public class EventBinderWriterTest {
         eq(Type.ERROR), contains("myMethod"), isNull(Throwable.class), isNull(HelpInfo.class));
   }
 
+  @Test
+  public void shouldWarnAboutHandlersForAbstractEvents() throws Exception {
+    when(getEventType(AbstractEvent.class).isAbstract()).thenReturn(true);
+    JMethod method = newMethod("myMethod", new JType[] {}, new Class[] {AbstractEvent.class});
+    when(target.getQualifiedSourceName()).thenReturn("MyTarget");
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    writer.writeDoBindEventHandlers(target, output, typeOracle);
+
+    verify(logger).log(
+        eq(Type.WARN), contains("myMethod"), isNull(Throwable.class), isNull(HelpInfo.class));
+    assertEquals(join(
+        "protected void doBindEventHandlers("
+            + "final MyTarget target, EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "  bind(eventBus, registrations, " + className(AbstractEvent.class) + ".class, new BoundEventHandler(target, \"myMethod\") {",
+        "    public void handleEvent(GenericEvent event) { target.myMethod(); }",
+        "  });",
+        "}"), output.toString());
+  }
+
+  @Test
+  public void shouldSkipHandlersForAbstractEventsWhenConfigured() throws Exception {
+    when(getEventType(AbstractEvent.class).isAbstract()).thenReturn(true);
+    JMethod method = newMethod("myMethod", new JType[] {genericEventType},
+        new Class[] {AbstractEvent.class, MyEvent1.class});
+    when(target.getQualifiedSourceName()).thenReturn("MyTarget");
+    when(target.getInheritableMethods()).thenReturn(new JMethod[] {method});
+
+    new EventBinderWriter(logger, genericEventType, true)
+        .writeDoBindEventHandlers(target, output, typeOracle);
+
+    verify(logger).log(
+        eq(Type.WARN), contains("myMethod"), isNull(Throwable.class), isNull(HelpInfo.class));
+    assertEquals(join(
+        "protected void doBindEventHandlers("
+            + "final MyTarget target, EventBus eventBus, List<HandlerRegistration> registrations) {",
+        "  bind(eventBus, registrations, " + className(MyEvent1.class) + ".class, new BoundEventHandler(target, \"myMethod\") {",
+        "    public void handleEvent(GenericEvent event) { target.myMethod((" + className(MyEvent1.class) + ") event); }",
+        "  });",
+        "}"), output.toString());
+  }
+
   @SuppressWarnings("unchecked")
   private JMethod newMethod(String name, JType... params) {
     return newMethod(name, params, new Class[0]);
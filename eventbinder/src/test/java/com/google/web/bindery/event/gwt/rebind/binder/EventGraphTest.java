@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.gwt.rebind.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.gwt.core.ext.typeinfo.JClassType;
+import com.google.gwt.core.ext.typeinfo.JMethod;
+import com.google.gwt.core.ext.typeinfo.JType;
+import com.google.gwt.core.ext.typeinfo.TypeOracle;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+/**
+ * Tests for {@link EventGraph}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class EventGraphTest {
+
+  private TypeOracle typeOracle;
+  private JClassType genericEventType;
+  private JClassType handledEvent;
+  private JClassType unhandledEvent;
+  private JClassType abstractEvent;
+
+  @Before
+  public void setUp() {
+    typeOracle = mock(TypeOracle.class);
+    genericEventType = mock(JClassType.class);
+    handledEvent = newType("com.example.HandledEvent");
+    unhandledEvent = newType("com.example.UnhandledEvent");
+    abstractEvent = newType("com.example.AbstractEvent");
+    when(abstractEvent.isAbstract()).thenReturn(true);
+    when(genericEventType.getSubtypes())
+        .thenReturn(new JClassType[] {handledEvent, unhandledEvent, abstractEvent});
+  }
+
+  @Test
+  public void shouldClassifyEventTypes() {
+    JClassType presenter = newType("com.example.Presenter");
+    JMethod[] methods = new JMethod[] {
+        newMethod("onHandled", handledEvent),
+        newMethod("onAbstract", abstractEvent),
+        mock(JMethod.class)};
+    when(presenter.getMethods()).thenReturn(methods);
+    when(typeOracle.getTypes()).thenReturn(new JClassType[] {presenter});
+
+    EventGraph graph = new EventGraph(typeOracle, genericEventType);
+
+    assertEquals(Arrays.asList("com.example.HandledEvent"),
+        graph.getEventTypes(EventGraph.HANDLED));
+    assertEquals(Arrays.asList("com.example.UnhandledEvent"),
+        graph.getEventTypes(EventGraph.UNHANDLED));
+    assertEquals(Arrays.asList("com.example.AbstractEvent"),
+        graph.getEventTypes(EventGraph.UNFIREABLE));
+
+    StringWriter output = new StringWriter();
+    graph.write(new PrintWriter(output));
+    assertEquals(
+        "# Status and handlers of every GenericEvent type, generated by EventBinder\n"
+            + "unfireable com.example.AbstractEvent\n"
+            + "  com.example.Presenter.onAbstract\n"
+            + "handled com.example.HandledEvent\n"
+            + "  com.example.Presenter.onHandled\n"
+            + "unhandled com.example.UnhandledEvent\n",
+        output.toString().replace(System.getProperty("line.separator"), "\n"));
+  }
+
+  private JClassType newType(String name) {
+    JClassType type = mock(JClassType.class);
+    when(type.getQualifiedSourceName()).thenReturn(name);
+    when(type.isClassOrInterface()).thenReturn(type);
+    when(typeOracle.findType(name)).thenReturn(type);
+    return type;
+  }
+
+  @SuppressWarnings("unchecked")
+  private JMethod newMethod(String name, JClassType eventType) {
+    EventHandler eventHandler = mock(EventHandler.class);
+    when(eventHandler.handles()).thenReturn(new Class[0]);
+
+    JMethod method = mock(JMethod.class);
+    when(method.getAnnotation(EventHandler.class)).thenReturn(eventHandler);
+    when(method.getName()).thenReturn(name);
+    when(method.getParameterTypes()).thenReturn(new JType[] {eventType});
+    return method;
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.EventFactory;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.GenericEvents;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ConcurrentEventBus}.
+ */
+@RunWith(JUnit4.class)
+public class ConcurrentEventBusTest {
+
+  private static final EventFactory<SharedEvent> SHARED_EVENT = new EventFactory<SharedEvent>() {
+    @Override
+    public SharedEvent create() {
+      return new SharedEvent();
+    }
+  };
+
+  private ConcurrentEventBus eventBus;
+
+  @Before
+  public void setUp() {
+    eventBus = new ConcurrentEventBus();
+  }
+
+  @Test
+  public void shouldDispatchToHandlersOfEventType() {
+    CountingHandler firstHandler = new CountingHandler();
+    CountingHandler secondHandler = new CountingHandler();
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), firstHandler);
+    eventBus.addHandler(GenericEventType.getTypeOf(SecondEvent.class), secondHandler);
+
+    eventBus.fireEvent(new FirstEvent());
+
+    assertEquals(1, firstHandler.count.get());
+    assertEquals(0, secondHandler.count.get());
+  }
+
+  @Test
+  public void shouldStopDispatchingAfterRemoval() {
+    CountingHandler handler = new CountingHandler();
+    HandlerRegistration registration =
+        eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), handler);
+    eventBus.fireEvent(new FirstEvent());
+
+    registration.removeHandler();
+    eventBus.fireEvent(new FirstEvent());
+
+    assertEquals(1, handler.count.get());
+    assertEquals(0, eventBus.getHandlerCount(GenericEventType.getTypeOf(FirstEvent.class)));
+
+    // Adding a handler again after the list was pruned should work
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), handler);
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(2, handler.count.get());
+  }
+
+  @Test
+  public void shouldDispatchToSourceHandlers() {
+    Object source = new Object();
+    CountingHandler sourceHandler = new CountingHandler();
+    CountingHandler globalHandler = new CountingHandler();
+    eventBus.addHandlerToSource(GenericEventType.getTypeOf(FirstEvent.class), source, sourceHandler);
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), globalHandler);
+
+    FirstEvent event = new FirstEvent();
+    eventBus.fireEventFromSource(event, source);
+    eventBus.fireEventFromSource(new FirstEvent(), new Object());
+    eventBus.fireEvent(new FirstEvent());
+
+    assertSame(source, event.getSource());
+    assertEquals(1, sourceHandler.count.get());
+    assertEquals(3, globalHandler.count.get());
+  }
+
+  @Test
+  public void shouldCollectExceptionsFromAllHandlers() {
+    final RuntimeException exception1 = new RuntimeException("1");
+    final RuntimeException exception2 = new RuntimeException("2");
+    CountingHandler handler = new CountingHandler();
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        throw exception1;
+      }
+    });
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), handler);
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        throw exception2;
+      }
+    });
+
+    try {
+      eventBus.fireEvent(new FirstEvent());
+      fail("Exception not thrown");
+    } catch (UmbrellaException expected) {
+      assertEquals(2, expected.getCauses().size());
+    }
+    assertEquals(1, handler.count.get());
+  }
+
+  @Test
+  public void shouldNotDispatchToHandlersAddedDuringDispatch() {
+    final CountingHandler addedHandler = new CountingHandler();
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), addedHandler);
+      }
+    });
+
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(0, addedHandler.count.get());
+
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(1, addedHandler.count.get());
+  }
+
+  @Test
+  public void shouldDispatchConcurrently() throws Exception {
+    final int threadCount = 8;
+    final int eventsPerThread = 10000;
+    final CountingHandler handler = new CountingHandler();
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < eventsPerThread; j++) {
+            // Churn registrations for another type while firing
+            HandlerRegistration registration = eventBus.addHandler(
+                GenericEventType.getTypeOf(SecondEvent.class), new CountingHandler());
+            eventBus.fireEvent(new FirstEvent());
+            registration.removeHandler();
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), handler);
+
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(threadCount * eventsPerThread, handler.count.get());
+    assertEquals(0, eventBus.getHandlerCount(GenericEventType.getTypeOf(SecondEvent.class)));
+  }
+
+  @Test
+  public void shouldFireSharedInstances() {
+    final List<GenericEvent> events = new ArrayList<GenericEvent>();
+    eventBus.addHandler(GenericEventType.getTypeOf(SharedEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        events.add(event);
+        if (events.size() == 2) {
+          // Re-entrant fires can't reuse the instance that is being dispatched
+          GenericEvents.fireShared(eventBus, SharedEvent.class, SHARED_EVENT);
+        }
+      }
+    });
+
+    GenericEvents.fireShared(eventBus, SharedEvent.class, SHARED_EVENT);
+    GenericEvents.fireShared(eventBus, SharedEvent.class, SHARED_EVENT);
+
+    assertEquals(3, events.size());
+    assertSame(events.get(0), events.get(1));
+    assertNotSame(events.get(1), events.get(2));
+  }
+
+  @Test
+  public void shouldFireSharedInstancesConcurrently() throws Exception {
+    final int threadCount = 8;
+    final int eventsPerThread = 10000;
+    final CountingHandler handler = new CountingHandler();
+    eventBus.addHandler(GenericEventType.getTypeOf(SharedEvent.class), handler);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < eventsPerThread; j++) {
+            GenericEvents.fireShared(eventBus, SharedEvent.class, SHARED_EVENT);
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(threadCount * eventsPerThread, handler.count.get());
+  }
+
+  @Test
+  public void shouldNotShareEventsWithPayload() {
+    try {
+      GenericEvents.fireShared(eventBus, PayloadEvent.class, new EventFactory<PayloadEvent>() {
+        @Override
+        public PayloadEvent create() {
+          return new PayloadEvent();
+        }
+      });
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  static class CountingHandler implements GenericEventHandler {
+    final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public void handleEvent(GenericEvent event) {
+      count.incrementAndGet();
+    }
+  }
+
+  static class FirstEvent extends GenericEvent {}
+  static class SecondEvent extends GenericEvent {}
+
+  public static class SharedEvent extends GenericEvent {}
+
+  public static class PayloadEvent extends GenericEvent {
+    private final String value = "value";
+
+    public String getValue() {
+      return value;
+    }
+  }
+}
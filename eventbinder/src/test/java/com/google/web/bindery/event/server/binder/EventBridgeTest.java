@@ -0,0 +1,180 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link EventBridge}, using the codec generated for
+ * {@link PriceEvent} when the tests are compiled.
+ */
+@RunWith(JUnit4.class)
+public class EventBridgeTest {
+
+  private EventBus eventBus;
+  private EventBus remoteEventBus;
+  private LoopbackTransport transport;
+  private LoopbackTransport remoteTransport;
+  private List<PriceEvent> remoteEvents;
+
+  @Before
+  public void setUp() {
+    eventBus = new SimpleEventBus();
+    remoteEventBus = new SimpleEventBus();
+    transport = new LoopbackTransport();
+    remoteTransport = new LoopbackTransport();
+    remoteEvents = new ArrayList<PriceEvent>();
+    remoteEventBus.addHandler(GenericEventType.getTypeOf(PriceEvent.class),
+        new GenericEventHandler() {
+          @Override
+          public void handleEvent(GenericEvent event) {
+            remoteEvents.add((PriceEvent) event);
+          }
+        });
+  }
+
+  @Test
+  public void shouldSendEventsInBatches() throws Exception {
+    EventBridge bridge = new EventBridge(eventBus, transport, 2);
+    EventBridge remoteBridge = new EventBridge(remoteEventBus, remoteTransport, 2);
+    transport.connect(remoteBridge);
+    bridge.bridge(PriceEvent.class);
+    remoteBridge.bridge(PriceEvent.class);
+
+    eventBus.fireEvent(new PriceEvent("GOOG", 123456));
+    assertEquals(1, bridge.getPendingCount());
+    assertEquals(0, remoteEvents.size());
+
+    eventBus.fireEvent(new PriceEvent("AAPL", -1));
+    assertEquals(0, bridge.getPendingCount());
+    assertEquals(2, remoteEvents.size());
+    assertEquals("GOOG", remoteEvents.get(0).getSymbol());
+    assertEquals(123456, remoteEvents.get(0).getCents());
+    assertEquals("AAPL", remoteEvents.get(1).getSymbol());
+    assertEquals(-1, remoteEvents.get(1).getCents());
+    assertSame(remoteBridge, remoteEvents.get(0).getSource());
+
+    eventBus.fireEvent(new PriceEvent("MSFT", 0));
+    bridge.flush();
+    assertEquals(3, remoteEvents.size());
+    assertEquals("MSFT", remoteEvents.get(2).getSymbol());
+  }
+
+  @Test
+  public void shouldNotSendReceivedEventsBack() throws Exception {
+    EventBridge bridge = new EventBridge(eventBus, transport, 1);
+    EventBridge remoteBridge = new EventBridge(remoteEventBus, remoteTransport, 1);
+    transport.connect(remoteBridge);
+    remoteTransport.connect(bridge);
+    bridge.bridge(PriceEvent.class);
+    remoteBridge.bridge(PriceEvent.class);
+    final List<PriceEvent> localEvents = new ArrayList<PriceEvent>();
+    eventBus.addHandler(GenericEventType.getTypeOf(PriceEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        localEvents.add((PriceEvent) event);
+      }
+    });
+
+    eventBus.fireEvent(new PriceEvent("GOOG", 1));
+    assertEquals(1, localEvents.size());
+    assertEquals(1, remoteEvents.size());
+
+    remoteEventBus.fireEvent(new PriceEvent("AAPL", 2));
+    assertEquals(2, localEvents.size());
+    assertEquals(2, remoteEvents.size());
+  }
+
+  @Test
+  public void shouldStopSendingWhenRegistrationIsRemoved() throws Exception {
+    EventBridge bridge = new EventBridge(eventBus, transport, 1);
+    EventBridge remoteBridge = new EventBridge(remoteEventBus, remoteTransport, 1);
+    transport.connect(remoteBridge);
+    HandlerRegistration registration = bridge.bridge(PriceEvent.class);
+    remoteBridge.bridge(PriceEvent.class);
+
+    registration.removeHandler();
+    eventBus.fireEvent(new PriceEvent("GOOG", 1));
+    assertEquals(0, remoteEvents.size());
+  }
+
+  @Test
+  public void shouldRejectEventsThatAreNotBridged() throws Exception {
+    EventBridge bridge = new EventBridge(eventBus, transport, 2);
+    transport.connect(new EventBridge(remoteEventBus, remoteTransport, 2));
+    bridge.bridge(PriceEvent.class);
+
+    eventBus.fireEvent(new PriceEvent("GOOG", 1));
+    try {
+      bridge.flush();
+      fail("Exception not thrown");
+    } catch (IOException expected) {
+      assertTrue(expected.getMessage().contains(PriceEvent.class.getName()));
+    }
+    assertEquals(0, remoteEvents.size());
+  }
+
+  @Test
+  public void shouldRequireGeneratedCodec() {
+    try {
+      EventCodec.of(UnbridgeableEvent.class);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {
+      assertTrue(expected.getMessage().contains("must be annotated with @Bridgeable"));
+    }
+  }
+
+  @Bridgeable
+  public static class PriceEvent extends GenericEvent {
+    private final String symbol;
+    private final long cents;
+
+    public PriceEvent(String symbol, long cents) {
+      this.symbol = symbol;
+      this.cents = cents;
+    }
+
+    public String getSymbol() {
+      return symbol;
+    }
+
+    public long getCents() {
+      return cents;
+    }
+  }
+
+  public static class UnbridgeableEvent extends GenericEvent {}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.Bridgeable;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link EventJournal}, {@link JournalingEventBus} and
+ * {@link EventReplay}.
+ */
+@RunWith(JUnit4.class)
+public class EventJournalTest {
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("eventbinder", ".journal");
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void shouldReplayRecordedEventsThroughBinder() throws Exception {
+    EventJournal journal = EventJournal.create(file, 4096);
+    journal.register(PageViewEvent.class);
+    EventBus eventBus = new JournalingEventBus(new SimpleEventBus(), journal);
+    eventBus.fireEvent(new PageViewEvent("contacts", 10));
+    eventBus.fireEvent(new OtherEvent());
+    eventBus.fireEvent(new PageViewEvent("settings", 20));
+    eventBus.fireEvent(new PageViewEvent("contacts", 30));
+    journal.flush();
+    assertEquals(3, journal.getEventCount());
+
+    Presenter presenter = new Presenter();
+    EventBus replayEventBus = new SimpleEventBus();
+    ReflectiveEventBinder.of(Presenter.class).bindEventHandlers(presenter, replayEventBus);
+    EventReplay replay = new EventReplay(file);
+    replay.register(PageViewEvent.class);
+    EventReplay.Report report = replay.run(replayEventBus, EventReplay.Timing.MAXIMUM);
+
+    assertEquals(Arrays.asList("contacts:10", "settings:20", "contacts:30"), presenter.pages);
+    assertEquals(3, report.getEventCount());
+    assertTrue(report.getLatencyNanos(50) <= report.getLatencyNanos(100));
+    assertTrue(report.toString().startsWith("3 events in "));
+  }
+
+  @Test
+  public void shouldPreserveOriginalTiming() throws Exception {
+    EventJournal journal = EventJournal.create(file, 4096);
+    journal.register(PageViewEvent.class);
+    journal.append(new PageViewEvent("contacts", 0));
+    Thread.sleep(100);
+    journal.append(new PageViewEvent("settings", 0));
+
+    EventReplay replay = new EventReplay(file);
+    replay.register(PageViewEvent.class);
+    EventReplay.Report report = replay.run(new SimpleEventBus(), EventReplay.Timing.ORIGINAL);
+    assertEquals(2, report.getEventCount());
+    assertTrue(report.getElapsedNanos() >= 100000000L);
+  }
+
+  @Test
+  public void shouldDropEventsWhenFull() throws Exception {
+    EventJournal journal = EventJournal.create(file, 64);
+    journal.register(PageViewEvent.class);
+    int appended = 0;
+    while (journal.append(new PageViewEvent("contacts", appended))) {
+      appended++;
+    }
+    assertFalse(journal.append(new PageViewEvent("x", 0)));
+    assertEquals(appended, journal.getEventCount());
+    assertEquals(2, journal.getDroppedCount());
+    assertFalse(journal.append(new OtherEvent()));
+    assertEquals(2, journal.getDroppedCount());
+
+    Presenter presenter = new Presenter();
+    EventBus eventBus = new SimpleEventBus();
+    ReflectiveEventBinder.of(Presenter.class).bindEventHandlers(presenter, eventBus);
+    EventReplay replay = new EventReplay(file);
+    replay.register(PageViewEvent.class);
+    assertEquals(appended, replay.run(eventBus, EventReplay.Timing.MAXIMUM).getEventCount());
+    assertEquals(appended, presenter.pages.size());
+  }
+
+  @Test
+  public void shouldRejectUnregisteredClasses() throws Exception {
+    EventJournal journal = EventJournal.create(file, 4096);
+    journal.register(PageViewEvent.class);
+    journal.append(new PageViewEvent("contacts", 0));
+
+    try {
+      new EventReplay(file).run(new SimpleEventBus(), EventReplay.Timing.MAXIMUM);
+      fail("Exception not thrown");
+    } catch (IOException expected) {
+      assertTrue(expected.getMessage().contains(PageViewEvent.class.getName()));
+    }
+  }
+
+  @Bridgeable
+  public static class PageViewEvent extends GenericEvent {
+    private final String page;
+    private final int durationMillis;
+
+    public PageViewEvent(String page, int durationMillis) {
+      this.page = page;
+      this.durationMillis = durationMillis;
+    }
+
+    public String getPage() {
+      return page;
+    }
+
+    public int getDurationMillis() {
+      return durationMillis;
+    }
+  }
+
+  public static class OtherEvent extends GenericEvent {}
+
+  public static class Presenter {
+    final List<String> pages = new ArrayList<String>();
+
+    @EventHandler
+    void onPageView(PageViewEvent event) {
+      pages.add(event.getPage() + ":" + event.getDurationMillis());
+    }
+  }
+}
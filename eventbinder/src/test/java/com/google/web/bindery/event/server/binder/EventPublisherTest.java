@@ -0,0 +1,246 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.server.binder.EventPublisher.Overflow;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link EventPublisher}.
+ */
+@RunWith(JUnit4.class)
+public class EventPublisherTest {
+
+  private static final GenericEventType TYPE = GenericEventType.getTypeOf(TestEvent.class);
+
+  private ConcurrentEventBus eventBus;
+
+  @Before
+  public void setUp() {
+    eventBus = new ConcurrentEventBus();
+  }
+
+  @Test
+  public void shouldDeliverOnlyRequestedEvents() {
+    RecordingSubscriber subscriber = subscribe(10, Overflow.ERROR);
+
+    fire(1, 2, 3);
+    assertEquals(Arrays.<Integer>asList(), subscriber.values);
+
+    subscriber.subscription.request(2);
+    assertEquals(Arrays.asList(1, 2), subscriber.values);
+
+    subscriber.subscription.request(2);
+    fire(4, 5);
+    assertEquals(Arrays.asList(1, 2, 3, 4), subscriber.values);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void shouldDropLatestEventsWhenBufferIsFull() {
+    RecordingSubscriber subscriber = subscribe(2, Overflow.DROP_LATEST);
+
+    fire(1, 2, 3, 4);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertEquals(Arrays.asList(1, 2), subscriber.values);
+  }
+
+  @Test
+  public void shouldDropOldestEventsWhenBufferIsFull() {
+    RecordingSubscriber subscriber = subscribe(2, Overflow.DROP_OLDEST);
+
+    fire(1, 2, 3, 4);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertEquals(Arrays.asList(3, 4), subscriber.values);
+  }
+
+  @Test
+  public void shouldSignalErrorAndUnsubscribeWhenBufferOverflows() {
+    RecordingSubscriber subscriber = subscribe(1, Overflow.ERROR);
+
+    fire(1, 2);
+
+    assertTrue(subscriber.error instanceof IllegalStateException);
+    assertEquals(0, eventBus.getHandlerCount(TYPE));
+    subscriber.subscription.request(1);
+    assertEquals(Arrays.<Integer>asList(), subscriber.values);
+  }
+
+  @Test
+  public void shouldNotCountRequestedEventsTowardsBuffer() {
+    RecordingSubscriber subscriber = subscribe(0, Overflow.ERROR);
+
+    subscriber.subscription.request(2);
+    fire(1, 2);
+
+    assertEquals(Arrays.asList(1, 2), subscriber.values);
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void shouldRemoveHandlerOnCancel() {
+    RecordingSubscriber subscriber = subscribe(10, Overflow.ERROR);
+    assertEquals(1, eventBus.getHandlerCount(TYPE));
+
+    subscriber.subscription.request(10);
+    fire(1);
+    subscriber.subscription.cancel();
+    fire(2);
+
+    assertEquals(0, eventBus.getHandlerCount(TYPE));
+    assertEquals(Arrays.asList(1), subscriber.values);
+  }
+
+  @Test
+  public void shouldSignalErrorOnNonPositiveRequest() {
+    RecordingSubscriber subscriber = subscribe(10, Overflow.ERROR);
+
+    subscriber.subscription.request(0);
+
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertEquals(0, eventBus.getHandlerCount(TYPE));
+  }
+
+  @Test
+  public void shouldNotRecurseWhenRequestingFromOnNext() {
+    final int eventCount = 100000;
+    final RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onNext(TestEvent event) {
+        super.onNext(event);
+        subscription.request(1);
+      }
+    };
+    new EventPublisher<TestEvent>(eventBus, TestEvent.class, eventCount, Overflow.ERROR)
+        .subscribe(subscriber);
+    for (int i = 0; i < eventCount; i++) {
+      eventBus.fireEvent(new TestEvent(i));
+    }
+
+    // Would overflow the stack if each request delivered the next event directly
+    subscriber.subscription.request(1);
+
+    assertEquals(eventCount, subscriber.values.size());
+  }
+
+  @Test
+  public void shouldNotSignalBeforeOnSubscribeReturns() {
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        // Would overflow the buffer if the handler was already added
+        fire(1, 2);
+        assertNull(error);
+        super.onSubscribe(subscription);
+      }
+    };
+    new EventPublisher<TestEvent>(eventBus, TestEvent.class, 1, Overflow.ERROR)
+        .subscribe(subscriber);
+
+    assertNull(subscriber.error);
+    assertEquals(1, eventBus.getHandlerCount(TYPE));
+  }
+
+  @Test
+  public void shouldNotAddHandlerWhenCancelledFromOnSubscribe() {
+    RecordingSubscriber subscriber = new RecordingSubscriber() {
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        super.onSubscribe(subscription);
+        subscription.cancel();
+      }
+    };
+    new EventPublisher<TestEvent>(eventBus, TestEvent.class, 10, Overflow.ERROR)
+        .subscribe(subscriber);
+
+    assertEquals(0, eventBus.getHandlerCount(TYPE));
+  }
+
+  private RecordingSubscriber subscribe(int bufferSize, Overflow overflow) {
+    RecordingSubscriber subscriber = new RecordingSubscriber();
+    new EventPublisher<TestEvent>(eventBus, TestEvent.class, bufferSize, overflow)
+        .subscribe(subscriber);
+    return subscriber;
+  }
+
+  private void fire(int... values) {
+    for (int value : values) {
+      eventBus.fireEvent(new TestEvent(value));
+    }
+  }
+
+  @Test
+  public void shouldRejectPooledEvents() {
+    try {
+      new EventPublisher<TestPooledEvent>(eventBus, TestPooledEvent.class, 10, Overflow.ERROR);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  static class TestPooledEvent extends PooledEvent {}
+
+  static class RecordingSubscriber implements Subscriber<TestEvent> {
+    final List<Integer> values = new ArrayList<Integer>();
+    Subscription subscription;
+    Throwable error;
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(TestEvent event) {
+      values.add(event.value);
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      this.error = error;
+    }
+
+    @Override
+    public void onComplete() {}
+  }
+
+  static class TestEvent extends GenericEvent {
+    final int value;
+
+    TestEvent(int value) {
+      this.value = value;
+    }
+  }
+}
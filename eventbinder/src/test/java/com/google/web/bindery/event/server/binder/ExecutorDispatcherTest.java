@@ -0,0 +1,280 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link ExecutorDispatcher}.
+ */
+@RunWith(JUnit4.class)
+public class ExecutorDispatcherTest {
+
+  private static final GenericEventType TYPE = GenericEventType.getTypeOf(TestEvent.class);
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldRunHandlersOnExecutor() throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicReference<Thread> handlerThread = new AtomicReference<Thread>();
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(new ExecutorDispatcher(executor));
+    eventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        handlerThread.set(Thread.currentThread());
+        done.countDown();
+      }
+    });
+
+    eventBus.fireEvent(new TestEvent(0));
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertNotSame(Thread.currentThread(), handlerThread.get());
+  }
+
+  @Test
+  public void shouldSerializeInvocationsForSameTarget() throws Exception {
+    final int eventCount = 200;
+    final Object target = new Object();
+    final AtomicInteger active = new AtomicInteger();
+    final AtomicInteger maxActive = new AtomicInteger();
+    final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+    final CountDownLatch done = new CountDownLatch(2 * eventCount);
+    ExecutorDispatcher dispatcher = new ExecutorDispatcher(executor, 1000, true);
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(dispatcher);
+    for (int i = 0; i < 2; i++) {
+      eventBus.addHandler(TYPE, new BoundEventHandler(target) {
+        @Override
+        public void handleEvent(GenericEvent event) {
+          int nowActive = active.incrementAndGet();
+          if (nowActive > maxActive.get()) {
+            maxActive.set(nowActive);
+          }
+          received.add(((TestEvent) event).value);
+          Thread.yield();
+          active.decrementAndGet();
+          done.countDown();
+        }
+      });
+    }
+
+    for (int i = 0; i < eventCount; i++) {
+      eventBus.fireEvent(new TestEvent(i));
+    }
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(1, maxActive.get());
+    for (int i = 0; i < received.size(); i++) {
+      assertEquals(i / 2, received.get(i).intValue());
+    }
+  }
+
+  @Test
+  public void shouldBlockFiringWhenTooManyInvocationsAreInFlight() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(3);
+    final ExecutorDispatcher dispatcher = new ExecutorDispatcher(executor, 2, false);
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus(dispatcher);
+    eventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      }
+    });
+
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 3; i++) {
+          eventBus.fireEvent(new TestEvent(i));
+        }
+      }
+    };
+    producer.start();
+
+    // The third event can't be dispatched until one of the first two completes
+    long deadline = System.currentTimeMillis() + 5000;
+    while (producer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(Thread.State.WAITING, producer.getState());
+    assertEquals(2, dispatcher.getInFlightCount());
+
+    release.countDown();
+    producer.join(5000);
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void shouldNotBlockHandlersFiringEventsWhenTooManyAreInFlight() throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+    final ExecutorDispatcher dispatcher = new ExecutorDispatcher(executor, 1, true);
+    final ConcurrentEventBus eventBus = new ConcurrentEventBus(dispatcher);
+    eventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        // The only permit is held by this invocation, and the nested one is
+        // serialized behind it, so waiting for a permit would never return
+        if (((TestEvent) event).value == 0) {
+          eventBus.fireEvent(new TestEvent(1));
+        } else {
+          done.countDown();
+        }
+      }
+    });
+
+    eventBus.fireEvent(new TestEvent(0));
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (dispatcher.getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(0, dispatcher.getInFlightCount());
+  }
+
+  @Test
+  public void shouldReportExceptionsToUncaughtExceptionHandler() throws Exception {
+    final RuntimeException exception = new RuntimeException();
+    final AtomicReference<Throwable> reported = new AtomicReference<Throwable>();
+    final CountDownLatch done = new CountDownLatch(1);
+    ExecutorService reportingExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread thread, Throwable e) {
+            reported.set(e);
+            done.countDown();
+          }
+        });
+        return thread;
+      }
+    });
+    try {
+      ExecutorDispatcher dispatcher = new ExecutorDispatcher(reportingExecutor, 1, true);
+      ConcurrentEventBus eventBus = new ConcurrentEventBus(dispatcher);
+      eventBus.addHandler(TYPE, new GenericEventHandler() {
+        @Override
+        public void handleEvent(GenericEvent event) {
+          throw exception;
+        }
+      });
+
+      eventBus.fireEvent(new TestEvent(0));
+
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+      assertSame(exception, reported.get());
+    } finally {
+      reportingExecutor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void shouldReleasePermitsWhenExecutorRejects() {
+    ExecutorDispatcher dispatcher = new ExecutorDispatcher(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        throw new RejectedExecutionException();
+      }
+    }, 1, true);
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(dispatcher);
+    eventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {}
+    });
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        eventBus.fireEvent(new TestEvent(i));
+        fail("Exception not thrown");
+      } catch (RejectedExecutionException expected) {
+        assertEquals(0, dispatcher.getInFlightCount());
+      }
+    }
+  }
+
+  @Test
+  public void shouldRejectPooledEvents() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(new ExecutorDispatcher(executor));
+    GenericEventType type = GenericEventType.getTypeOf(TestPooledEvent.class);
+    eventBus.addHandler(type, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {}
+    });
+
+    try {
+      eventBus.fireEvent(new TestPooledEvent());
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  static class TestPooledEvent extends PooledEvent {}
+
+  static class TestEvent extends GenericEvent {
+    final int value;
+
+    TestEvent(int value) {
+      this.value = value;
+    }
+  }
+}
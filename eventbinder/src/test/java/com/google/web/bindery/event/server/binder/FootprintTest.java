@@ -0,0 +1,253 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+import com.google.web.bindery.event.shared.Event;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenerateEventBinder;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.openjdk.jol.vm.VM;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the heap retained by bound event handlers, using the object sizes
+ * reported by JOL for the running VM. Objects shared between bindings, such as
+ * the presenters, binders, event types and interned strings, are not counted.
+ * The budgets are set a little above the sizes measured on a 64-bit HotSpot VM
+ * with compressed references, so that growth in the memory needed for each
+ * binding fails the build.
+ */
+@RunWith(JUnit4.class)
+public class FootprintTest {
+
+  @Before
+  public void setUp() {
+    // The budgets only hold for the object layout they were measured with
+    assumeTrue(VM.current().objectHeaderSize() == 12 && VM.current().sizeOfField("object") == 4);
+  }
+
+  @Test
+  public void shouldFitOneBindingInBudget() {
+    EventBus eventBus = new SimpleEventBus();
+    long emptyBusBytes = new Footprint().walk(eventBus).getBytes();
+
+    Presenter presenter = new Presenter();
+    EventBinder<Presenter> binder = new FootprintTest_Presenter_MyEventBinderImpl();
+    HandlerRegistration registration = binder.bindEventHandlers(presenter, eventBus);
+    Footprint footprint = new Footprint().exclude(presenter, binder).walk(eventBus, registration);
+
+    String breakdown = describe(footprint, emptyBusBytes);
+    assertWithinBudget(breakdown, "handlers", footprint.getHandlerBytes(), 3 * 32);
+    assertWithinBudget(breakdown, "registrations", footprint.getRegistrationBytes(), 352);
+    assertWithinBudget(breakdown, "bus entries", footprint.getBusBytes() - emptyBusBytes, 1024);
+  }
+
+  @Test
+  public void shouldGrowLinearlyWithBindings() {
+    int bindings = 100;
+    EventBus eventBus = new SimpleEventBus();
+    long emptyBusBytes = new Footprint().walk(eventBus).getBytes();
+
+    EventBinder<Presenter> binder = new FootprintTest_Presenter_MyEventBinderImpl();
+    Footprint footprint = new Footprint().exclude(binder);
+    List<HandlerRegistration> registrations = new ArrayList<HandlerRegistration>();
+    for (int i = 0; i < bindings; i++) {
+      Presenter presenter = new Presenter();
+      footprint.exclude(presenter);
+      registrations.add(binder.bindEventHandlers(presenter, eventBus));
+    }
+    footprint.walk(eventBus).walk(registrations.toArray());
+
+    long perBinding = (footprint.getBytes() - emptyBusBytes) / bindings;
+    assertWithinBudget(describe(footprint, emptyBusBytes), "bytes per binding", perBinding, 480);
+  }
+
+  @Test
+  public void shouldFitEventTypesInBudget() {
+    int eventTypes = 100;
+    EventBus eventBus = new SimpleEventBus();
+    long emptyBusBytes = new Footprint().walk(eventBus).getBytes();
+
+    GenericEventHandler handler = new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {}
+    };
+    List<HandlerRegistration> registrations = new ArrayList<HandlerRegistration>();
+    for (int i = 0; i < eventTypes; i++) {
+      registrations.add(eventBus.addHandler(new Event.Type<GenericEventHandler>(), handler));
+    }
+    Footprint footprint = new Footprint().exclude(handler).walk(eventBus);
+
+    long perType = (footprint.getBusBytes() - emptyBusBytes) / eventTypes;
+    assertWithinBudget(
+        describe(footprint, emptyBusBytes), "bus bytes per event type", perType, 320);
+  }
+
+  private static String describe(Footprint footprint, long emptyBusBytes) {
+    return footprint.getHandlerBytes() + " bytes in handlers, "
+        + footprint.getRegistrationBytes() + " bytes in registrations, "
+        + (footprint.getBusBytes() - emptyBusBytes) + " bytes in bus entries";
+  }
+
+  private static void assertWithinBudget(String breakdown, String name, long bytes, long budget) {
+    assertTrue(name + " take " + bytes + " bytes, over the budget of " + budget
+        + " (" + breakdown + ")", bytes <= budget);
+  }
+
+  /**
+   * Sums the shallow sizes of every object reachable from the given roots,
+   * split into handlers, registrations and everything else held by the event
+   * bus.
+   */
+  private static class Footprint {
+    private final Map<Object, Boolean> excluded = new IdentityHashMap<Object, Boolean>();
+    private final Map<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+    private long handlerBytes;
+    private long registrationBytes;
+    private long busBytes;
+
+    Footprint exclude(Object... objects) {
+      for (Object object : objects) {
+        excluded.put(object, true);
+      }
+      return this;
+    }
+
+    Footprint walk(Object... roots) {
+      Deque<Object> pending = new ArrayDeque<Object>();
+      for (Object root : roots) {
+        pending.push(root);
+      }
+      while (!pending.isEmpty()) {
+        Object object = pending.pop();
+        if (isShared(object) || visited.put(object, true) != null) {
+          continue;
+        }
+        count(object);
+        if (object.getClass().isArray()) {
+          if (!object.getClass().getComponentType().isPrimitive()) {
+            for (int i = 0; i < Array.getLength(object); i++) {
+              pushIfNotNull(pending, Array.get(object, i));
+            }
+          }
+          continue;
+        }
+        for (Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+          for (Field field : type.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+              try {
+                field.setAccessible(true);
+              } catch (RuntimeException e) {
+                // JDK 16+ denies access to the internals of java.base without --add-opens
+                assumeNoException(e);
+              }
+              try {
+                pushIfNotNull(pending, field.get(object));
+              } catch (IllegalAccessException e) {
+                throw new AssertionError(e);
+              }
+            }
+          }
+        }
+      }
+      return this;
+    }
+
+    long getHandlerBytes() {
+      return handlerBytes;
+    }
+
+    long getRegistrationBytes() {
+      return registrationBytes;
+    }
+
+    long getBusBytes() {
+      return busBytes;
+    }
+
+    long getBytes() {
+      return handlerBytes + registrationBytes + busBytes;
+    }
+
+    private boolean isShared(Object object) {
+      return excluded.containsKey(object)
+          || object instanceof Class
+          || object instanceof Event.Type
+          || (object instanceof String && ((String) object).intern() == object);
+    }
+
+    private void count(Object object) {
+      long size = VM.current().sizeOf(object);
+      if (object instanceof GenericEventHandler) {
+        handlerBytes += size;
+      } else if (object instanceof HandlerRegistration
+          || object instanceof LinkedList
+          || object.getClass().getEnclosingClass() == LinkedList.class) {
+        registrationBytes += size;
+      } else {
+        busBytes += size;
+      }
+    }
+
+    private static void pushIfNotNull(Deque<Object> pending, Object object) {
+      if (object != null) {
+        pending.push(object);
+      }
+    }
+  }
+
+  public static class Presenter {
+    @GenerateEventBinder
+    interface MyEventBinder extends EventBinder<Presenter> {}
+
+    @EventHandler
+    void onFirstEvent(FirstEvent event) {}
+
+    @EventHandler
+    void onSecondEvent(SecondEvent event) {}
+
+    @EventHandler
+    void onThirdEvent(ThirdEvent event) {}
+  }
+
+  public static class FirstEvent extends GenericEvent {}
+  public static class SecondEvent extends GenericEvent {}
+  public static class ThirdEvent extends GenericEvent {}
+}
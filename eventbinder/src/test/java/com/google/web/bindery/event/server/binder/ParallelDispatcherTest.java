@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.ParallelSafe;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link ParallelDispatcher}.
+ */
+@RunWith(JUnit4.class)
+public class ParallelDispatcherTest {
+
+  private ExecutorService executorService;
+  private CountingExecutor executor;
+
+  @Before
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(3);
+    executor = new CountingExecutor(executorService);
+  }
+
+  @After
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void shouldSplitParallelSafeEventsIntoChunks() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(new ParallelDispatcher(executor, 10, 4));
+    RecordingHandler handler = addHandlers(eventBus, ParallelEvent.class, 100);
+
+    eventBus.fireEvent(new ParallelEvent());
+
+    assertEquals(100, handler.count.get());
+    assertEquals(3, executor.executeCount.get());
+  }
+
+  @Test
+  public void shouldDispatchOtherEventsOnFiringThread() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(new ParallelDispatcher(executor, 10, 4));
+    RecordingHandler handler = addHandlers(eventBus, SequentialEvent.class, 100);
+
+    eventBus.fireEvent(new SequentialEvent());
+
+    assertEquals(100, handler.count.get());
+    assertEquals(Collections.singleton(Thread.currentThread()), handler.threads);
+    assertEquals(0, executor.executeCount.get());
+  }
+
+  @Test
+  public void shouldNotSplitASingleChunk() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(new ParallelDispatcher(executor, 10, 4));
+    RecordingHandler handler = addHandlers(eventBus, ParallelEvent.class, 10);
+
+    eventBus.fireEvent(new ParallelEvent());
+
+    assertEquals(10, handler.count.get());
+    assertEquals(Collections.singleton(Thread.currentThread()), handler.threads);
+    assertEquals(0, executor.executeCount.get());
+  }
+
+  @Test
+  public void shouldCollectExceptionsFromEveryChunk() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(new ParallelDispatcher(executor, 2, 4));
+    final AtomicInteger calls = new AtomicInteger();
+    for (int i = 0; i < 8; i++) {
+      final int index = i;
+      eventBus.addHandler(GenericEventType.getTypeOf(ParallelEvent.class),
+          new GenericEventHandler() {
+            @Override
+            public void handleEvent(GenericEvent event) {
+              calls.incrementAndGet();
+              if (index % 2 == 0) {
+                throw new IllegalStateException("handler " + index);
+              }
+            }
+          });
+    }
+
+    try {
+      eventBus.fireEvent(new ParallelEvent());
+      fail("Exception not thrown");
+    } catch (UmbrellaException e) {
+      assertEquals(4, e.getCauses().size());
+    }
+    assertEquals(8, calls.get());
+  }
+
+  @Test
+  public void shouldRunChunksOnFiringThreadWhenExecutorRejects() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(
+        new ParallelDispatcher(new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            throw new RejectedExecutionException();
+          }
+        }, 10, 4));
+    RecordingHandler handler = addHandlers(eventBus, ParallelEvent.class, 100);
+
+    eventBus.fireEvent(new ParallelEvent());
+
+    assertEquals(100, handler.count.get());
+    assertEquals(Collections.singleton(Thread.currentThread()), handler.threads);
+  }
+
+  @Test
+  public void shouldNotWaitForTasksThatNeverStart() {
+    ConcurrentEventBus eventBus = new ConcurrentEventBus(
+        new ParallelDispatcher(new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            // Queue the task forever, as a saturated executor might
+          }
+        }, 10, 4));
+    RecordingHandler handler = addHandlers(eventBus, ParallelEvent.class, 100);
+
+    eventBus.fireEvent(new ParallelEvent());
+
+    assertEquals(100, handler.count.get());
+  }
+
+  @Test
+  public void shouldRejectInvalidArguments() {
+    try {
+      new ParallelDispatcher(executor, 0, 4);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+    try {
+      new ParallelDispatcher(executor, 10, 0);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  private static RecordingHandler addHandlers(
+      ConcurrentEventBus eventBus, Class<? extends GenericEvent> eventClass, int count) {
+    RecordingHandler handler = new RecordingHandler();
+    for (int i = 0; i < count; i++) {
+      eventBus.addHandler(GenericEventType.getTypeOf(eventClass), handler);
+    }
+    return handler;
+  }
+
+  static class RecordingHandler implements GenericEventHandler {
+    final AtomicInteger count = new AtomicInteger();
+    final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+    @Override
+    public void handleEvent(GenericEvent event) {
+      count.incrementAndGet();
+      threads.add(Thread.currentThread());
+    }
+  }
+
+  static class CountingExecutor implements Executor {
+    private final Executor delegate;
+    final AtomicInteger executeCount = new AtomicInteger();
+
+    CountingExecutor(Executor delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      executeCount.incrementAndGet();
+      delegate.execute(command);
+    }
+  }
+
+  @ParallelSafe
+  static class ParallelEvent extends GenericEvent {}
+
+  static class SequentialEvent extends GenericEvent {}
+}
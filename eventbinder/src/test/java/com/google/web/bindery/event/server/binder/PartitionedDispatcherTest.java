@@ -0,0 +1,340 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+import com.google.web.bindery.event.shared.binder.Routable;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link PartitionedDispatcher}.
+ */
+@RunWith(JUnit4.class)
+public class PartitionedDispatcherTest {
+
+  private static final GenericEventType TYPE = GenericEventType.getTypeOf(EntityEvent.class);
+
+  private PartitionedDispatcher dispatcher;
+  private ConcurrentEventBus eventBus;
+
+  @Before
+  public void setUp() {
+    dispatcher = new PartitionedDispatcher(4, 16);
+    eventBus = new ConcurrentEventBus(dispatcher);
+  }
+
+  @After
+  public void tearDown() throws InterruptedException {
+    dispatcher.shutdown();
+  }
+
+  @Test
+  public void shouldDeliverEventsForEachKeyInOrder() throws Exception {
+    EntityPresenter presenter = new EntityPresenter();
+    ReflectiveEventBinder.of(EntityPresenter.class).bindEventHandlers(presenter, eventBus);
+
+    for (int sequence = 0; sequence < 1000; sequence++) {
+      eventBus.fireEvent(new EntityEvent("entity" + (sequence % 10), sequence));
+    }
+    dispatcher.shutdown();
+
+    assertEquals(10, presenter.sequences.size());
+    for (Map.Entry<String, List<Integer>> entry : presenter.sequences.entrySet()) {
+      List<Integer> sequences = entry.getValue();
+      assertEquals(100, sequences.size());
+      for (int i = 1; i < sequences.size(); i++) {
+        assertTrue(entry.getKey() + " out of order: " + sequences,
+            sequences.get(i - 1) < sequences.get(i));
+      }
+    }
+    long delivered = 0;
+    for (int lane = 0; lane < dispatcher.getLaneCount(); lane++) {
+      delivered += dispatcher.getDeliveredCount(lane);
+    }
+    assertEquals(1000, delivered);
+  }
+
+  @Test
+  public void shouldRouteEventsWithTheSameKeyToTheSameLane() throws Exception {
+    final Map<String, Thread> threads = new HashMap<String, Thread>();
+    final AtomicReference<String> failure = new AtomicReference<String>();
+    eventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        String key = ((EntityEvent) event).entityId;
+        synchronized (threads) {
+          Thread previous = threads.put(key, Thread.currentThread());
+          if (previous != null && previous != Thread.currentThread()) {
+            failure.set(key + " was delivered on two lanes");
+          }
+        }
+      }
+    });
+
+    for (int sequence = 0; sequence < 100; sequence++) {
+      eventBus.fireEvent(new EntityEvent("entity" + (sequence % 7), sequence));
+    }
+    dispatcher.shutdown();
+
+    assertEquals(null, failure.get());
+  }
+
+  @Test
+  public void shouldRouteUnkeyedEventsByClass() throws Exception {
+    final List<Thread> threads = new ArrayList<Thread>();
+    eventBus.addHandler(GenericEventType.getTypeOf(UnkeyedEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        synchronized (threads) {
+          threads.add(Thread.currentThread());
+        }
+      }
+    });
+
+    eventBus.fireEvent(new UnkeyedEvent());
+    eventBus.fireEvent(new UnkeyedEvent());
+    dispatcher.shutdown();
+
+    assertEquals(2, threads.size());
+    assertSame(threads.get(0), threads.get(1));
+  }
+
+  @Test
+  public void shouldBlockAndReportLagWhenLaneQueueIsFull() throws Exception {
+    PartitionedDispatcher smallDispatcher = new PartitionedDispatcher(1, 2);
+    final ConcurrentEventBus smallEventBus = new ConcurrentEventBus(smallDispatcher);
+    final CountDownLatch handlerStarted = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    smallEventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        handlerStarted.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+
+    smallEventBus.fireEvent(new EntityEvent("a", 0));
+    assertTrue(handlerStarted.await(5, TimeUnit.SECONDS));
+    smallEventBus.fireEvent(new EntityEvent("a", 1));
+    smallEventBus.fireEvent(new EntityEvent("a", 2));
+    final CountDownLatch blockedFireDone = new CountDownLatch(1);
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        smallEventBus.fireEvent(new EntityEvent("a", 3));
+        blockedFireDone.countDown();
+      }
+    };
+    producer.start();
+    Thread.sleep(50);
+
+    assertEquals(2, smallDispatcher.getQueueDepth(0));
+    assertTrue(smallDispatcher.getLagMillis(0) >= 50);
+    assertEquals(1, blockedFireDone.getCount());
+
+    release.countDown();
+    assertTrue(blockedFireDone.await(5, TimeUnit.SECONDS));
+    smallDispatcher.shutdown();
+
+    assertEquals(0, smallDispatcher.getQueueDepth(0));
+    assertEquals(0, smallDispatcher.getLagMillis(0));
+    assertEquals(4, smallDispatcher.getDeliveredCount(0));
+  }
+
+  @Test
+  public void shouldDeliverEventsFiredOnTheirOwnLaneAtOnce() throws Exception {
+    PartitionedDispatcher singleLaneDispatcher = new PartitionedDispatcher(1, 1);
+    final ConcurrentEventBus singleLaneEventBus = new ConcurrentEventBus(singleLaneDispatcher);
+    final List<Integer> sequences = new ArrayList<Integer>();
+    singleLaneEventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        int sequence = ((EntityEvent) event).sequence;
+        sequences.add(sequence);
+        if (sequence < 3) {
+          singleLaneEventBus.fireEvent(new EntityEvent("a", sequence + 1));
+        }
+      }
+    });
+
+    singleLaneEventBus.fireEvent(new EntityEvent("a", 0));
+    singleLaneDispatcher.shutdown();
+
+    assertEquals("[0, 1, 2, 3]", sequences.toString());
+  }
+
+  @Test
+  public void shouldNotBlockLanesOnEachOthersFullQueues() throws Exception {
+    PartitionedDispatcher twoLaneDispatcher = new PartitionedDispatcher(2, 1);
+    final ConcurrentEventBus twoLaneEventBus = new ConcurrentEventBus(twoLaneDispatcher);
+    final String[] keys = new String[2];
+    for (int i = 0; keys[0] == null || keys[1] == null; i++) {
+      keys[twoLaneDispatcher.getLane("entity" + i)] = "entity" + i;
+    }
+    final CountDownLatch delivered = new CountDownLatch(2 * 21);
+    twoLaneEventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        EntityEvent entityEvent = (EntityEvent) event;
+        if (entityEvent.sequence == 0) {
+          // Each lane floods the other, whose queue only has room for one
+          String otherKey = entityEvent.entityId.equals(keys[0]) ? keys[1] : keys[0];
+          for (int sequence = 1; sequence <= 20; sequence++) {
+            twoLaneEventBus.fireEvent(new EntityEvent(otherKey, sequence));
+          }
+        }
+        delivered.countDown();
+      }
+    });
+
+    twoLaneEventBus.fireEvent(new EntityEvent(keys[0], 0));
+    twoLaneEventBus.fireEvent(new EntityEvent(keys[1], 0));
+
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+    twoLaneDispatcher.shutdown();
+  }
+
+  @Test
+  public void shouldReportExceptionsAndContinue() throws Exception {
+    final List<Throwable> exceptions = new ArrayList<Throwable>();
+    PartitionedDispatcher reportingDispatcher = new PartitionedDispatcher(1, 4,
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable lane) {
+            Thread thread = new Thread(lane);
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+              @Override
+              public void uncaughtException(Thread thread, Throwable e) {
+                exceptions.add(e);
+              }
+            });
+            return thread;
+          }
+        });
+    ConcurrentEventBus reportingEventBus = new ConcurrentEventBus(reportingDispatcher);
+    final List<Integer> sequences = new ArrayList<Integer>();
+    reportingEventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        throw new IllegalStateException("first handler");
+      }
+    });
+    reportingEventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        sequences.add(((EntityEvent) event).sequence);
+      }
+    });
+
+    reportingEventBus.fireEvent(new EntityEvent("a", 0));
+    reportingEventBus.fireEvent(new EntityEvent("a", 1));
+    reportingDispatcher.shutdown();
+
+    assertEquals(2, exceptions.size());
+    assertEquals("[0, 1]", sequences.toString());
+  }
+
+  @Test
+  public void shouldRejectPooledEvents() {
+    GenericEventType type = GenericEventType.getTypeOf(TestPooledEvent.class);
+    eventBus.addHandler(type, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {}
+    });
+
+    try {
+      eventBus.fireEvent(new TestPooledEvent());
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+  }
+
+  @Test
+  public void shouldRejectEventsAfterShutdown() throws Exception {
+    eventBus.addHandler(TYPE, new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {}
+    });
+    dispatcher.shutdown();
+
+    try {
+      eventBus.fireEvent(new EntityEvent("a", 0));
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+
+  static class TestPooledEvent extends PooledEvent {}
+
+  static class EntityPresenter {
+    // Only written by lane threads, and read after they have stopped
+    final Map<String, List<Integer>> sequences = new HashMap<String, List<Integer>>();
+
+    @EventHandler
+    void onEntityEvent(EntityEvent event) {
+      synchronized (sequences) {
+        List<Integer> entitySequences = sequences.get(event.entityId);
+        if (entitySequences == null) {
+          entitySequences = new ArrayList<Integer>();
+          sequences.put(event.entityId, entitySequences);
+        }
+        entitySequences.add(event.sequence);
+      }
+    }
+  }
+
+  static class EntityEvent extends GenericEvent implements Routable {
+    final String entityId;
+    final int sequence;
+
+    EntityEvent(String entityId, int sequence) {
+      this.entityId = entityId;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public Object getRoutingKey() {
+      return entityId;
+    }
+  }
+
+  static class UnkeyedEvent extends GenericEvent {}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.gwt.core.shared.GWT;
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.EventBinder;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.EventScope;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ReflectiveEventBinder}.
+ */
+@RunWith(JUnit4.class)
+public class ReflectiveEventBinderTest {
+
+  private EventBus eventBus;
+
+  @Before
+  public void setUp() {
+    eventBus = new SimpleEventBus();
+  }
+
+  @Test
+  public void shouldBindHandlerMethods() {
+    TestPresenter presenter = new TestPresenter();
+    ReflectiveEventBinder.of(TestPresenter.class).bindEventHandlers(presenter, eventBus);
+
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(1, presenter.firstEventsHandled);
+    assertEquals(1, presenter.firstEventsWithoutParameterHandled);
+    assertEquals(1, presenter.firstAndSecondEventsHandled);
+
+    eventBus.fireEvent(new SecondEvent());
+    eventBus.fireEvent(new SecondEvent());
+    assertEquals(2, presenter.secondEventsHandled);
+    assertEquals(3, presenter.firstAndSecondEventsHandled);
+  }
+
+  @Test
+  public void shouldBindInheritedAndOverriddenMethodsOnce() {
+    SubPresenter presenter = new SubPresenter();
+    ReflectiveEventBinder.of(SubPresenter.class).bindEventHandlers(presenter, eventBus);
+
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new SecondEvent());
+
+    assertEquals(1, presenter.firstEventsHandled);
+    assertEquals(0, presenter.secondEventsHandled);
+    assertEquals(1, presenter.overriddenSecondEventsHandled);
+  }
+
+  @Test
+  public void shouldUnbindHandlers() {
+    TestPresenter presenter = new TestPresenter();
+    HandlerRegistration registration =
+        ReflectiveEventBinder.of(TestPresenter.class).bindEventHandlers(presenter, eventBus);
+
+    registration.removeHandler();
+    eventBus.fireEvent(new FirstEvent());
+
+    assertEquals(0, presenter.firstEventsHandled);
+  }
+
+  @Test
+  public void shouldBindIntoEventScope() {
+    EventScope scope = new EventScope();
+    scope.bind(ReflectiveEventBinder.of(TestPresenter.class), new TestPresenter(), eventBus);
+    assertEquals(5, scope.size());
+  }
+
+  @Test
+  public void shouldCacheBinderPerClass() {
+    assertSame(ReflectiveEventBinder.of(TestPresenter.class),
+        ReflectiveEventBinder.of(TestPresenter.class));
+  }
+
+  @Test
+  public void shouldCreateBinderForInterface() {
+    TestPresenter presenter = new TestPresenter();
+    TestPresenter.MyEventBinder binder =
+        ReflectiveEventBinder.create(TestPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(1, presenter.firstEventsHandled);
+  }
+
+  @Test
+  public void shouldCreateBinderWithGwtCreateOnceInstalled() {
+    ReflectiveEventBinder.install();
+    TestPresenter presenter = new TestPresenter();
+    TestPresenter.MyEventBinder binder = GWT.create(TestPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    eventBus.fireEvent(new SecondEvent());
+    assertEquals(1, presenter.secondEventsHandled);
+  }
+
+  @Test
+  public void shouldRethrowExceptionsFromHandlers() {
+    ConcurrentEventBus concurrentEventBus = new ConcurrentEventBus();
+    ReflectiveEventBinder.of(ThrowingPresenter.class)
+        .bindEventHandlers(new ThrowingPresenter(), concurrentEventBus);
+    try {
+      concurrentEventBus.fireEvent(new FirstEvent());
+      fail("Exception not thrown");
+    } catch (UmbrellaException expected) {
+      assertTrue(expected.getCause() instanceof UnsupportedOperationException);
+    }
+  }
+
+  @Test
+  public void shouldFailOnInvalidHandlerMethod() {
+    try {
+      ReflectiveEventBinder.of(InvalidPresenter.class);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {
+      assertTrue(expected.getMessage().contains("onAbstractEvent"));
+    }
+  }
+
+  @Test
+  public void shouldFailOnInterfaceWithoutTypeParameter() {
+    try {
+      ReflectiveEventBinder.create(RawEventBinder.class);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {
+      assertTrue(expected.getMessage().contains("must extend EventBinder"));
+    }
+  }
+
+  static class TestPresenter {
+    interface MyEventBinder extends EventBinder<TestPresenter> {}
+
+    int firstEventsHandled;
+    int firstEventsWithoutParameterHandled;
+    int secondEventsHandled;
+    int firstAndSecondEventsHandled;
+
+    @EventHandler
+    void onFirstEvent(FirstEvent e) {
+      firstEventsHandled++;
+    }
+
+    @EventHandler(handles = {FirstEvent.class})
+    void onFirstEventWithoutParameter() {
+      firstEventsWithoutParameterHandled++;
+    }
+
+    @EventHandler
+    protected void onSecondEvent(SecondEvent e) {
+      secondEventsHandled++;
+    }
+
+    @EventHandler(handles = {FirstEvent.class, SecondEvent.class})
+    public void onFirstAndSecondEvent(GenericEvent event) {
+      firstAndSecondEventsHandled++;
+    }
+
+    @SuppressWarnings("unused")
+    private void notAHandler(FirstEvent e) {}
+  }
+
+  static class BasePresenter {
+    int firstEventsHandled;
+    int secondEventsHandled;
+
+    @EventHandler
+    void onFirstEvent(FirstEvent e) {
+      firstEventsHandled++;
+    }
+
+    @EventHandler
+    void onSecondEvent(SecondEvent e) {
+      secondEventsHandled++;
+    }
+  }
+
+  static class SubPresenter extends BasePresenter {
+    int overriddenSecondEventsHandled;
+
+    @Override
+    @EventHandler
+    void onSecondEvent(SecondEvent e) {
+      overriddenSecondEventsHandled++;
+    }
+  }
+
+  static class ThrowingPresenter {
+    @EventHandler
+    void onFirstEvent(FirstEvent e) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  static class InvalidPresenter {
+    @EventHandler
+    void onAbstractEvent(AbstractEvent e) {}
+  }
+
+  @SuppressWarnings("rawtypes")
+  interface RawEventBinder extends EventBinder {}
+
+  static class FirstEvent extends GenericEvent {}
+  static class SecondEvent extends GenericEvent {}
+  abstract static class AbstractEvent extends GenericEvent {}
+}
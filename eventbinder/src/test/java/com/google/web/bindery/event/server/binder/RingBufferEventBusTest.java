@@ -0,0 +1,244 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.web.bindery.event.server.binder.RingBufferEventBus.WaitStrategy;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.PooledEvent;
+import com.google.web.bindery.event.shared.binder.impl.BoundEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for {@link RingBufferEventBus}.
+ */
+@RunWith(JUnit4.class)
+public class RingBufferEventBusTest {
+
+  private static final int EVENT_COUNT = 10000;
+
+  @Test
+  public void shouldDeliverEveryEventInOrder_busySpin() throws Exception {
+    checkDeliversEveryEventInOrder(WaitStrategy.busySpin());
+  }
+
+  @Test
+  public void shouldDeliverEveryEventInOrder_yielding() throws Exception {
+    checkDeliversEveryEventInOrder(WaitStrategy.yielding());
+  }
+
+  @Test
+  public void shouldDeliverEveryEventInOrder_sleeping() throws Exception {
+    checkDeliversEveryEventInOrder(WaitStrategy.sleeping());
+  }
+
+  @Test
+  public void shouldDeliverEveryEventInOrder_blocking() throws Exception {
+    checkDeliversEveryEventInOrder(WaitStrategy.blocking());
+  }
+
+  @Test
+  public void shouldContinueAfterHandlerThrows() throws Exception {
+    RingBufferEventBus eventBus = new RingBufferEventBus(16);
+    final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+    eventBus.addHandler(GenericEventType.getTypeOf(NumberedEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        Thread.currentThread().setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+          @Override
+          public void uncaughtException(Thread thread, Throwable e) {
+            thrown.set(e);
+          }
+        });
+        if (((NumberedEvent) event).number == 0) {
+          throw new RuntimeException("Expected");
+        }
+      }
+    });
+    OrderCheckingHandler handler = new OrderCheckingHandler();
+    eventBus.addHandler(GenericEventType.getTypeOf(NumberedEvent.class), handler);
+
+    eventBus.fireEvent(new NumberedEvent(0));
+    eventBus.fireEvent(new NumberedEvent(1));
+    eventBus.shutdown();
+
+    assertEquals(2, handler.eventsHandled);
+    assertTrue(thrown.get() != null);
+  }
+
+  @Test
+  public void shouldRejectEventsFiredByHandlers() throws Exception {
+    final RingBufferEventBus eventBus = new RingBufferEventBus(16);
+    final AtomicReference<Throwable> thrown = new AtomicReference<Throwable>();
+    eventBus.addHandler(GenericEventType.getTypeOf(NumberedEvent.class), new GenericEventHandler() {
+      @Override
+      public void handleEvent(GenericEvent event) {
+        try {
+          eventBus.fireEvent(new NumberedEvent(1));
+        } catch (IllegalStateException expected) {
+          thrown.set(expected);
+        }
+      }
+    });
+
+    eventBus.fireEvent(new NumberedEvent(0));
+    eventBus.shutdown();
+
+    assertTrue(thrown.get() instanceof IllegalStateException);
+  }
+
+  @Test
+  public void shouldDispatchHandlersOfOneTargetOnOneConsumer() throws Exception {
+    RingBufferEventBus eventBus = new RingBufferEventBus(16, 4, WaitStrategy.sleeping());
+    Object target = new Object();
+    final Set<Thread> threads = new HashSet<Thread>();
+    for (int i = 0; i < 8; i++) {
+      eventBus.addHandler(GenericEventType.getTypeOf(NumberedEvent.class),
+          new BoundEventHandler(target, "onNumberedEvent" + i) {
+            @Override
+            public void handleEvent(GenericEvent event) {
+              synchronized (threads) {
+                threads.add(Thread.currentThread());
+              }
+            }
+          });
+    }
+
+    eventBus.fireEvent(new NumberedEvent(0));
+    eventBus.shutdown();
+
+    assertEquals(1, threads.size());
+  }
+
+  @Test
+  public void shouldReleaseDispatchedEvents() throws Exception {
+    RingBufferEventBus eventBus = new RingBufferEventBus(16, 2, WaitStrategy.sleeping());
+    GenericEventType type = GenericEventType.getTypeOf(NumberedEvent.class);
+    eventBus.addHandler(type, new OrderCheckingHandler());
+    eventBus.addHandler(type, new OrderCheckingHandler());
+    NumberedEvent event = new NumberedEvent(0);
+    WeakReference<NumberedEvent> reference = new WeakReference<NumberedEvent>(event);
+
+    eventBus.fireEvent(event);
+    event = null;
+    eventBus.shutdown();
+
+    for (int i = 0; i < 10 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertNull(reference.get());
+  }
+
+  @Test
+  public void shouldDeliverOrRejectEventsFiredDuringShutdown() throws Exception {
+    for (int run = 0; run < 20; run++) {
+      final RingBufferEventBus eventBus = new RingBufferEventBus(4, 2, WaitStrategy.yielding());
+      final OrderCheckingHandler handler = new OrderCheckingHandler();
+      eventBus.addHandler(GenericEventType.getTypeOf(NumberedEvent.class), handler);
+      final AtomicInteger accepted = new AtomicInteger();
+      Thread producer = new Thread() {
+        @Override
+        public void run() {
+          try {
+            while (true) {
+              eventBus.fireEvent(new NumberedEvent(accepted.get()));
+              accepted.incrementAndGet();
+            }
+          } catch (IllegalStateException expected) {}
+        }
+      };
+      producer.start();
+      Thread.sleep(1);
+      eventBus.shutdown();
+      producer.join();
+
+      // Every event that wasn't rejected was dispatched, and none after that
+      assertEquals(accepted.get(), handler.eventsHandled);
+      assertTrue(handler.inOrder);
+    }
+  }
+
+  @Test
+  public void shouldRejectPooledEvents() throws Exception {
+    RingBufferEventBus eventBus = new RingBufferEventBus(16);
+    try {
+      eventBus.fireEvent(new TestPooledEvent());
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {
+    } finally {
+      eventBus.shutdown();
+    }
+  }
+
+  private void checkDeliversEveryEventInOrder(WaitStrategy waitStrategy) throws Exception {
+    // Use a small buffer so that the producer has to wait for the consumers
+    RingBufferEventBus eventBus = new RingBufferEventBus(64, 2, waitStrategy);
+    OrderCheckingHandler[] handlers = new OrderCheckingHandler[3];
+    for (int i = 0; i < handlers.length; i++) {
+      handlers[i] = new OrderCheckingHandler();
+      eventBus.addHandler(GenericEventType.getTypeOf(NumberedEvent.class), handlers[i]);
+    }
+
+    for (int i = 0; i < EVENT_COUNT; i++) {
+      eventBus.fireEvent(new NumberedEvent(i));
+    }
+    eventBus.shutdown();
+
+    for (OrderCheckingHandler handler : handlers) {
+      assertEquals(EVENT_COUNT, handler.eventsHandled);
+      assertTrue(handler.inOrder);
+    }
+  }
+
+  static class OrderCheckingHandler implements GenericEventHandler {
+    int eventsHandled;
+    boolean inOrder = true;
+
+    @Override
+    public void handleEvent(GenericEvent event) {
+      if (((NumberedEvent) event).number != eventsHandled) {
+        inOrder = false;
+      }
+      eventsHandled++;
+    }
+  }
+
+  static class TestPooledEvent extends PooledEvent {}
+
+  static class NumberedEvent extends GenericEvent {
+    final int number;
+
+    NumberedEvent(int number) {
+      this.number = number;
+    }
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2013 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.web.bindery.event.server.binder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.web.bindery.event.shared.EventBus;
+import com.google.web.bindery.event.shared.HandlerRegistration;
+import com.google.web.bindery.event.shared.binder.CountingEventBus;
+import com.google.web.bindery.event.shared.binder.EventHandler;
+import com.google.web.bindery.event.shared.binder.EventScope;
+import com.google.web.bindery.event.shared.binder.GenericEvent;
+import com.google.web.bindery.event.shared.binder.OrderedEventBus;
+import com.google.web.bindery.event.shared.binder.StickyEventBus;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+/**
+ * Tests for {@link StatsEventBus}.
+ */
+@RunWith(JUnit4.class)
+public class StatsEventBusTest {
+
+  private static final String FIRST_EVENT = FirstEvent.class.getName();
+  private static final String SECOND_EVENT = SecondEvent.class.getName();
+  private static final String BINDER = ReflectiveEventBinder.of(TestPresenter.class).toString();
+
+  private StatsEventBus eventBus;
+
+  private interface Rates {
+    Map<String, Double> get();
+  }
+
+  @Before
+  public void setUp() {
+    eventBus = new StatsEventBus(new ConcurrentEventBus());
+  }
+
+  @Test
+  public void shouldCountHandlersPerType() {
+    HandlerRegistration registration = bind(new TestPresenter());
+    bind(new TestPresenter());
+
+    assertEquals(4L, (long) eventBus.getHandlerCounts().get(FIRST_EVENT));
+    assertEquals(2L, (long) eventBus.getHandlerCounts().get(SECOND_EVENT));
+    assertEquals(6, eventBus.getTotalHandlerCount());
+
+    registration.removeHandler();
+    registration.removeHandler();
+
+    assertEquals(2L, (long) eventBus.getHandlerCounts().get(FIRST_EVENT));
+    assertEquals(3, eventBus.getTotalHandlerCount());
+  }
+
+  @Test
+  public void shouldCountFiresAndDispatches() {
+    TestPresenter presenter = new TestPresenter();
+    bind(presenter);
+
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new SecondEvent());
+    eventBus.fireEvent(new UnhandledEvent());
+
+    assertEquals(5, presenter.calls);
+    Map<String, Long> fireCounts = eventBus.getFireCounts();
+    assertEquals(2L, (long) fireCounts.get(FIRST_EVENT));
+    assertEquals(1L, (long) fireCounts.get(SECOND_EVENT));
+    assertEquals(1L, (long) fireCounts.get(UnhandledEvent.class.getName()));
+    Map<String, Double> dispatchesPerFire = eventBus.getDispatchesPerFire();
+    assertEquals(2.0, dispatchesPerFire.get(FIRST_EVENT), 0);
+    assertEquals(1.0, dispatchesPerFire.get(SECOND_EVENT), 0);
+    assertEquals(0.0, dispatchesPerFire.get(UnhandledEvent.class.getName()), 0);
+  }
+
+  @Test
+  public void shouldReportRatesOfLastInterval() throws Exception {
+    final StatsEventBus sampledBus = new StatsEventBus(new ConcurrentEventBus(), 20);
+    Rates fireRates = new Rates() {
+      @Override
+      public Map<String, Double> get() {
+        return sampledBus.getFireRates();
+      }
+    };
+    Rates bindRates = new Rates() {
+      @Override
+      public Map<String, Double> get() {
+        return sampledBus.getBindRates();
+      }
+    };
+
+    ReflectiveEventBinder.of(TestPresenter.class).bindEventHandlers(
+        new TestPresenter(), sampledBus);
+    sampledBus.fireEvent(new FirstEvent());
+
+    assertTrue(awaitRate(bindRates, BINDER, true));
+    assertTrue(awaitRate(fireRates, FIRST_EVENT, true));
+    // Nothing is fired in later intervals
+    assertTrue(awaitRate(fireRates, FIRST_EVENT, false));
+  }
+
+  @Test
+  public void shouldCountBindsThroughDecorators() {
+    StatsEventBus statsBus = new StatsEventBus(new ConcurrentEventBus());
+    EventBus decoratedBus = new StickyEventBus(new CountingEventBus(statsBus));
+
+    ReflectiveEventBinder.of(TestPresenter.class).bindEventHandlers(
+        new TestPresenter(), decoratedBus).removeHandler();
+
+    assertEquals(1L, (long) statsBus.getBindCounts().get(BINDER));
+    assertEquals(1L, (long) statsBus.getUnbindCounts().get(BINDER));
+  }
+
+  @Test
+  public void shouldCountBindsPerBinder() {
+    bind(new TestPresenter()).removeHandler();
+    bind(new TestPresenter());
+    EventScope scope = new EventScope();
+    scope.bind(ReflectiveEventBinder.of(TestPresenter.class), new TestPresenter(), eventBus);
+    scope.removeHandler();
+
+    assertEquals(3L, (long) eventBus.getBindCounts().get(BINDER));
+    assertEquals(2L, (long) eventBus.getUnbindCounts().get(BINDER));
+  }
+
+  @Test
+  public void shouldKeepHandlerOrder() {
+    StatsEventBus orderedBus = new StatsEventBus(new OrderedEventBus());
+    OrderedPresenter presenter = new OrderedPresenter();
+    ReflectiveEventBinder.of(OrderedPresenter.class).bindEventHandlers(presenter, orderedBus);
+
+    orderedBus.fireEvent(new FirstEvent());
+
+    assertEquals("first,second", presenter.calls.toString().replaceAll("[\\[\\] ]", ""));
+  }
+
+  @Test
+  public void shouldCountConcurrentFires() throws Exception {
+    bind(new TestPresenter());
+    final int threadCount = 4;
+    final int firesPerThread = 10000;
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < firesPerThread; j++) {
+            eventBus.fireEvent(new SecondEvent());
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals((long) threadCount * firesPerThread,
+        (long) eventBus.getFireCounts().get(SECOND_EVENT));
+  }
+
+  @Test
+  public void shouldExportStatsOverJmx() throws Exception {
+    bind(new TestPresenter());
+    eventBus.fireEvent(new FirstEvent());
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("com.google.web.bindery.event:type=StatsEventBusTest");
+
+    server.registerMBean(eventBus, name);
+    try {
+      assertEquals(3L, server.getAttribute(name, "TotalHandlerCount"));
+      TabularData fireCounts = (TabularData) server.getAttribute(name, "FireCounts");
+      assertEquals(1L, fireCounts.get(new Object[] {FIRST_EVENT}).get("value"));
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  @Test
+  public void shouldSumStripedCounters() {
+    StripedCounter counter = new StripedCounter();
+    counter.increment();
+    counter.add(41);
+    counter.add(-2);
+
+    assertEquals(40, counter.sum());
+    assertEquals(1, StripedCounter.stripesFor(1));
+    assertEquals(8, StripedCounter.stripesFor(6));
+    assertEquals(64, StripedCounter.stripesFor(1000));
+  }
+
+  /**
+   * Waits for the rate of the given key to become positive or zero, returning
+   * false if it doesn't within five seconds.
+   */
+  private static boolean awaitRate(Rates rates, String key, boolean positive)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline) {
+      Double rate = rates.get().get(key);
+      if (rate != null && (rate > 0) == positive) {
+        return true;
+      }
+      Thread.sleep(5);
+    }
+    return false;
+  }
+
+  private HandlerRegistration bind(TestPresenter presenter) {
+    return ReflectiveEventBinder.of(TestPresenter.class).bindEventHandlers(presenter, eventBus);
+  }
+
+  static class TestPresenter {
+    int calls;
+
+    @EventHandler
+    void onFirst(FirstEvent event) {
+      calls++;
+    }
+
+    @EventHandler(handles = {FirstEvent.class, SecondEvent.class})
+    void onAny() {
+      calls++;
+    }
+  }
+
+  static class OrderedPresenter {
+    final List<String> calls = new ArrayList<String>();
+
+    @EventHandler(order = 1)
+    void second(FirstEvent event) {
+      calls.add("second");
+    }
+
+    @EventHandler(order = -1)
+    void first(FirstEvent event) {
+      calls.add("first");
+    }
+  }
+
+  static class FirstEvent extends GenericEvent {}
+  static class SecondEvent extends GenericEvent {}
+  static class UnhandledEvent extends GenericEvent {}
+}
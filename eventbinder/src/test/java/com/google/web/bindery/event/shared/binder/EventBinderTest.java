@@ -15,11 +15,18 @@
  */
 package com.google.web.bindery.event.shared.binder;
 
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
 import com.google.gwt.core.shared.GWT;
 import com.google.gwt.junit.client.GWTTestCase;
+import com.google.web.bindery.event.shared.Event;
 import com.google.web.bindery.event.shared.EventBus;
 import com.google.web.bindery.event.shared.HandlerRegistration;
 import com.google.web.bindery.event.shared.SimpleEventBus;
+import com.google.web.bindery.event.shared.UmbrellaException;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventHandler;
+import com.google.web.bindery.event.shared.binder.impl.GenericEventType;
 import com.google.web.bindery.event.shared.binder.subpackage.SomeActivity;
 
 /**
@@ -29,6 +36,8 @@ import com.google.web.bindery.event.shared.binder.subpackage.SomeActivity;
  */
 public class EventBinderTest extends GWTTestCase {
 
+  private static final FirstEventFactory FIRST_EVENT = new FirstEventFactory();
+
   @Override
   public String getModuleName() {
     return "com.google.web.bindery.event.EventBinder";
@@ -129,6 +138,446 @@ public class EventBinderTest extends GWTTestCase {
     assertEquals(2, presenter.firstAndSecondEventsHandled);
   }
 
+  public void testEventScope() {
+    EventBus eventBus = new SimpleEventBus();
+    EventBus otherEventBus = new SimpleEventBus();
+    TestPresenter presenter = new TestPresenter();
+    SubPresenter subPresenter = new SubPresenter();
+    TestPresenter.MyEventBinder binder = GWT.create(TestPresenter.MyEventBinder.class);
+    SubPresenter.MyEventBinder subBinder = GWT.create(SubPresenter.MyEventBinder.class);
+
+    EventScope scope = new EventScope();
+    scope.bind(binder, presenter, eventBus);
+    scope.bind(subBinder, subPresenter, otherEventBus);
+    assertEquals(13, scope.size());
+
+    eventBus.fireEvent(new FirstEvent());
+    otherEventBus.fireEvent(new FirstEvent());
+    assertEquals(1, presenter.firstEventsHandled);
+    assertEquals(1, subPresenter.subclassFirstEventsHandled);
+
+    // Releasing the scope should unbind both presenters
+    scope.removeHandler();
+    assertEquals(0, scope.size());
+    eventBus.fireEvent(new FirstEvent());
+    otherEventBus.fireEvent(new FirstEvent());
+    assertEquals(1, presenter.firstEventsHandled);
+    assertEquals(1, subPresenter.subclassFirstEventsHandled);
+
+    // The scope can be reused after being released
+    scope.bind(binder, presenter, eventBus);
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(2, presenter.firstEventsHandled);
+  }
+
+  public void testEventScope_removesPartialBindingOnFailure() {
+    EventBus eventBus = new SimpleEventBus();
+    FailingEventBus failingEventBus = new FailingEventBus(3);
+    TestPresenter.MyEventBinder binder = GWT.create(TestPresenter.MyEventBinder.class);
+    SubPresenter.MyEventBinder subBinder = GWT.create(SubPresenter.MyEventBinder.class);
+
+    EventScope scope = new EventScope();
+    scope.bind(binder, new TestPresenter(), eventBus);
+    int size = scope.size();
+    try {
+      scope.bind(subBinder, new SubPresenter(), failingEventBus);
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+
+    // Only the handlers added by the failed call should have been removed
+    assertEquals(size, scope.size());
+    assertEquals(0, failingEventBus.handlerCount);
+  }
+
+  public void testStickyEventBus() {
+    StickyEventBus eventBus = new StickyEventBus(new SimpleEventBus());
+    eventBus.makeSticky(FirstEvent.class);
+    TestPresenter.MyEventBinder binder = GWT.create(TestPresenter.MyEventBinder.class);
+
+    // Only the latest event of a sticky type is replayed to handlers bound later
+    FirstEvent latestEvent = new FirstEvent();
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(latestEvent);
+    eventBus.fireEvent(new SecondEvent());
+    assertSame(latestEvent, eventBus.getStickyEvent(FirstEvent.class));
+    assertNull(eventBus.getStickyEvent(SecondEvent.class));
+
+    TestPresenter presenter = new TestPresenter();
+    binder.bindEventHandlers(presenter, eventBus);
+    assertEquals(1, presenter.firstEventsHandled);
+    assertEquals(1, presenter.firstAndSecondEventsHandled);
+    assertEquals(1, presenter.firstEventsWithoutParameterHandled);
+    assertEquals(0, presenter.secondEventsHandled);
+
+    // Events fired after binding are delivered normally
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(2, presenter.firstEventsHandled);
+
+    // Invalidated events are no longer replayed
+    eventBus.invalidate(FirstEvent.class);
+    TestPresenter otherPresenter = new TestPresenter();
+    binder.bindEventHandlers(otherPresenter, eventBus);
+    assertEquals(0, otherPresenter.firstEventsHandled);
+    assertEquals(2, presenter.firstEventsHandled);
+  }
+
+  public void testStickyEventBusReplayFailure() {
+    StickyEventBus eventBus = new StickyEventBus(new SimpleEventBus());
+    eventBus.makeSticky(FirstEvent.class);
+    eventBus.fireEvent(new FirstEvent());
+    final int[] calls = new int[1];
+
+    // A handler that fails on replay isn't left registered
+    try {
+      eventBus.addHandler(GenericEventType.getTypeOf(FirstEvent.class), new GenericEventHandler() {
+        @Override
+        public void handleEvent(GenericEvent event) {
+          calls[0]++;
+          throw new IllegalStateException("replay failed");
+        }
+      });
+      fail("Exception not thrown");
+    } catch (UmbrellaException expected) {
+      assertEquals("replay failed", expected.getCause().getMessage());
+    }
+    eventBus.invalidate(FirstEvent.class);
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(1, calls[0]);
+  }
+
+  public void testStickyEventBusRejectsReusedEvents() {
+    StickyEventBus eventBus = new StickyEventBus(new SimpleEventBus());
+    eventBus.makeSticky(FirstEvent.class);
+    eventBus.makeSticky(PooledValueEvent.class);
+
+    try {
+      GenericEvents.fireShared(eventBus, FirstEvent.class, FIRST_EVENT);
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+    try {
+      eventBus.fireEvent(new PooledValueEvent());
+      fail("Exception not thrown");
+    } catch (IllegalArgumentException expected) {}
+    assertNull(eventBus.getStickyEvent(FirstEvent.class));
+    assertNull(eventBus.getStickyEvent(PooledValueEvent.class));
+  }
+
+  public void testCascadeAnalyzer() {
+    CascadeAnalyzer eventBus = new CascadeAnalyzer(new SimpleEventBus(), 1);
+    CascadePresenter presenter = new CascadePresenter(eventBus);
+    CascadePresenter.MyEventBinder binder = GWT.create(CascadePresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    eventBus.fireEvent(new ThirdEvent());
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new ThirdEvent());
+    assertEquals(5, presenter.thirdEventsHandled);
+
+    // Only the cascade with the most handler invocations is kept
+    assertEquals(1, eventBus.getWorstCascades().size());
+    CascadeAnalyzer.Cascade cascade = eventBus.getWorstCascades().get(0);
+    assertEquals(7, cascade.getEventCount());
+    assertEquals(7, cascade.getHandlerInvocations());
+    assertEquals(2, cascade.getDepth());
+
+    CascadeAnalyzer.Node root = cascade.getRoot();
+    assertEquals("EventBinderTest$FirstEvent", root.getEventName());
+    assertNull(root.getFiredBy());
+    assertEquals(1, root.getHandlerInvocations());
+    CascadeAnalyzer.Node second = root.getChildren().get(0);
+    assertEquals("EventBinderTest$SecondEvent", second.getEventName());
+    assertEquals("EventBinderTest$CascadePresenter", second.getFiredBy());
+    assertEquals(3, second.getEventCount());
+    CascadeAnalyzer.Node third = second.getChildren().get(0);
+    assertEquals("EventBinderTest$ThirdEvent", third.getEventName());
+    assertEquals(3, third.getEventCount());
+    assertEquals(3, third.getHandlerInvocations());
+    assertTrue(eventBus.getReport().startsWith(
+        "Cascade from EventBinderTest$FirstEvent: 7 handler invocations, 7 events, depth 2"));
+
+    eventBus.reset();
+    assertEquals(0, eventBus.getWorstCascades().size());
+  }
+
+  public void testTracingEventBus() {
+    TracingEventBus eventBus = new TracingEventBus(new SimpleEventBus(), 5);
+    CascadePresenter presenter = new CascadePresenter(eventBus);
+    CascadePresenter.MyEventBinder binder = GWT.create(CascadePresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    // Seven handlers run, so the two oldest spans are overwritten
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(3, presenter.thirdEventsHandled);
+    assertEquals(5, eventBus.getSpanCount());
+    assertEquals(2, eventBus.getOverwrittenCount());
+
+    String json = eventBus.getTraceJson();
+    assertTrue(json.startsWith("{\"traceEvents\":[\n{\"name\":"));
+    assertTrue(json.endsWith("],\"displayTimeUnit\":\"ms\"}"));
+    // The outermost span ends last
+    String target = CascadePresenter.class.getName();
+    assertTrue(json.contains("{\"name\":\"" + target + ".onFirstEvent\",\"cat\":\"EventBinder\""));
+    assertTrue(json.contains("\"args\":{\"event\":\"" + FirstEvent.class.getName()
+        + "\",\"target\":\"" + target + "\",\"method\":\"onFirstEvent\",\"depth\":0}}\n]"));
+    assertTrue(json.contains("\"method\":\"onThirdEvent\",\"depth\":2}}"));
+
+    eventBus.clear();
+    assertEquals(0, eventBus.getSpanCount());
+    assertEquals("{\"traceEvents\":[\n],\"displayTimeUnit\":\"ms\"}", eventBus.getTraceJson());
+  }
+
+  public void testEventPool() {
+    EventBus eventBus = new SimpleEventBus();
+    PooledPresenter presenter = new PooledPresenter();
+    PooledPresenter.MyEventBinder binder = GWT.create(PooledPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+    EventPool<PooledValueEvent> pool = new EventPool<PooledValueEvent>(
+        new EventFactory<PooledValueEvent>() {
+          @Override
+          public PooledValueEvent create() {
+            return new PooledValueEvent();
+          }
+        }, 2);
+    pool.setDebug(false);
+
+    // Released events are reused
+    for (int i = 1; i <= 3; i++) {
+      pool.fire(eventBus, pool.acquire().setValue(i));
+    }
+    assertEquals(6, presenter.sum);
+    assertEquals(1, pool.getCreatedCount());
+    assertEquals(1, pool.getSize());
+    assertTrue(presenter.lastEvent.isReleased());
+
+    // Events can't be released twice
+    PooledValueEvent event = pool.acquire();
+    pool.release(event);
+    try {
+      pool.release(event);
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+
+    // In debug mode, accessing an event after it was released always fails
+    pool.setDebug(true);
+    assertEquals(0, pool.getSize());
+    pool.fire(eventBus, pool.acquire().setValue(4));
+    pool.fire(eventBus, pool.acquire().setValue(5));
+    assertEquals(15, presenter.sum);
+    assertEquals(3, pool.getCreatedCount());
+    try {
+      presenter.lastEvent.getValue();
+      fail("Exception not thrown");
+    } catch (IllegalStateException expected) {}
+  }
+
+  public void testEventPool_rejectedByRateLimitedAndLazyHandlers() {
+    EventBus eventBus = new SimpleEventBus();
+    RateLimitedPooledPresenter rateLimitedPresenter = new RateLimitedPooledPresenter();
+    RateLimitedPooledPresenter.MyEventBinder rateLimitedBinder =
+        GWT.create(RateLimitedPooledPresenter.MyEventBinder.class);
+    HandlerRegistration registration =
+        rateLimitedBinder.bindEventHandlers(rateLimitedPresenter, eventBus);
+    EventPool<PooledValueEvent> pool = new EventPool<PooledValueEvent>(
+        new EventFactory<PooledValueEvent>() {
+          @Override
+          public PooledValueEvent create() {
+            return new PooledValueEvent();
+          }
+        }, 2);
+
+    // Throttled handlers would keep the event past its release
+    try {
+      pool.fire(eventBus, pool.acquire().setValue(1));
+      fail("Exception not thrown");
+    } catch (UmbrellaException expected) {
+      assertTrue(expected.getCause() instanceof IllegalArgumentException);
+    }
+    assertEquals(0, rateLimitedPresenter.eventsHandled);
+    registration.removeHandler();
+
+    // So would lazy bindings that haven't loaded their handlers yet
+    LazyPooledPresenter.MyEventBinder lazyBinder =
+        GWT.create(LazyPooledPresenter.MyEventBinder.class);
+    lazyBinder.bindEventHandlers(new LazyPooledPresenter(), eventBus);
+    try {
+      pool.fire(eventBus, pool.acquire().setValue(2));
+      fail("Exception not thrown");
+    } catch (UmbrellaException expected) {
+      assertTrue(expected.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
+  public void testFireShared_rejectedByRateLimitedHandlers() {
+    EventBus eventBus = new SimpleEventBus();
+    RateLimitedSharedPresenter presenter = new RateLimitedSharedPresenter();
+    RateLimitedSharedPresenter.MyEventBinder binder =
+        GWT.create(RateLimitedSharedPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    // The shared instance is reset and fired again before the throttle delay ends
+    try {
+      GenericEvents.fireShared(eventBus, FirstEvent.class, FIRST_EVENT);
+      fail("Exception not thrown");
+    } catch (UmbrellaException expected) {
+      assertTrue(expected.getCause() instanceof IllegalArgumentException);
+    }
+    assertEquals(0, presenter.eventsHandled);
+  }
+
+  public void testOrderedEventBus() {
+    OrderedEventBus eventBus = new OrderedEventBus();
+    StringBuilder calls = new StringBuilder();
+    OrderedPresenter.MyEventBinder binder = GWT.create(OrderedPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(new OrderedPresenter("a", calls), eventBus);
+    binder.bindEventHandlers(new OrderedPresenter("b", calls), eventBus);
+
+    // Handlers run by order, then by the order they were bound
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals("a-early b-early a-default b-default a-late b-late ", calls.toString());
+
+    // The first handler to stop propagation is the last one called
+    calls.setLength(0);
+    FirstEvent event = new FirstEvent();
+    OrderedPresenter consumer = new OrderedPresenter("c", calls);
+    consumer.consume = true;
+    HandlerRegistration registration = binder.bindEventHandlers(consumer, eventBus);
+    eventBus.fireEvent(event);
+    assertEquals("a-early b-early c-early ", calls.toString());
+    assertTrue(event.isPropagationStopped());
+
+    // Firing the event again delivers it from the start
+    calls.setLength(0);
+    registration.removeHandler();
+    eventBus.fireEvent(event);
+    assertEquals("a-early b-early a-default b-default a-late b-late ", calls.toString());
+    assertFalse(event.isPropagationStopped());
+  }
+
+  public void testOrderedEventBusThroughDecorators() {
+    OrderedEventBus orderedEventBus = new OrderedEventBus();
+    EventBus eventBus = new TracingEventBus(new CascadeAnalyzer(orderedEventBus, 1), 10);
+    StringBuilder calls = new StringBuilder();
+    OrderedPresenter.MyEventBinder binder = GWT.create(OrderedPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(new OrderedPresenter("a", calls), eventBus);
+
+    // Decorators wrap the handlers but keep their order
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals("a-early a-default a-late ", calls.toString());
+  }
+
+  public void testFireShared() {
+    EventBus eventBus = new SimpleEventBus();
+    TestPresenter presenter = new TestPresenter();
+    TestPresenter.MyEventBinder binder = GWT.create(TestPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    GenericEvents.fireShared(eventBus, FirstEvent.class, FIRST_EVENT);
+    GenericEvents.fireShared(eventBus, FirstEvent.class, FIRST_EVENT);
+    assertEquals(2, presenter.firstEventsHandled);
+    assertEquals(2, presenter.firstAndSecondEventsHandled);
+  }
+
+  public void testFireIfHandled() {
+    EventBus eventBus = new CountingEventBus(new SimpleEventBus());
+    CountingPresenter presenter = new CountingPresenter();
+    CountingPresenter.MyEventBinder binder = GWT.create(CountingPresenter.MyEventBinder.class);
+    CountingEventFactory factory = new CountingEventFactory();
+
+    // Nothing is bound yet, so the event shouldn't even be created
+    assertFalse(GenericEvents.isHandled(eventBus, CountedEvent.class));
+    assertFalse(GenericEvents.fireIfHandled(eventBus, CountedEvent.class, factory));
+    assertEquals(0, factory.eventsCreated);
+
+    HandlerRegistration registration = binder.bindEventHandlers(presenter, eventBus);
+    assertTrue(GenericEvents.isHandled(eventBus, CountedEvent.class));
+    assertTrue(GenericEvents.fireIfHandled(eventBus, CountedEvent.class, factory));
+    assertEquals(1, factory.eventsCreated);
+    assertEquals(1, presenter.countedEventsHandled);
+
+    // Removing the handlers twice shouldn't make the count negative
+    registration.removeHandler();
+    registration.removeHandler();
+    assertFalse(GenericEvents.isHandled(eventBus, CountedEvent.class));
+    assertFalse(GenericEvents.fireIfHandled(eventBus, CountedEvent.class, factory));
+    assertEquals(1, factory.eventsCreated);
+
+    // Handlers added directly are counted too
+    registration = eventBus.addHandler(
+        GenericEventType.getTypeOf(CountedEvent.class), new GenericEventHandler() {
+          @Override
+          public void handleEvent(GenericEvent event) {}
+        });
+    assertTrue(GenericEvents.fireIfHandled(eventBus, CountedEvent.class, factory));
+    assertEquals(2, factory.eventsCreated);
+    registration.removeHandler();
+
+    // Handlers on another bus don't count
+    EventBus otherEventBus = new CountingEventBus(new SimpleEventBus());
+    binder.bindEventHandlers(presenter, otherEventBus);
+    assertFalse(GenericEvents.isHandled(eventBus, CountedEvent.class));
+    assertTrue(GenericEvents.isHandled(otherEventBus, CountedEvent.class));
+
+    // Buses that don't count handlers always build the event
+    assertTrue(GenericEvents.fireIfHandled(new SimpleEventBus(), CountedEvent.class, factory));
+    assertEquals(3, factory.eventsCreated);
+  }
+
+  public void testEventBinder_throttleAndDebounce() {
+    final EventBus eventBus = new SimpleEventBus();
+    final RateLimitedPresenter presenter = new RateLimitedPresenter();
+    RateLimitedPresenter.MyEventBinder binder =
+        GWT.create(RateLimitedPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+
+    // The first throttled event is delivered immediately; debounced events wait for quiet
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals(1, presenter.throttledEventsHandled);
+    assertEquals(0, presenter.debouncedEventsHandled);
+
+    // The last throttled event is delivered at the end of the period, and the debounced one once
+    // the events stop
+    delayTestFinish(5000);
+    Scheduler.get().scheduleFixedDelay(new RepeatingCommand() {
+      @Override
+      public boolean execute() {
+        assertEquals(2, presenter.throttledEventsHandled);
+        assertEquals(1, presenter.debouncedEventsHandled);
+        finishTest();
+        return false;
+      }
+    }, 500);
+  }
+
+  public void testEventBinder_lazy() {
+    final EventBus eventBus = new SimpleEventBus();
+    final LazyPresenter presenter = new LazyPresenter();
+    final LazyPresenter releasedPresenter = new LazyPresenter();
+    LazyPresenter.MyEventBinder binder = GWT.create(LazyPresenter.MyEventBinder.class);
+    binder.bindEventHandlers(presenter, eventBus);
+    binder.bindEventHandlers(releasedPresenter, eventBus).removeHandler();
+
+    // Events received before the handlers are loaded are queued
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new SecondEvent());
+    eventBus.fireEvent(new FirstEvent());
+    assertEquals("", presenter.eventsHandled);
+
+    // Once loaded, the queued events are replayed in order and later events are handled directly
+    delayTestFinish(5000);
+    Scheduler.get().scheduleDeferred(new ScheduledCommand() {
+      @Override
+      public void execute() {
+        assertEquals("121", presenter.eventsHandled);
+        eventBus.fireEvent(new SecondEvent());
+        assertEquals("1212", presenter.eventsHandled);
+        assertEquals("", releasedPresenter.eventsHandled);
+        finishTest();
+      }
+    });
+  }
+
   // https://github.com/google/gwteventbinder/issues/28
   public void testEventBinder_inDifferentPackage() {
     EventBus eventBus = new SimpleEventBus();
@@ -195,7 +644,212 @@ public class EventBinderTest extends GWTTestCase {
     }
   }
 
+  static class RateLimitedPresenter {
+    interface MyEventBinder extends EventBinder<RateLimitedPresenter> {}
+
+    int throttledEventsHandled;
+    int debouncedEventsHandled;
+
+    @EventHandler(throttleMillis = 200)
+    void onFirstEventThrottled(FirstEvent e) {
+      throttledEventsHandled++;
+    }
+
+    @EventHandler(debounceMillis = 100)
+    void onFirstEventDebounced(FirstEvent e) {
+      debouncedEventsHandled++;
+    }
+  }
+
+  static class LazyPresenter {
+    @LazyEventBinder
+    interface MyEventBinder extends EventBinder<LazyPresenter> {}
+
+    String eventsHandled = "";
+
+    @EventHandler
+    void onFirstEvent(FirstEvent e) {
+      eventsHandled += "1";
+    }
+
+    @EventHandler
+    void onSecondEvent(SecondEvent e) {
+      eventsHandled += "2";
+    }
+  }
+
+  static class CascadePresenter {
+    interface MyEventBinder extends EventBinder<CascadePresenter> {}
+
+    private final EventBus eventBus;
+    int thirdEventsHandled;
+
+    CascadePresenter(EventBus eventBus) {
+      this.eventBus = eventBus;
+    }
+
+    @EventHandler
+    void onFirstEvent(FirstEvent e) {
+      for (int i = 0; i < 3; i++) {
+        eventBus.fireEvent(new SecondEvent());
+      }
+    }
+
+    @EventHandler
+    void onSecondEvent(SecondEvent e) {
+      eventBus.fireEvent(new ThirdEvent());
+    }
+
+    @EventHandler
+    void onThirdEvent(ThirdEvent e) {
+      thirdEventsHandled++;
+    }
+  }
+
+  static class OrderedPresenter {
+    interface MyEventBinder extends EventBinder<OrderedPresenter> {}
+
+    private final String name;
+    private final StringBuilder calls;
+    boolean consume;
+
+    OrderedPresenter(String name, StringBuilder calls) {
+      this.name = name;
+      this.calls = calls;
+    }
+
+    @EventHandler(order = 10)
+    void onFirstEventLate(FirstEvent event) {
+      calls.append(name).append("-late ");
+    }
+
+    @EventHandler
+    void onFirstEvent(FirstEvent event) {
+      calls.append(name).append("-default ");
+    }
+
+    @EventHandler(order = -10)
+    void onFirstEventEarly(FirstEvent event) {
+      calls.append(name).append("-early ");
+      if (consume) {
+        event.stopPropagation();
+      }
+    }
+  }
+
+  static class PooledPresenter {
+    interface MyEventBinder extends EventBinder<PooledPresenter> {}
+
+    int sum;
+    PooledValueEvent lastEvent; // Kept only to test detection of this mistake
+
+    @EventHandler
+    void onPooledValueEvent(PooledValueEvent event) {
+      sum += event.getValue();
+      lastEvent = event;
+    }
+  }
+
+  static class RateLimitedPooledPresenter {
+    interface MyEventBinder extends EventBinder<RateLimitedPooledPresenter> {}
+
+    int eventsHandled;
+
+    @EventHandler(throttleMillis = 100)
+    void onPooledValueEvent(PooledValueEvent event) {
+      eventsHandled++;
+    }
+  }
+
+  /** Event bus that fails to add a handler after a given number were added. */
+  static class FailingEventBus extends SimpleEventBus {
+    private int handlersUntilFailure;
+    int handlerCount;
+
+    FailingEventBus(int handlersUntilFailure) {
+      this.handlersUntilFailure = handlersUntilFailure;
+    }
+
+    @Override
+    public <H> HandlerRegistration addHandler(Event.Type<H> type, H handler) {
+      if (handlersUntilFailure-- == 0) {
+        throw new IllegalStateException("Failed to add handler");
+      }
+      final HandlerRegistration registration = super.addHandler(type, handler);
+      handlerCount++;
+      return new HandlerRegistration() {
+        @Override
+        public void removeHandler() {
+          registration.removeHandler();
+          handlerCount--;
+        }
+      };
+    }
+  }
+
+  static class RateLimitedSharedPresenter {
+    interface MyEventBinder extends EventBinder<RateLimitedSharedPresenter> {}
+
+    int eventsHandled;
+
+    @EventHandler(throttleMillis = 100)
+    void onFirstEvent(FirstEvent event) {
+      eventsHandled++;
+    }
+  }
+
+  static class LazyPooledPresenter {
+    @LazyEventBinder
+    interface MyEventBinder extends EventBinder<LazyPooledPresenter> {}
+
+    @EventHandler
+    void onPooledValueEvent(PooledValueEvent event) {}
+  }
+
+  static class CountingPresenter {
+    interface MyEventBinder extends EventBinder<CountingPresenter> {}
+
+    int countedEventsHandled;
+
+    @EventHandler
+    void onCountedEvent(CountedEvent e) {
+      countedEventsHandled++;
+    }
+  }
+
+  static class FirstEventFactory implements EventFactory<FirstEvent> {
+    @Override
+    public FirstEvent create() {
+      return new FirstEvent();
+    }
+  }
+
+  static class CountingEventFactory implements EventFactory<CountedEvent> {
+    int eventsCreated;
+
+    @Override
+    public CountedEvent create() {
+      eventsCreated++;
+      return new CountedEvent();
+    }
+  }
+
   public static class FirstEvent extends GenericEvent {}
   public static class SecondEvent extends GenericEvent {}
   public static class ThirdEvent extends GenericEvent {}
+  public static class CountedEvent extends GenericEvent {}
+
+  public static class PooledValueEvent extends PooledEvent {
+    private int value;
+
+    PooledValueEvent setValue(int value) {
+      this.value = value;
+      return this;
+    }
+
+    public int getValue() {
+      checkNotReleased();
+      return value;
+    }
+  }
 }